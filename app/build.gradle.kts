@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // The queue logs timeouts and rejected writes, let Log return quietly in JVM tests
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -15,7 +15,9 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.ble_scoreboard.utils.BLECommandUtil;
 import com.example.ble_scoreboard.utils.BLEManager;
+import com.example.ble_scoreboard.utils.BluetoothPermissions;
 import com.example.ble_scoreboard.utils.ClockManager;
+import com.example.ble_scoreboard.utils.ScoreboardFrame;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -89,6 +91,9 @@ public class ClockControlActivity extends AppCompatActivity
         setupListeners();
         loadConnectedDevices();
         updateDeviceStatusDisplay();
+
+        // Bring up every configured board in parallel
+        bleManager.connectAll(this, deviceAddresses);
     }
 
     private void initializeViews() {
@@ -128,7 +133,9 @@ public class ClockControlActivity extends AppCompatActivity
         // btnReset is missing in the layout
         btnShotClock14 = findViewById(R.id.btn_shotclock_reset_14);
         btnShotClock24 = findViewById(R.id.btn_shotclock_reset_24);
-        // Shot clock Start/Stop/Reset buttons are missing in the layout
+        btnShotClockStart = findViewById(R.id.btn_shotclock_start);
+        btnShotClockStop = findViewById(R.id.btn_shotclock_stop);
+        btnShotClockReset = findViewById(R.id.btn_shotclock_reset);
 
         // Initialize clock displays
         updateClockDisplay();
@@ -207,15 +214,34 @@ public class ClockControlActivity extends AppCompatActivity
             });
         }
 
-        // The Shot clock Start/Stop/Reset buttons aren't in the layout
-        // Using the main clock controls will also affect the shot clock as per the
-        // ClockManager implementation
+        // The shot clock runs on its own, also while the game clock is stopped
+        btnShotClockStart.setOnClickListener(v -> {
+            clockManager.startShotClock();
+            sendCommandToAllDevices(BLECommandUtil.COMMAND_START_SHOT_CLOCK);
+        });
+
+        btnShotClockStop.setOnClickListener(v -> {
+            clockManager.stopShotClock();
+            sendCommandToAllDevices(BLECommandUtil.COMMAND_STOP_SHOT_CLOCK);
+        });
+
+        btnShotClockReset.setOnClickListener(v -> {
+            clockManager.resetShotClock();
+            sendCommandToAllDevices(BLECommandUtil.COMMAND_RESET_SHOT_CLOCK);
+            updateShotClockDisplay();
+        });
     }
 
     private void loadConnectedDevices() {
         SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
         deviceAddresses.clear();
 
+        // Frame format, clock mode, latency compensation and state checks, as set in the settings screen
+        bleManager.setBinaryFramesEnabled(preferences.getBoolean("binaryFrames", true));
+        bleManager.setDeviceClockEnabled(preferences.getBoolean("deviceClock", false));
+        bleManager.setTimeSyncEnabled(preferences.getBoolean("timeSync", false));
+        bleManager.setReconciliationEnabled(preferences.getBoolean("reconcile", false));
+
         // Load device addresses from preferences
         String device1Address = preferences.getString("deviceAddress1", "");
         String device2Address = preferences.getString("deviceAddress2", "");
@@ -268,10 +294,10 @@ public class ClockControlActivity extends AppCompatActivity
             updateClockDisplay();
             updateShotClockDisplay();
 
-            // Send clock updates to BLE devices
-            // Update on every second change or when tenths digit changes to zero (for more
-            // frequent updates)
-            if (milliseconds == 0 || milliseconds % 100 == 0) {
+            // Send clock updates to BLE devices, unless the boards run the clock
+            // themselves. Update on every second change or when tenths digit changes
+            // to zero (for more frequent updates)
+            if (!bleManager.isDeviceClockActive() && (milliseconds == 0 || milliseconds % 100 == 0)) {
                 sendTimeUpdateToDevices(minutes, seconds);
 
                 // Also update shot clock if needed
@@ -305,18 +331,16 @@ public class ClockControlActivity extends AppCompatActivity
     @Override
     public void onGameClockExpired() {
         runOnUiThread(() -> {
+            // The buzzer was already sent to the devices from the clock thread
             Toast.makeText(this, "Game Clock Expired!", Toast.LENGTH_SHORT).show();
-            // Send buzzer command to devices
-            sendCommandToAllDevices(BLECommandUtil.COMMAND_BUZZER);
         });
     }
 
     @Override
     public void onShotClockExpired() {
         runOnUiThread(() -> {
+            // The buzzer was already sent to the devices from the clock thread
             Toast.makeText(this, "Shot Clock Expired!", Toast.LENGTH_SHORT).show();
-            // Send shot clock buzzer command
-            sendCommandToAllDevices(BLECommandUtil.COMMAND_SHOT_CLOCK_BUZZER);
         });
     }
 
@@ -333,57 +357,38 @@ public class ClockControlActivity extends AppCompatActivity
         // Update shot clock display - in the layout it's just one TextView
         TextView shotClockView = findViewById(R.id.tv_shotclock);
         int shotClock = clockManager.getShotClock();
-        shotClockView.setText(String.valueOf(shotClock));
+        int shotTenths = clockManager.getShotTenths();
+        // Tenths are shown below five seconds
+        shotClockView.setText(shotTenths == ScoreboardFrame.TENTHS_NONE ? String.valueOf(shotClock)
+                : shotClock + "." + shotTenths);
     }
 
     private void sendCommandToAllDevices(byte command) {
         // Send command to all connected devices using the BLEManager
         Log.d(TAG, "Sending command " + (char) command + " to all devices");
 
-        // Loop through all registered device addresses
-        for (String address : deviceAddresses) {
-            if (bleManager.isDeviceConnected(address)) {
-                bleManager.sendCommand(address, command);
-                Log.d(TAG, "Sent command " + (char) command + " to device " + address);
-            } else {
-                Log.d(TAG, "Device " + address + " not connected, couldn't send command");
-            }
-        }
-
         // If no devices registered, just log it
         if (deviceAddresses.isEmpty()) {
             Log.d(TAG, "No registered devices to send command to");
+            return;
+        }
+
+        // Queue the command on every registered device at once so all boards
+        // update together
+        if (!bleManager.sendCommandToDevices(deviceAddresses, command)) {
+            Log.d(TAG, "No registered device connected, couldn't send command");
         }
     }
 
     private void sendTimeUpdateToDevices(int minutes, int seconds) {
-        // Break down the time into individual digits
-        int min1 = minutes / 10;
-        int min2 = minutes % 10;
-        int sec1 = seconds / 10;
-        int sec2 = seconds % 10;
-
-        Log.d(TAG, "Updating clock display to: " + min1 + min2 + ":" + sec1 + sec2);
-
-        // Protocol:
-        // 1. Send position command (which position to update)
-        // 2. Send digit command (what digit to display at that position)
+        Log.d(TAG, "Updating clock display to: " + minutes / 10 + minutes % 10 + ":" + seconds / 10 + seconds % 10);
 
-        // Update minutes first digit
-        sendCommandToAllDevices(BLECommandUtil.COMMAND_CLOCK_MIN1_POS); // Position command
-        sendCommandToAllDevices((byte) (BLECommandUtil.COMMAND_DIGIT_0 + min1)); // Digit command
-
-        // Update minutes second digit
-        sendCommandToAllDevices(BLECommandUtil.COMMAND_CLOCK_MIN2_POS);
-        sendCommandToAllDevices((byte) (BLECommandUtil.COMMAND_DIGIT_0 + min2));
-
-        // Update seconds first digit
-        sendCommandToAllDevices(BLECommandUtil.COMMAND_CLOCK_SEC1_POS);
-        sendCommandToAllDevices((byte) (BLECommandUtil.COMMAND_DIGIT_0 + sec1));
-
-        // Update seconds second digit
-        sendCommandToAllDevices(BLECommandUtil.COMMAND_CLOCK_SEC2_POS);
-        sendCommandToAllDevices((byte) (BLECommandUtil.COMMAND_DIGIT_0 + sec2));
+        // Protocol: a position command (which position to update) followed by a
+        // digit command (what to display there). Each board only gets the
+        // positions whose digit changed since its last update.
+        if (!bleManager.sendTimeUpdateToDevices(deviceAddresses, minutes, seconds)) {
+            Log.d(TAG, "No registered device connected, couldn't send time update");
+        }
     }
 
     private void sendShotClockUpdateToDevices(int shotClock) {
@@ -415,6 +420,7 @@ public class ClockControlActivity extends AppCompatActivity
     @Override
     protected void onResume() {
         super.onResume();
+        BluetoothPermissions.invalidate();
 
         // Register as connection callback
         bleManager.addConnectionCallback(this);
@@ -2,9 +2,6 @@ package com.example.ble_scoreboard;
 
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattService;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
@@ -24,9 +21,12 @@ import androidx.preference.PreferenceManager;
 
 import com.example.ble_scoreboard.utils.BLECommandUtil;
 import com.example.ble_scoreboard.utils.BLEManager;
+import com.example.ble_scoreboard.utils.BluetoothPermissions;
 import com.example.ble_scoreboard.utils.ClockManager;
+import com.example.ble_scoreboard.utils.ScoreboardFrame;
+import com.example.ble_scoreboard.utils.ScoreboardState;
 
-import java.util.UUID;
+import java.util.Arrays;
 
 @RequiresApi(api = Build.VERSION_CODES.S)
 public class ControlPanelActivity extends AppCompatActivity
@@ -140,6 +140,12 @@ public class ControlPanelActivity extends AppCompatActivity
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         currentDeviceAddress = prefs.getString("deviceAddress1", "");
         currentDeviceName = prefs.getString("deviceName1", "");
+        if (bleManager != null) {
+            bleManager.setBinaryFramesEnabled(prefs.getBoolean("binaryFrames", true));
+            bleManager.setDeviceClockEnabled(prefs.getBoolean("deviceClock", false));
+            bleManager.setTimeSyncEnabled(prefs.getBoolean("timeSync", false));
+            bleManager.setReconciliationEnabled(prefs.getBoolean("reconcile", false));
+        }
 
         // Update button text
         if (currentDeviceName != null && !currentDeviceName.isEmpty()) {
@@ -252,81 +258,41 @@ public class ControlPanelActivity extends AppCompatActivity
 
         // Set click listeners for game control buttons
         btnNewGame.setOnClickListener(v -> {
-            // Execute initialization in a background thread to avoid UI freezing
-            new Thread(() -> {
-                // First, make sure we clear any previous state
-                if (bleManager != null && bleManager.isDeviceConnected(currentDeviceAddress)) {
-                    // Send reset command first to make sure the scoreboard is in a clean state
-                    sendCommandIfConnected(BLECommandUtil.COMMAND_RESET_CLOCK);
-
-                    // Short delay to ensure the reset is processed
-                    try {
-                        Thread.sleep(150);
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Sleep interrupted", e);
-                    }
-                }
+            // Commands are queued in order and written from the BLE thread, so the
+            // whole sequence is queued without waiting on the radio
+            boolean connected = bleManager != null && bleManager.isDeviceConnected(currentDeviceAddress);
+            if (connected) {
+                // Send reset command first to make sure the scoreboard is in a clean state
+                sendCommandIfConnected(BLECommandUtil.COMMAND_RESET_CLOCK);
+            }
 
-                // Reset the clock to default values
-                clockManager.resetToDefaults();
+            // Reset the clock and team state to default values
+            clockManager.resetToDefaults();
+            ScoreboardState.getInstance().reset();
+
+            // Update global variables from ClockManager
+            globalMin1 = clockManager.getMin1();
+            globalMin2 = clockManager.getMin2();
+            globalSec1 = clockManager.getSec1();
+            globalSec2 = clockManager.getSec2();
+            globalMSec = clockManager.getMSec();
+            globalShot1 = clockManager.getShot1();
+            globalShot2 = clockManager.getShot2();
+            updateClockDisplay();
 
-                // Run UI updates on the main thread
-                runOnUiThread(() -> {
-                    // Update global variables from ClockManager
-                    globalMin1 = clockManager.getMin1();
-                    globalMin2 = clockManager.getMin2();
-                    globalSec1 = clockManager.getSec1();
-                    globalSec2 = clockManager.getSec2();
-                    globalMSec = clockManager.getMSec();
-                    globalShot1 = clockManager.getShot1();
-                    globalShot2 = clockManager.getShot2();
-
-                    // Update clock display immediately
-                    updateClockDisplay();
-                    tv_result.setText("Initializing new game...");
-                });
-
-                // Send individual setup commands to ensure the scoreboard is properly
-                // initialized
-                if (bleManager != null && bleManager.isDeviceConnected(currentDeviceAddress)) {
-                    try {
-                        // First send the new game command
-                        sendCommandIfConnected(BLECommandUtil.CMD_NEW_GAME);
-                        Thread.sleep(150); // Delay for command to be processed
-
-                        // Force send all digits immediately to setup the initial display
-                        forceScoreboardUpdate();
-                        Thread.sleep(150); // Delay between commands
-
-                        // Ensure time digits are set correctly with redundant send
-                        forceScoreboardUpdate();
-                        Thread.sleep(150);
-
-                        // Start the clock locally
-                        runOnUiThread(() -> {
-                            clockManager.startClock();
-                            tv_result.setText("New game started - Clock running in real-time");
-                        });
-
-                        // Then send start command to device
-                        sendCommandIfConnected(BLECommandUtil.COMMAND_START_CLOCK);
-                        Thread.sleep(100);
-
-                        // Force another update to make sure everything is in sync
-                        forceScoreboardUpdate();
-
-                    } catch (InterruptedException e) {
-                        Log.e(TAG, "Sleep interrupted", e);
-                        runOnUiThread(() -> tv_result.setText("Error during initialization: " + e.getMessage()));
-                    }
-                } else {
-                    // If no device connected, just start the clock locally
-                    runOnUiThread(() -> {
-                        clockManager.startClock();
-                        tv_result.setText("New game started - Clock running (no device connected)");
-                    });
-                }
-            }).start();
+            if (connected) {
+                // New game, then the initial digits, then start the clock on the device
+                sendCommandIfConnected(BLECommandUtil.CMD_NEW_GAME);
+                bleManager.sendTeamState(currentDeviceAddress);
+                forceScoreboardUpdate();
+                clockManager.startClock();
+                sendCommandIfConnected(BLECommandUtil.COMMAND_START_CLOCK);
+                tv_result.setText("New game started - Clock running in real-time");
+            } else {
+                // If no device connected, just start the clock locally
+                clockManager.startClock();
+                tv_result.setText("New game started - Clock running (no device connected)");
+            }
         });
         btnHorn.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_GAMETIME_SHOTCLOCK_HORN));
 
@@ -381,26 +347,26 @@ public class ControlPanelActivity extends AppCompatActivity
         });
         btnShotclock14.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_SHOTCLOCK_RESET_14));
         btnShotclock24.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_SHOTCLOCK_RESET_24));
-        btnArrowLeft.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_LEFT_ARROW));
-        btnArrowRight.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_RIGHT_ARROW));
+        btnArrowLeft.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_LEFT_ARROW));
+        btnArrowRight.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_RIGHT_ARROW));
 
         // Set click listeners for Team A buttons
-        btnTeamAScorePlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1));
-        btnTeamAScorePlus2.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_2));
-        btnTeamAScoreMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_MINUS_1));
-        btnTeamAFoulPlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_FOUL_PLUS_1));
-        btnTeamAFoulMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_FOUL_MINUS_1));
-        btnTeamATolPlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_TOL_PLUS_1));
-        btnTeamATolMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_A_TOL_MINUS_1));
+        btnTeamAScorePlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1));
+        btnTeamAScorePlus2.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_2));
+        btnTeamAScoreMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_SCORE_MINUS_1));
+        btnTeamAFoulPlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_FOUL_PLUS_1));
+        btnTeamAFoulMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_FOUL_MINUS_1));
+        btnTeamATolPlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_TOL_PLUS_1));
+        btnTeamATolMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_A_TOL_MINUS_1));
 
         // Set click listeners for Team B buttons
-        btnTeamBScorePlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_1));
-        btnTeamBScorePlus2.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_2));
-        btnTeamBScoreMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_MINUS_1));
-        btnTeamBFoulPlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_FOUL_PLUS_1));
-        btnTeamBFoulMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_FOUL_MINUS_1));
-        btnTeamBTolPlus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_TOL_PLUS_1));
-        btnTeamBTolMinus1.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_TEAM_B_TOL_MINUS_1));
+        btnTeamBScorePlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_1));
+        btnTeamBScorePlus2.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_2));
+        btnTeamBScoreMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_SCORE_MINUS_1));
+        btnTeamBFoulPlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_FOUL_PLUS_1));
+        btnTeamBFoulMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_FOUL_MINUS_1));
+        btnTeamBTolPlus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_TOL_PLUS_1));
+        btnTeamBTolMinus1.setOnClickListener(v -> sendTeamCommandIfConnected(BLECommandUtil.CMD_TEAM_B_TOL_MINUS_1));
 
         // Set click listener for null command
         btnNull.setOnClickListener(v -> sendCommandIfConnected(BLECommandUtil.CMD_NULL));
@@ -418,27 +384,32 @@ public class ControlPanelActivity extends AppCompatActivity
         }
     }
 
-    // UUIDs from your block code image
-    private static final UUID SERVICE_UUID = UUID.fromString("0000FFE0-0000-1000-8000-00805F9B34FB");
-    private static final UUID CHARACTERISTIC_UUID = UUID.fromString("0000FFE1-0000-1000-8000-00805F9B34FB");
+    // Team commands also update ScoreboardState, which boards with frame support get as absolute values
+    private void sendTeamCommandIfConnected(byte commandByte) {
+        if (bleManager != null && bleManager.isDeviceConnected(currentDeviceAddress)) {
+            if (bleManager.sendTeamCommand(currentDeviceAddress, commandByte)) {
+                tv_result.setText("Sent command: " + BLECommandUtil.getCommandDescription(commandByte));
+            } else {
+                tv_result.setText("Failed to send command");
+            }
+        } else {
+            tv_result.setText("Not connected to BLE device");
+        }
+    }
 
-    // Cache these to avoid repeated lookups for better real-time performance
-    private BluetoothGattService cachedService = null;
-    private BluetoothGattCharacteristic cachedCharacteristic = null;
-    private BluetoothGatt cachedGatt = null;
     private long lastStatusUpdateTime = 0; // To limit status updates for better UI performance
     private static final long STATUS_UPDATE_INTERVAL = 500; // Only update status text every 500ms
     private long lastSendTime = 0;
     private static final long MIN_SEND_INTERVAL = 200; // Increased interval to 200ms to reduce BLE traffic
-    private String lastSentDigits = ""; // Track last sent value to avoid duplicate sends
+
+    // Reused frame buffers, the queue copies the frame so nothing is allocated per send
+    private final byte[] digitFrame = new byte[8];
+    private final byte[] lastSentFrame = new byte[8];
+    private boolean hasSentFrame = false; // false forces the next frame out
+    private int lastSentFlags = 0;
 
     /**
-     * Send all individual digit values over BLE as a joined string in real-time
-     * This implements the approach shown in your BlocklyApp image with
-     * BluetoothLE2.WriteBytes with high-performance optimizations
-     */
-    /**
-     * Send all individual digit values over BLE as a joined string with
+     * Send all individual digit values over BLE as one joined-digit frame with
      * optimizations to prevent overloading the BLE device
      * This ensures the physical scoreboard is updated with the current time values
      * 
@@ -446,6 +417,7 @@ public class ControlPanelActivity extends AppCompatActivity
      */
     private boolean sendAllDigitsOverBLE() {
         long currentTime = System.currentTimeMillis();
+        boolean isForcedUpdate = !hasSentFrame;
 
         // Update our rate-limiting timestamp
         lastSendTime = currentTime;
@@ -455,104 +427,60 @@ public class ControlPanelActivity extends AppCompatActivity
             if (currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
                 tv_result.setText("Not connected to BLE device");
                 lastStatusUpdateTime = currentTime;
-                // Reset cache as connection changed
-                cachedCharacteristic = null;
-                cachedService = null;
-                cachedGatt = null;
             }
+            hasSentFrame = false;
             return false;
         }
 
         try {
-            // Get or use cached gatt
-            if (cachedGatt == null) {
-                cachedGatt = bleManager.getBluetoothGatt(currentDeviceAddress);
-                if (cachedGatt == null) {
-                    if (currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
-                        tv_result.setText("Device not connected properly");
-                        lastStatusUpdateTime = currentTime;
-                    }
-                    return false;
-                }
+            // The board runs the clock itself from the anchors BLEManager sends
+            if (bleManager.isDeviceClockActive()) {
+                hasSentFrame = true;
+                return true;
             }
 
-            // Get or use cached service
-            if (cachedService == null) {
-                cachedService = cachedGatt.getService(SERVICE_UUID);
-                if (cachedService == null) {
-                    if (currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
-                        tv_result.setText("Service not found");
-                        lastStatusUpdateTime = currentTime;
-                    }
-                    return false;
-                }
-            }
-
-            // Get or use cached characteristic
-            if (cachedCharacteristic == null) {
-                cachedCharacteristic = cachedService.getCharacteristic(CHARACTERISTIC_UUID);
-                if (cachedCharacteristic == null) {
-                    if (currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
-                        tv_result.setText("Characteristic not found");
-                        lastStatusUpdateTime = currentTime;
-                    }
-                    return false;
-                }
-            }
-
-            // Join all digit values into a compact string
-            // Add check for valid digit range to avoid sending invalid data
-            int safeMin1 = Math.min(Math.max(globalMin1, 0), 9);
-            int safeMin2 = Math.min(Math.max(globalMin2, 0), 9);
-            int safeSec1 = Math.min(Math.max(globalSec1, 0), 9);
-            int safeSec2 = Math.min(Math.max(globalSec2, 0), 9);
-            int safeMSec = Math.min(Math.max(globalMSec, 0), 9);
-            int safeShot1 = Math.min(Math.max(globalShot1, 0), 9);
-            int safeShot2 = Math.min(Math.max(globalShot2, 0), 9);
-            int safeHornx = Math.min(Math.max(globalHornx, 0), 1);
-
-            // Format for the scoreboard - ensure proper formatting for display
-            String joinedDigits = "" + safeMin1 + safeMin2 + safeSec1 +
-                    safeSec2 + safeMSec + safeShot1 +
-                    safeShot2 + safeHornx;
+            // Join all digit values into the frame, clamped to valid digits
+            digitFrame[0] = digitByte(globalMin1);
+            digitFrame[1] = digitByte(globalMin2);
+            digitFrame[2] = digitByte(globalSec1);
+            digitFrame[3] = digitByte(globalSec2);
+            digitFrame[4] = digitByte(globalMSec);
+            digitFrame[5] = digitByte(globalShot1);
+            digitFrame[6] = digitByte(globalShot2);
+            digitFrame[7] = (byte) (BLECommandUtil.COMMAND_DIGIT_0 + Math.min(Math.max(globalHornx, 0), 1));
+            int flags = frameFlags();
 
             // Skip if sending the same data (optimization) - but not during force updates
-            boolean isForcedUpdate = (lastSendTime == 0);
-            if (!isForcedUpdate && joinedDigits.equals(lastSentDigits)) {
+            if (!isForcedUpdate && flags == lastSentFlags && Arrays.equals(digitFrame, lastSentFrame)) {
                 return true; // No change needed, so consider it a success
             }
-            lastSentDigits = joinedDigits;
-
-            // Write the value to the characteristic
-            if (ActivityCompat.checkSelfPermission(this,
-                    android.Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-
-                // Convert to byte array - most efficient way
-                byte[] valueBytes = joinedDigits.getBytes();
-
-                // Set value and write in a single operation with additional error handling
-                cachedCharacteristic.setValue(valueBytes);
-                boolean success = cachedGatt.writeCharacteristic(cachedCharacteristic);
-
-                // Log every update in debug mode for verification
-                Log.d(TAG, "Sending to scoreboard: " + joinedDigits + " - Success: " + success);
+            System.arraycopy(digitFrame, 0, lastSentFrame, 0, digitFrame.length);
+            lastSentFlags = flags;
+            hasSentFrame = true;
+
+            // Queue the frame so it shares a write with any pending commands
+            boolean success;
+            if (bleManager.isBinaryFramesEnabled()) {
+                success = bleManager.sendScoreboardFrame(currentDeviceAddress, globalMin1 * 10 + globalMin2,
+                        globalSec1 * 10 + globalSec2, globalMSec, globalShot1 * 10 + globalShot2,
+                        clockManager.getShotTenths(), flags);
+            } else {
+                success = bleManager.sendClockFrame(currentDeviceAddress, digitFrame, globalHornx == 1);
+            }
 
-                // Only update status text occasionally to avoid UI freezing
-                if (isForcedUpdate || currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
-                    if (success) {
-                        tv_result.setText("Scoreboard showing: " + safeMin1 + safeMin2 + ":" +
-                                safeSec1 + safeSec2 + "." + safeMSec);
-                    } else {
-                        tv_result.setText("Sync failed, will retry");
-                    }
-                    lastStatusUpdateTime = currentTime;
+            // Only update status text occasionally to avoid UI freezing
+            if (isForcedUpdate || currentTime - lastStatusUpdateTime > STATUS_UPDATE_INTERVAL) {
+                if (success) {
+                    tv_result.setText("Scoreboard showing: " + (char) digitFrame[0] + (char) digitFrame[1]
+                            + ":" + (char) digitFrame[2] + (char) digitFrame[3] + "." + (char) digitFrame[4]);
+                } else {
+                    tv_result.setText("Sync failed, will retry");
                 }
-
-                // Return success status
-                return success;
+                lastStatusUpdateTime = currentTime;
             }
-            // If we get here, we don't have required permissions
-            return false;
+
+            // Return success status
+            return success;
         } catch (Exception e) {
             // Catch any unexpected exceptions to prevent app crashes
             Log.e(TAG, "Error in sendAllDigitsOverBLE: " + e.getMessage(), e);
@@ -570,10 +498,30 @@ public class ControlPanelActivity extends AppCompatActivity
         }
     }
 
+    // Horn, possession arrow and running state for the binary frame
+    private int frameFlags() {
+        int flags = ScoreboardState.getInstance().getArrowFlags();
+        if (globalHornx == 1) {
+            flags |= ScoreboardFrame.FLAG_HORN;
+        }
+        if (clockManager.getClockState() == ClockManager.STATE_RUNNING) {
+            flags |= ScoreboardFrame.FLAG_CLOCK_RUNNING;
+        }
+        if (clockManager.isShotClockRunning()) {
+            flags |= ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING;
+        }
+        return flags;
+    }
+
+    private static byte digitByte(int digit) {
+        return (byte) (BLECommandUtil.COMMAND_DIGIT_0 + Math.min(Math.max(digit, 0), 9));
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
             @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        BluetoothPermissions.invalidate();
         if (requestCode == REQUEST_BLUETOOTH_SCAN || requestCode == REQUEST_FINE_LOCATION) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
                 // Permission granted, proceed with connection
@@ -715,6 +663,7 @@ public class ControlPanelActivity extends AppCompatActivity
     @Override
     protected void onResume() {
         super.onResume();
+        BluetoothPermissions.invalidate();
 
         // Reload device address in case it was changed in settings
         loadDeviceAddress();
@@ -753,7 +702,7 @@ public class ControlPanelActivity extends AppCompatActivity
     // ClockManager.ClockUpdateListener Implementation
     @Override
     public void onClockUpdate(int minutes, int seconds, int milliseconds, int shotClock) {
-        // We're already on the main thread from the ClockManager handler
+        // ClockManager delivers updates on the main thread
 
         // Update our individual digit variables based on the clock values
         globalMin1 = minutes / 10;
@@ -782,7 +731,8 @@ public class ControlPanelActivity extends AppCompatActivity
                 // Log at reduced frequency
                 if (System.currentTimeMillis() - lastStatusUpdateTime >= STATUS_UPDATE_INTERVAL) {
                     Log.d("ClockSync", "Sent update: " + globalMin1 + globalMin2 + ":" +
-                            globalSec1 + globalSec2 + "." + globalMSec);
+                            globalSec1 + globalSec2 + "." + globalMSec + ", dropped frames: "
+                            + bleManager.getDroppedClockFrames(currentDeviceAddress));
                 }
             }
         }
@@ -793,15 +743,17 @@ public class ControlPanelActivity extends AppCompatActivity
      * Used when we need to ensure the scoreboard is synchronized at specific
      * moments.
      * This method also ensures that the last sent digits cache is cleared to force
-     * a fresh send with multiple retry attempts for reliability.
+     * a fresh send. The write queue keeps it in order behind any commands sent
+     * just before, and binary frames are resent until the board acknowledges
+     * them, so no delays or repeated sends are needed.
      */
     private void forceScoreboardUpdate() {
         // Reset the timing to allow immediate send
         lastSendTime = 0;
         lastStatusUpdateTime = 0;
 
-        // Clear the last sent digits to force a new update regardless of content
-        lastSentDigits = "";
+        // Clear the last sent frame to force a new update regardless of content
+        hasSentFrame = false;
 
         // Log that we're forcing an update
         Log.d(TAG, "Forcing scoreboard update with values: " +
@@ -813,30 +765,7 @@ public class ControlPanelActivity extends AppCompatActivity
             return; // This is void method, so plain return is correct here
         }
 
-        // For critical updates, send multiple times with small delays between to ensure
-        // reliability
-        int maxRetries = 3;
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                // Send all digits immediately - this will happen even if the values haven't
-                // changed
-                boolean success = sendAllDigitsOverBLE();
-
-                if (i < maxRetries - 1) {
-                    // Sleep between retries to allow the device to process
-                    Thread.sleep(70);
-                }
-
-                Log.d(TAG, "Force update attempt " + (i + 1) + "/" + maxRetries +
-                        " for values: " + globalMin1 + globalMin2 + ":" +
-                        globalSec1 + globalSec2 + "." + globalMSec);
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Sleep interrupted during forced update", e);
-                break;
-            } catch (Exception e) {
-                Log.e(TAG, "Error during forced update: " + e.getMessage(), e);
-            }
-        }
+        sendAllDigitsOverBLE();
     }
 
     @Override
@@ -846,19 +775,13 @@ public class ControlPanelActivity extends AppCompatActivity
 
     @Override
     public void onGameClockExpired() {
-        runOnUiThread(() -> {
-            globalHornx = 1; // Turn horn on
-            updateClockDisplay();
-            // Automatically send buzzer command to device
-            sendCommandIfConnected(BLECommandUtil.COMMAND_BUZZER);
-        });
+        // BLEManager already sounded the buzzer from the clock thread
+        globalHornx = 1; // Turn horn on
+        updateClockDisplay();
     }
 
     @Override
     public void onShotClockExpired() {
-        runOnUiThread(() -> {
-            // Handle shot clock expiration
-            sendCommandIfConnected(BLECommandUtil.COMMAND_SHOT_CLOCK_BUZZER);
-        });
+        // BLEManager already sounded the buzzer from the clock thread
     }
 }
@@ -21,6 +21,7 @@ import androidx.preference.PreferenceManager;
 
 import com.example.ble_scoreboard.utils.BLECommandUtil;
 import com.example.ble_scoreboard.utils.BLEManager;
+import com.example.ble_scoreboard.utils.BluetoothPermissions;
 
 @RequiresApi(api = Build.VERSION_CODES.S)
 public class HomeActivity extends AppCompatActivity implements BLEManager.ConnectionCallback {
@@ -178,6 +179,7 @@ public class HomeActivity extends AppCompatActivity implements BLEManager.Connec
     @Override
     protected void onResume() {
         super.onResume();
+        BluetoothPermissions.invalidate();
 
         // Check if device address is configured
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
@@ -307,6 +309,7 @@ public class HomeActivity extends AppCompatActivity implements BLEManager.Connec
     public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
             @NonNull int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        BluetoothPermissions.invalidate();
 
         if (requestCode == REQUEST_FINE_LOCATION || requestCode == REQUEST_BLUETOOTH_SCAN) {
             // If request is cancelled, the result arrays are empty.
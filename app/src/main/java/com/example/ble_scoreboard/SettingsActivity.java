@@ -20,6 +20,10 @@ public class SettingsActivity extends AppCompatActivity {
     private EditText etDeviceAddress2, etDeviceName2;
     private EditText etDeviceAddress3, etDeviceName3;
     private SwitchCompat switchAutoConnect;
+    private SwitchCompat switchBinaryFrames;
+    private SwitchCompat switchDeviceClock;
+    private SwitchCompat switchTimeSync;
+    private SwitchCompat switchReconcile;
     private Button btnSaveSettings, btnCancel;
 
     @Override
@@ -46,6 +50,10 @@ public class SettingsActivity extends AppCompatActivity {
         etDeviceName3 = findViewById(R.id.et_device_name_3);
 
         switchAutoConnect = findViewById(R.id.switch_auto_connect);
+        switchBinaryFrames = findViewById(R.id.switch_binary_frames);
+        switchDeviceClock = findViewById(R.id.switch_device_clock);
+        switchTimeSync = findViewById(R.id.switch_time_sync);
+        switchReconcile = findViewById(R.id.switch_reconcile);
 
         btnSaveSettings = findViewById(R.id.btn_save_settings);
         btnCancel = findViewById(R.id.btn_cancel);
@@ -68,6 +76,10 @@ public class SettingsActivity extends AppCompatActivity {
 
         // Load other settings
         switchAutoConnect.setChecked(prefs.getBoolean("autoConnect", false));
+        switchBinaryFrames.setChecked(prefs.getBoolean("binaryFrames", true));
+        switchDeviceClock.setChecked(prefs.getBoolean("deviceClock", false));
+        switchTimeSync.setChecked(prefs.getBoolean("timeSync", false));
+        switchReconcile.setChecked(prefs.getBoolean("reconcile", false));
     }
 
     private void setupClickListeners() {
@@ -96,6 +108,10 @@ public class SettingsActivity extends AppCompatActivity {
 
         // Save other settings
         editor.putBoolean("autoConnect", switchAutoConnect.isChecked());
+        editor.putBoolean("binaryFrames", switchBinaryFrames.isChecked());
+        editor.putBoolean("deviceClock", switchDeviceClock.isChecked());
+        editor.putBoolean("timeSync", switchTimeSync.isChecked());
+        editor.putBoolean("reconcile", switchReconcile.isChecked());
 
         // Apply changes
         editor.apply();
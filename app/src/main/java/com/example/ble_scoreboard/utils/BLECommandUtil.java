@@ -4,11 +4,11 @@ import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCharacteristic;
 import android.bluetooth.BluetoothGattService;
 import android.content.Context;
-import android.content.pm.PackageManager;
 import android.widget.TextView;
-import androidx.core.content.ContextCompat;
 
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Utility class to handle BLE scoreboard commands
@@ -19,20 +19,20 @@ public class BLECommandUtil {
     private static final UUID HM10_SERVICE_UUID = UUID.fromString("0000ffe0-0000-1000-8000-00805f9b34fb");
     private static final UUID HM10_CHARACTERISTIC_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
 
-    // Command constants
-    public static final byte CMD_NULL = '-'; // -: null (changed from '0')
-    public static final byte CMD_GAMETIME_SHOTCLOCK_HORN = '_'; // _: gametime Shotclock Horn
-    public static final byte CMD_SHOTCLOCK_RESET_14 = 'q'; // q: shotclock reset to 14
-    public static final byte CMD_SHOTCLOCK_RESET_24 = 'r'; // r: shotclock reset to 24
-    public static final byte CMD_NEW_GAME = 'v'; // v: new game
+    // Command constants, defined by the ScoreboardCommand table
+    public static final byte CMD_NULL = ScoreboardCommand.NULL.getCode();
+    public static final byte CMD_GAMETIME_SHOTCLOCK_HORN = ScoreboardCommand.HORN.getCode();
+    public static final byte CMD_SHOTCLOCK_RESET_14 = ScoreboardCommand.SHOT_CLOCK_RESET_14.getCode();
+    public static final byte CMD_SHOTCLOCK_RESET_24 = ScoreboardCommand.SHOT_CLOCK_RESET_24.getCode();
+    public static final byte CMD_NEW_GAME = ScoreboardCommand.NEW_GAME.getCode();
 
     // Clock commands
-    public static final byte COMMAND_START_CLOCK = 's'; // s: start clock
-    public static final byte COMMAND_STOP_CLOCK = 't'; // t: stop clock
-    public static final byte COMMAND_RESET_CLOCK = 'u'; // u: reset clock
-    public static final byte COMMAND_START_SHOT_CLOCK = 'x'; // x: start shot clock
-    public static final byte COMMAND_STOP_SHOT_CLOCK = 'y'; // y: stop shot clock
-    public static final byte COMMAND_RESET_SHOT_CLOCK = 'z'; // z: reset shot clock
+    public static final byte COMMAND_START_CLOCK = ScoreboardCommand.START_CLOCK.getCode();
+    public static final byte COMMAND_STOP_CLOCK = ScoreboardCommand.STOP_CLOCK.getCode();
+    public static final byte COMMAND_RESET_CLOCK = ScoreboardCommand.RESET_CLOCK.getCode();
+    public static final byte COMMAND_START_SHOT_CLOCK = ScoreboardCommand.START_SHOT_CLOCK.getCode();
+    public static final byte COMMAND_STOP_SHOT_CLOCK = ScoreboardCommand.STOP_SHOT_CLOCK.getCode();
+    public static final byte COMMAND_RESET_SHOT_CLOCK = ScoreboardCommand.RESET_SHOT_CLOCK.getCode();
     // Reusing existing constants for shot clock
     public static final byte COMMAND_SHOT_CLOCK_14 = CMD_SHOTCLOCK_RESET_14; // q: set shot clock to 14
     public static final byte COMMAND_SHOT_CLOCK_24 = CMD_SHOTCLOCK_RESET_24; // r: set shot clock to 24
@@ -42,53 +42,132 @@ public class BLECommandUtil {
                                                                                       // game buzzer)
 
     // Clock digit commands - digits 0-9 are sent as '0'-'9' characters
-    public static final byte COMMAND_DIGIT_0 = '0'; // Digit 0
-    public static final byte COMMAND_DIGIT_1 = '1'; // Digit 1
-    public static final byte COMMAND_DIGIT_2 = '2'; // Digit 2
-    public static final byte COMMAND_DIGIT_3 = '3'; // Digit 3
-    public static final byte COMMAND_DIGIT_4 = '4'; // Digit 4
-    public static final byte COMMAND_DIGIT_5 = '5'; // Digit 5
-    public static final byte COMMAND_DIGIT_6 = '6'; // Digit 6
-    public static final byte COMMAND_DIGIT_7 = '7'; // Digit 7
-    public static final byte COMMAND_DIGIT_8 = '8'; // Digit 8
-    public static final byte COMMAND_DIGIT_9 = '9'; // Digit 9
+    public static final byte COMMAND_DIGIT_0 = ScoreboardCommand.DIGIT_0.getCode();
+    public static final byte COMMAND_DIGIT_1 = ScoreboardCommand.DIGIT_1.getCode();
+    public static final byte COMMAND_DIGIT_2 = ScoreboardCommand.DIGIT_2.getCode();
+    public static final byte COMMAND_DIGIT_3 = ScoreboardCommand.DIGIT_3.getCode();
+    public static final byte COMMAND_DIGIT_4 = ScoreboardCommand.DIGIT_4.getCode();
+    public static final byte COMMAND_DIGIT_5 = ScoreboardCommand.DIGIT_5.getCode();
+    public static final byte COMMAND_DIGIT_6 = ScoreboardCommand.DIGIT_6.getCode();
+    public static final byte COMMAND_DIGIT_7 = ScoreboardCommand.DIGIT_7.getCode();
+    public static final byte COMMAND_DIGIT_8 = ScoreboardCommand.DIGIT_8.getCode();
+    public static final byte COMMAND_DIGIT_9 = ScoreboardCommand.DIGIT_9.getCode();
 
     // Clock position commands - where to place the digits
-    public static final byte COMMAND_CLOCK_MIN1_POS = 'M'; // First minute digit position
-    public static final byte COMMAND_CLOCK_MIN2_POS = 'N'; // Second minute digit position
-    public static final byte COMMAND_CLOCK_SEC1_POS = 'S'; // First second digit position
-    public static final byte COMMAND_CLOCK_SEC2_POS = 'T'; // Second second digit position
+    public static final byte COMMAND_CLOCK_MIN1_POS = ScoreboardCommand.CLOCK_MIN1_POS.getCode();
+    public static final byte COMMAND_CLOCK_MIN2_POS = ScoreboardCommand.CLOCK_MIN2_POS.getCode();
+    public static final byte COMMAND_CLOCK_SEC1_POS = ScoreboardCommand.CLOCK_SEC1_POS.getCode();
+    public static final byte COMMAND_CLOCK_SEC2_POS = ScoreboardCommand.CLOCK_SEC2_POS.getCode();
 
     // Team A commands
-    public static final byte CMD_TEAM_A_SCORE_PLUS_1 = 'j'; // j: team a score +1
-    public static final byte CMD_TEAM_A_SCORE_PLUS_2 = 'k'; // k: team a score +2
-    public static final byte CMD_TEAM_A_SCORE_MINUS_1 = 'm'; // l: team a score -1
-    public static final byte CMD_TEAM_A_FOUL_PLUS_1 = 'l'; // m: team a foul +1 (was incorrectly labeled as -1)
-    public static final byte CMD_TEAM_A_FOUL_MINUS_1 = 'C'; // C: team a foul -1 (was incorrectly labeled as +1)
-    public static final byte CMD_TEAM_A_TOL_MINUS_1 = 'n'; // n: team a TOL -1
-    public static final byte CMD_TEAM_A_TOL_PLUS_1 = 'D'; // D: team a TOL +1
+    public static final byte CMD_TEAM_A_SCORE_PLUS_1 = ScoreboardCommand.TEAM_A_SCORE_PLUS_1.getCode();
+    public static final byte CMD_TEAM_A_SCORE_PLUS_2 = ScoreboardCommand.TEAM_A_SCORE_PLUS_2.getCode();
+    public static final byte CMD_TEAM_A_SCORE_MINUS_1 = ScoreboardCommand.TEAM_A_SCORE_MINUS_1.getCode();
+    public static final byte CMD_TEAM_A_FOUL_PLUS_1 = ScoreboardCommand.TEAM_A_FOUL_PLUS_1.getCode();
+    public static final byte CMD_TEAM_A_FOUL_MINUS_1 = ScoreboardCommand.TEAM_A_FOUL_MINUS_1.getCode();
+    public static final byte CMD_TEAM_A_TOL_MINUS_1 = ScoreboardCommand.TEAM_A_TOL_MINUS_1.getCode();
+    public static final byte CMD_TEAM_A_TOL_PLUS_1 = ScoreboardCommand.TEAM_A_TOL_PLUS_1.getCode();
 
     // Team B commands
-    public static final byte CMD_TEAM_B_SCORE_PLUS_1 = 'a'; // a: team b score +1
-    public static final byte CMD_TEAM_B_SCORE_PLUS_2 = 'b'; // b: team b score +2
-    public static final byte CMD_TEAM_B_SCORE_MINUS_1 = 'd'; // d: team b score -1
-    public static final byte CMD_TEAM_B_FOUL_PLUS_1 = 'c'; // c: team b foul +1
-    public static final byte CMD_TEAM_B_FOUL_MINUS_1 = 'A'; // A: team b foul -1
-    public static final byte CMD_TEAM_B_TOL_MINUS_1 = 'e'; // e: team b TOL -1
-    public static final byte CMD_TEAM_B_TOL_PLUS_1 = 'B'; // B: team b TOL +1
+    public static final byte CMD_TEAM_B_SCORE_PLUS_1 = ScoreboardCommand.TEAM_B_SCORE_PLUS_1.getCode();
+    public static final byte CMD_TEAM_B_SCORE_PLUS_2 = ScoreboardCommand.TEAM_B_SCORE_PLUS_2.getCode();
+    public static final byte CMD_TEAM_B_SCORE_MINUS_1 = ScoreboardCommand.TEAM_B_SCORE_MINUS_1.getCode();
+    public static final byte CMD_TEAM_B_FOUL_PLUS_1 = ScoreboardCommand.TEAM_B_FOUL_PLUS_1.getCode();
+    public static final byte CMD_TEAM_B_FOUL_MINUS_1 = ScoreboardCommand.TEAM_B_FOUL_MINUS_1.getCode();
+    public static final byte CMD_TEAM_B_TOL_MINUS_1 = ScoreboardCommand.TEAM_B_TOL_MINUS_1.getCode();
+    public static final byte CMD_TEAM_B_TOL_PLUS_1 = ScoreboardCommand.TEAM_B_TOL_PLUS_1.getCode();
 
     // Arrow commands
-    public static final byte CMD_RIGHT_ARROW = 'W'; // V: right arrow
-    public static final byte CMD_LEFT_ARROW = 'V'; // W: left arrow
+    public static final byte CMD_RIGHT_ARROW = ScoreboardCommand.RIGHT_ARROW.getCode();
+    public static final byte CMD_LEFT_ARROW = ScoreboardCommand.LEFT_ARROW.getCode();
+
+    // One preallocated single-byte array per command value. Shared and never
+    // written to, so sending a command doesn't allocate.
+    private static final byte[][] COMMAND_BYTES = new byte[256][];
+
+    static {
+        for (int i = 0; i < COMMAND_BYTES.length; i++) {
+            COMMAND_BYTES[i] = new byte[] { (byte) i };
+        }
+    }
 
     private final BluetoothGatt bluetoothGatt;
     private final Context context;
     private final TextView statusTextView;
+    private final BluetoothGattCharacteristic characteristic; // resolved once at discovery
+    private int writeType = -1;
+    private GattCommandQueue commandQueue;
 
+    // Only changed clock digits are sent; a new util per connection starts with a full frame
+    private final ClockFrameEncoder clockEncoder = new ClockFrameEncoder();
+    private final byte[] clockFrame = new byte[ClockFrameEncoder.MAX_FRAME_LENGTH];
+
+    // Binary scoreboard frames, numbered per device
+    private final byte[] scoreboardFrame = new byte[ScoreboardFrame.LENGTH];
+    private final byte[] setFieldFrame = new byte[ScoreboardFrame.SET_FIELD_LENGTH];
+    private int frameSequence = 0;
+    private FrameAckTracker ackTracker;
+
+    /**
+     * Create the command utility for a connected device. Should be created after
+     * service discovery, the HM-10 characteristic is looked up once here.
+     */
     public BLECommandUtil(BluetoothGatt bluetoothGatt, Context context, TextView statusTextView) {
         this.bluetoothGatt = bluetoothGatt;
         this.context = context;
         this.statusTextView = statusTextView;
+        this.characteristic = resolveCharacteristic(bluetoothGatt);
+    }
+
+    /**
+     * Get the preallocated array holding a single command byte. The array is
+     * shared and must not be modified.
+     *
+     * @param commandByte The command byte
+     * @return A one-byte array containing the command
+     */
+    static byte[] commandBytes(byte commandByte) {
+        return COMMAND_BYTES[commandByte & 0xFF];
+    }
+
+    /**
+     * Route all writes through a serialized queue instead of writing directly
+     *
+     * @param commandQueue The queue for this device
+     */
+    public void setCommandQueue(GattCommandQueue commandQueue) {
+        this.commandQueue = commandQueue;
+        if (commandQueue != null) {
+            // The board may have missed digits, resend all of them next time
+            commandQueue.setFailureListener(clockEncoder::invalidate);
+        }
+    }
+
+    public GattCommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    /**
+     * Track binary frames until the board acknowledges them
+     *
+     * @param ackTracker The tracker for this device, null to send frames once
+     */
+    public void setAckTracker(FrameAckTracker ackTracker) {
+        this.ackTracker = ackTracker;
+    }
+
+    public FrameAckTracker getAckTracker() {
+        return ackTracker;
+    }
+
+    /**
+     * Stop retransmitting frames, called when the link goes away
+     */
+    public void release() {
+        FrameAckTracker tracker = ackTracker;
+        if (tracker != null) {
+            tracker.reset();
+        }
     }
 
     /**
@@ -98,24 +177,156 @@ public class BLECommandUtil {
      * @return true if command was sent, false otherwise
      */
     public boolean sendCommand(byte commandByte) {
-        if (bluetoothGatt == null) {
-            updateStatus("Not connected to a BLE device.");
-            return false;
+        if (resetsClockDigits(commandByte)) {
+            clockEncoder.invalidate();
         }
+        if (commandQueue != null) {
+            commandQueue.offer(commandBytes(commandByte), 1, isCriticalCommand(commandByte), laneFor(commandByte));
+            return true;
+        }
+        return writeValue(commandBytes(commandByte), true);
+    }
 
-        BluetoothGattService service = bluetoothGatt.getService(HM10_SERVICE_UUID);
-        if (service == null) {
-            updateStatus("Service not found.");
-            return false;
+    /**
+     * Send a multi-byte frame to the BLE device. The frame is copied when it is
+     * queued, so the caller may reuse the array.
+     *
+     * @param frame The bytes to send
+     * @return true if the frame was sent or queued
+     */
+    public boolean sendFrame(byte[] frame) {
+        if (commandQueue != null) {
+            commandQueue.offer(frame, false);
+            return true;
+        }
+        return writeValue(frame, true);
+    }
+
+    /**
+     * Send a frame carrying the full clock state. It goes behind horn and
+     * operator writes, and replaces a clock frame that hasn't been sent yet.
+     * While the clock runs the frame is dropped if it can't be sent within one
+     * frame period.
+     *
+     * @param frame The bytes to send, copied
+     * @param horn  true if the frame sounds the horn, which must not be replaced
+     * @return true if the frame was sent or queued
+     */
+    public boolean sendClockFrame(byte[] frame, boolean horn) {
+        return sendClockFrame(frame, horn, isClockRunning(), GattCommandQueue.NO_TAG);
+    }
+
+    private boolean sendClockFrame(byte[] frame, boolean horn, boolean expires, int tag) {
+        if (commandQueue != null) {
+            if (horn) {
+                commandQueue.offer(frame, frame.length, true, GattCommandQueue.LANE_HORN, tag);
+            } else {
+                commandQueue.offerClockFrame(frame, frame.length, expires, tag);
+            }
+            return true;
+        }
+        return writeValue(frame, true);
+    }
+
+    // Frames of a running clock, game or shot clock, are superseded by the next tick
+    private static boolean isClockRunning() {
+        ClockManager clockManager = ClockManager.getInstance();
+        return clockManager.getClockState() == ClockManager.STATE_RUNNING || clockManager.isShotClockRunning();
+    }
+
+    /**
+     * Send command to BLE device and get notified when the write completes
+     *
+     * @param commandByte The command byte to send
+     * @return Future completed with the write result
+     */
+    public CompletableFuture<Boolean> sendCommandAsync(byte commandByte) {
+        if (resetsClockDigits(commandByte)) {
+            clockEncoder.invalidate();
         }
+        if (commandQueue != null) {
+            return commandQueue.enqueue(commandBytes(commandByte), isCriticalCommand(commandByte),
+                    laneFor(commandByte));
+        }
+        return CompletableFuture.completedFuture(writeValue(commandBytes(commandByte), true));
+    }
+
+    /**
+     * Commands that must not be lost and are always sent as acknowledged writes
+     *
+     * @param commandByte The command byte
+     * @return true if the command is critical
+     */
+    public static boolean isCriticalCommand(byte commandByte) {
+        ScoreboardCommand command = ScoreboardCommand.fromCode(commandByte);
+        return command != null && command.isCritical();
+    }
+
+    /**
+     * Queue lane for a command: the horn goes ahead of everything else
+     *
+     * @param commandByte The command byte
+     * @return One of the GattCommandQueue.LANE_* constants
+     */
+    public static int laneFor(byte commandByte) {
+        ScoreboardCommand command = ScoreboardCommand.fromCode(commandByte);
+        return command != null ? command.getLane() : GattCommandQueue.LANE_OPERATOR;
+    }
+
+    /**
+     * Commands after which the board shows clock digits we didn't send
+     *
+     * @param commandByte The command byte
+     * @return true if the command resets the clock display
+     */
+    public static boolean resetsClockDigits(byte commandByte) {
+        ScoreboardCommand command = ScoreboardCommand.fromCode(commandByte);
+        return command != null && command.resetsClockDigits();
+    }
+
+    /**
+     * Check if the HM-10 characteristic accepts write-without-response
+     *
+     * @return true if WRITE_NO_RESPONSE is supported
+     */
+    public boolean supportsWriteWithoutResponse() {
+        return characteristic != null && (characteristic.getProperties()
+                & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0;
+    }
 
-        BluetoothGattCharacteristic characteristic = service.getCharacteristic(HM10_CHARACTERISTIC_UUID);
+    /**
+     * Write raw bytes to the HM-10 characteristic, bypassing the queue
+     *
+     * @param value        The bytes to write
+     * @param withResponse true for an acknowledged write, false for
+     *                     write-without-response
+     * @return true if the write was started
+     */
+    boolean writeValue(byte[] value, boolean withResponse) {
+        if (bluetoothGatt == null) {
+            updateStatus("Not connected to a BLE device.");
+            return false;
+        }
         if (characteristic == null) {
             updateStatus("Characteristic not found.");
             return false;
         }
 
-        return writeByteToCharacteristic(characteristic, commandByte);
+        int type = withResponse ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+        if (type != writeType) {
+            characteristic.setWriteType(type);
+            writeType = type;
+        }
+        return writeToCharacteristic(characteristic, value);
+    }
+
+    private static BluetoothGattCharacteristic resolveCharacteristic(BluetoothGatt gatt) {
+        if (gatt == null) {
+            return null;
+        }
+        BluetoothGattService service = gatt.getService(HM10_SERVICE_UUID);
+        return service != null ? service.getCharacteristic(HM10_CHARACTERISTIC_UUID) : null;
     }
 
     /**
@@ -137,138 +348,179 @@ public class BLECommandUtil {
      * @return Description of the command
      */
     public static String getCommandDescription(byte commandByte) {
-        switch (commandByte) {
-            case CMD_NULL:
-                return "Null";
-            case CMD_GAMETIME_SHOTCLOCK_HORN:
-                return "Gametime/Shotclock Horn";
-            case CMD_SHOTCLOCK_RESET_14:
-                return "Shotclock Reset to 14";
-            case CMD_SHOTCLOCK_RESET_24:
-                return "Shotclock Reset to 24";
-            case CMD_NEW_GAME:
-                return "New Game";
-            case CMD_TEAM_A_SCORE_PLUS_1:
-                return "Team A Score +1";
-            case CMD_TEAM_A_SCORE_PLUS_2:
-                return "Team A Score +2";
-            case CMD_TEAM_A_SCORE_MINUS_1:
-                return "Team A Score -1";
-            case CMD_TEAM_A_FOUL_MINUS_1:
-                return "Team A Foul -1";
-            case CMD_TEAM_A_FOUL_PLUS_1:
-                return "Team A Foul +1";
-            case CMD_TEAM_A_TOL_MINUS_1:
-                return "Team A TOL -1";
-            case CMD_TEAM_A_TOL_PLUS_1:
-                return "Team A TOL +1";
-            case CMD_TEAM_B_SCORE_PLUS_1:
-                return "Team B Score +1";
-            case CMD_TEAM_B_SCORE_PLUS_2:
-                return "Team B Score +2";
-            case CMD_TEAM_B_SCORE_MINUS_1:
-                return "Team B Score -1";
-            case CMD_TEAM_B_FOUL_PLUS_1:
-                return "Team B Foul +1";
-            case CMD_TEAM_B_FOUL_MINUS_1:
-                return "Team B Foul -1";
-            case CMD_TEAM_B_TOL_MINUS_1:
-                return "Team B TOL -1";
-            case CMD_TEAM_B_TOL_PLUS_1:
-                return "Team B TOL +1";
-            case CMD_RIGHT_ARROW:
-                return "Right Arrow";
-            case CMD_LEFT_ARROW:
-                return "Left Arrow";
-            // Clock commands
-            case COMMAND_START_CLOCK:
-                return "Start Clock";
-            case COMMAND_STOP_CLOCK:
-                return "Stop Clock";
-            case COMMAND_RESET_CLOCK:
-                return "Reset Clock";
-            case COMMAND_START_SHOT_CLOCK:
-                return "Start Shot Clock";
-            case COMMAND_STOP_SHOT_CLOCK:
-                return "Stop Shot Clock";
-            case COMMAND_RESET_SHOT_CLOCK:
-                return "Reset Shot Clock";
-            // Clock digit commands
-            case COMMAND_DIGIT_0:
-                return "Digit 0";
-            case COMMAND_DIGIT_1:
-                return "Digit 1";
-            case COMMAND_DIGIT_2:
-                return "Digit 2";
-            case COMMAND_DIGIT_3:
-                return "Digit 3";
-            case COMMAND_DIGIT_4:
-                return "Digit 4";
-            case COMMAND_DIGIT_5:
-                return "Digit 5";
-            case COMMAND_DIGIT_6:
-                return "Digit 6";
-            case COMMAND_DIGIT_7:
-                return "Digit 7";
-            case COMMAND_DIGIT_8:
-                return "Digit 8";
-            case COMMAND_DIGIT_9:
-                return "Digit 9";
-            // Clock position commands
-            case COMMAND_CLOCK_MIN1_POS:
-                return "First Minute Position";
-            case COMMAND_CLOCK_MIN2_POS:
-                return "Second Minute Position";
-            case COMMAND_CLOCK_SEC1_POS:
-                return "First Second Position";
-            case COMMAND_CLOCK_SEC2_POS:
-                return "Second Second Position";
-            default:
-                return "Unknown Command: " + commandByte;
-        }
+        return ScoreboardCommand.describe(commandByte);
     }
 
     /**
-     * Sends a time update to the BLE device with individual digit commands
+     * Sends a time update to the BLE device with individual digit commands.
+     * Only the position/digit pairs that changed since the last update are
+     * sent, all of them after a failed write or a reconnect.
      * 
      * @param minutes Minutes to display (0-99)
      * @param seconds Seconds to display (0-59)
-     * @return true if all commands were sent successfully
+     * @return true if the update was sent or nothing had changed
+     */
+    public synchronized boolean sendTimeUpdate(int minutes, int seconds) {
+        if (commandQueue != null && commandQueue.hasPending(GattCommandQueue.LANE_CLOCK)) {
+            // The unsent update is replaced below, so this one must carry every digit
+            clockEncoder.invalidate();
+        }
+        int length = clockEncoder.encode(minutes, seconds, clockFrame);
+        if (length == 0) {
+            return true;
+        }
+
+        boolean result;
+        if (commandQueue != null) {
+            commandQueue.offerClockFrame(clockFrame, length, isClockRunning());
+            result = true;
+        } else {
+            result = writeValue(Arrays.copyOf(clockFrame, length), true);
+        }
+        if (!result) {
+            clockEncoder.invalidate();
+        }
+
+        if (statusTextView != null) {
+            updateStatus("Time update: " + minutes / 10 + minutes % 10 + ":" + seconds / 10 + seconds % 10);
+        }
+        return result;
+    }
+
+    /**
+     * Send the full clock state as one binary scoreboard frame. The frame is
+     * resent if the board doesn't acknowledge it.
+     *
+     * @param minutes    Game clock minutes (0-99)
+     * @param seconds    Game clock seconds (0-59)
+     * @param tenths     Game clock tenths, or ScoreboardFrame.TENTHS_NONE
+     * @param shotClock  Shot clock seconds (0-99)
+     * @param shotTenths Shot clock tenths, or ScoreboardFrame.TENTHS_NONE
+     * @param flags      Combination of the ScoreboardFrame.FLAG_* constants
+     * @return true if the frame was sent or queued
+     */
+    public synchronized boolean sendScoreboardFrame(int minutes, int seconds, int tenths, int shotClock,
+            int shotTenths, int flags) {
+        ScoreboardFrame.encodeClock(scoreboardFrame, 0, frameSequence, minutes, seconds, tenths, shotClock,
+                shotTenths, flags);
+        return sendSequencedFrame();
+    }
+
+    /**
+     * Send a binary frame built elsewhere, such as a reconnect snapshot, under
+     * this device's sequence numbering
+     *
+     * @param frame An encoded {@link ScoreboardFrame}, copied
+     * @return true if the frame was sent or queued
      */
-    public boolean sendTimeUpdate(int minutes, int seconds) {
-        // Break down the time into individual digits
-        int min1 = minutes / 10;
-        int min2 = minutes % 10;
-        int sec1 = seconds / 10;
-        int sec2 = seconds % 10;
+    public synchronized boolean sendScoreboardFrame(byte[] frame) {
+        System.arraycopy(frame, 0, scoreboardFrame, 0, ScoreboardFrame.LENGTH);
+        ScoreboardFrame.setSequence(scoreboardFrame, 0, frameSequence);
+        return sendSequencedFrame();
+    }
+
+    // Send the frame in scoreboardFrame and track it until acknowledged.
+    // A streamed running frame expires, the next tick replaces it. An anchor
+    // for a board running the clock itself doesn't, nothing would follow it.
+    private boolean sendSequencedFrame() {
+        int flags = scoreboardFrame[7];
+        boolean expires = (flags & (ScoreboardFrame.FLAG_CLOCK_RUNNING | ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING)) != 0
+                && (flags & ScoreboardFrame.FLAG_DEVICE_CLOCK) == 0;
+        boolean sent = sendClockFrame(scoreboardFrame, (flags & ScoreboardFrame.FLAG_HORN) != 0, expires,
+                FrameAckTracker.tag(FrameAckTracker.SLOT_CLOCK, frameSequence));
+        if (sent && ackTracker != null) {
+            ackTracker.onFrameSent(FrameAckTracker.SLOT_CLOCK, scoreboardFrame, ScoreboardFrame.LENGTH,
+                    frameSequence);
+        }
+        frameSequence = (frameSequence + 1) & 0xFF;
+        return sent;
+    }
 
-        // Send each position and digit command
-        boolean result = true;
+    /**
+     * Set one team state field to an absolute value. Unlike the relative
+     * commands this is safe to repeat, so it is resent until acknowledged.
+     *
+     * @param field One of the ScoreboardFrame.FIELD_* constants
+     * @param value The value to show
+     * @return true if the frame was sent or queued
+     */
+    public synchronized boolean sendSetField(int field, int value) {
+        ScoreboardFrame.encodeSetField(setFieldFrame, 0, frameSequence, field, value);
+        int slot = FrameAckTracker.fieldSlot(field);
+        boolean sent;
+        if (commandQueue != null) {
+            commandQueue.offer(setFieldFrame, ScoreboardFrame.SET_FIELD_LENGTH, false, GattCommandQueue.LANE_OPERATOR,
+                    FrameAckTracker.tag(slot, frameSequence));
+            sent = true;
+        } else {
+            sent = writeValue(setFieldFrame, true);
+        }
+        if (sent && ackTracker != null) {
+            ackTracker.onFrameSent(slot, setFieldFrame, ScoreboardFrame.SET_FIELD_LENGTH, frameSequence);
+        }
+        frameSequence = (frameSequence + 1) & 0xFF;
+        return sent;
+    }
 
-        // Minutes first digit
-        result &= sendCommand(COMMAND_CLOCK_MIN1_POS);
-        result &= sendCommand((byte) (COMMAND_DIGIT_0 + min1));
+    /**
+     * Send every team state field, used after a new game or a reconnect
+     *
+     * @param state The state to show
+     * @return true if all frames were sent or queued
+     */
+    public synchronized boolean sendTeamState(ScoreboardState state) {
+        boolean sent = true;
+        for (int field = 0; field < ScoreboardFrame.FIELD_COUNT; field++) {
+            sent &= sendSetField(field, state.get(field));
+        }
+        return sent;
+    }
 
-        // Minutes second digit
-        result &= sendCommand(COMMAND_CLOCK_MIN2_POS);
-        result &= sendCommand((byte) (COMMAND_DIGIT_0 + min2));
+    /**
+     * Force the next time update to carry every digit
+     */
+    public void invalidateClockState() {
+        clockEncoder.invalidate();
+    }
 
-        // Seconds first digit
-        result &= sendCommand(COMMAND_CLOCK_SEC1_POS);
-        result &= sendCommand((byte) (COMMAND_DIGIT_0 + sec1));
+    /**
+     * Build the joined-digit frame (min1 min2 sec1 sec2 tenths shot1 shot2 horn)
+     * as ASCII bytes
+     *
+     * @return The 8-byte frame
+     */
+    public static byte[] buildDigitFrame(int min1, int min2, int sec1, int sec2, int tenths, int shot1,
+            int shot2, int horn) {
+        return new byte[] {
+                (byte) (COMMAND_DIGIT_0 + clampDigit(min1)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(min2)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(sec1)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(sec2)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(tenths)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(shot1)),
+                (byte) (COMMAND_DIGIT_0 + clampDigit(shot2)),
+                (byte) (COMMAND_DIGIT_0 + Math.min(Math.max(horn, 0), 1))
+        };
+    }
 
-        // Seconds second digit
-        result &= sendCommand(COMMAND_CLOCK_SEC2_POS);
-        result &= sendCommand((byte) (COMMAND_DIGIT_0 + sec2));
+    /**
+     * Build the joined-digit frame from the current clock values
+     *
+     * @param clockManager The clock to read
+     * @return The 8-byte frame
+     */
+    public static byte[] buildDigitFrame(ClockManager clockManager) {
+        return buildDigitFrame(clockManager.getMin1(), clockManager.getMin2(), clockManager.getSec1(),
+                clockManager.getSec2(), clockManager.getMSec(), clockManager.getShot1(), clockManager.getShot2(), 0);
+    }
 
-        updateStatus("Time update: " + min1 + min2 + ":" + sec1 + sec2);
-        return result;
+    private static int clampDigit(int digit) {
+        return Math.min(Math.max(digit, 0), 9);
     }
 
-    private boolean writeByteToCharacteristic(BluetoothGattCharacteristic characteristic, byte value) {
-        characteristic.setValue(new byte[] { value });
-        if (ContextCompat.checkSelfPermission(context,
-                android.Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
+    private boolean writeToCharacteristic(BluetoothGattCharacteristic characteristic, byte[] value) {
+        characteristic.setValue(value);
+        if (BluetoothPermissions.hasConnectPermission(context)) {
             return bluetoothGatt.writeCharacteristic(characteristic);
         } else {
             updateStatus("Bluetooth connect permission required.");
@@ -6,16 +6,23 @@ import android.bluetooth.BluetoothDevice;
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattCallback;
 import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
 import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
 import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
 import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
 import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
 import android.content.Context;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.ParcelUuid;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -25,8 +32,13 @@ import androidx.core.content.ContextCompat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Singleton class to manage BLE connections across the application
@@ -37,8 +49,11 @@ public class BLEManager {
     // HM-10 UUIDs
     private static final UUID HM10_SERVICE_UUID = UUID.fromString("0000ffe0-0000-1000-8000-00805f9b34fb");
     private static final UUID HM10_CHARACTERISTIC_UUID = UUID.fromString("0000ffe1-0000-1000-8000-00805f9b34fb");
+    private static final UUID CCCD_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
 
     private static final int SCAN_TIMEOUT = 10000; // 10 seconds timeout for scanning
+    private static final int PREFERRED_MTU = 247; // Fits a full packed command burst in one write
+    private static final long SETUP_STEP_TIMEOUT = 2000; // ms, some stacks never answer an MTU request
 
     // Singleton instance
     private static BLEManager instance;
@@ -46,16 +61,249 @@ public class BLEManager {
     // Bluetooth components
     private BluetoothAdapter bluetoothAdapter;
     private BluetoothLeScanner bluetoothLeScanner;
-    private final Map<String, BluetoothGatt> connectedDevices = new HashMap<>();
-    private final Map<String, BLECommandUtil> deviceCommandUtils = new HashMap<>();
+
+    // Per-device connection state machines. GATT callbacks mutate these from
+    // Binder threads while the UI and clock read them, so only concurrent
+    // structures are used and readiness is read lock-free.
+    private final Map<String, DeviceConnection> connections = new ConcurrentHashMap<>();
+
+    // Sends the same command to several boards at once
+    private final BroadcastEngine broadcastEngine = new BroadcastEngine();
+
+    // Queues held for one clock tick, reused so the tick doesn't allocate
+    private final ArrayList<GattCommandQueue> heldQueues = new ArrayList<>();
+
+    // Connection priority/PHY follow the game clock state
+    private final LinkPolicy linkPolicy = new LinkPolicy(this);
+
+    // Sounds the horn on every board from the clock thread the moment a clock runs out
+    private final ClockManager.ExpiryListener expiryHorn = new ClockManager.ExpiryListener() {
+        @Override
+        public void onClockExpired(boolean shotClock) {
+            sendCommandToAll(shotClock ? BLECommandUtil.COMMAND_SHOT_CLOCK_BUZZER : BLECommandUtil.COMMAND_BUZZER);
+        }
+    };
+
+    // Use write-without-response for non-critical commands when the device supports it
+    private volatile boolean writeWithoutResponse = true;
+
+    // All GATT work (connects, writes, callbacks, queue timers) runs on this
+    // thread so radio work never competes with UI rendering
+    private final HandlerThread gattThread = startGattThread();
+    private final Handler gattHandler = new Handler(gattThread.getLooper());
+
+    // Listener events are delivered on the main thread once per frame
+    private final EventDispatcher eventDispatcher = new EventDispatcher();
+
+    // Write queues issue and time out on the GATT thread
+    private final GattCommandQueue.Scheduler queueScheduler = new GattCommandQueue.Scheduler() {
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            gattHandler.postDelayed(task, delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            gattHandler.removeCallbacks(task);
+        }
+    };
+
+    // Brings up all configured boards with bounded parallelism
+    private final ConnectionOrchestrator connectionOrchestrator =
+            new ConnectionOrchestrator(this::startOrchestratedConnection, queueScheduler);
+
+    // Reconnects boards that dropped unexpectedly and resyncs them
+    private final ReconnectSupervisor reconnectSupervisor =
+            new ReconnectSupervisor(this::reconnectDevice, queueScheduler);
+    private volatile SnapshotProvider snapshotProvider = this::buildClockSnapshot;
+
+    // Send binary scoreboard frames instead of the legacy ASCII digit frame
+    private volatile boolean binaryFrames = true;
+
+    // Boards count the clock down themselves from anchor frames
+    private volatile boolean deviceClock = false;
+    private static final long CLOCK_SYNC_CHECK_INTERVAL = 500; // ms
+
+    // Sends an anchor to every board when a clock starts, stops or is set
+    private final ClockManager.AnchorListener clockAnchors = new ClockManager.AnchorListener() {
+        @Override
+        public void onClockAnchor(long gameMillis, long shotMillis, boolean gameRunning, boolean shotRunning) {
+            if (!isDeviceClockActive()) {
+                return;
+            }
+            for (DeviceConnection connection : connections.values()) {
+                sendClockAnchor(connection, gameMillis, shotMillis, gameRunning, shotRunning);
+            }
+            gattHandler.removeCallbacks(clockSyncCheck);
+            if (gameRunning || shotRunning) {
+                gattHandler.postDelayed(clockSyncCheck, CLOCK_SYNC_CHECK_INTERVAL);
+            }
+        }
+    };
+
+    // While a clock runs, re-anchor boards whose estimated drift got too large
+    private final Runnable clockSyncCheck = new Runnable() {
+        @Override
+        public void run() {
+            GameClock clock = ClockManager.getInstance().getGameClock();
+            boolean gameRunning = clock.isRunning();
+            boolean shotRunning = clock.isShotRunning();
+            if (!isDeviceClockActive() || (!gameRunning && !shotRunning)) {
+                return;
+            }
+            long now = System.nanoTime();
+            for (DeviceConnection connection : connections.values()) {
+                BLECommandUtil commandUtil = connection.isReady() ? connection.getCommandUtil() : null;
+                if (commandUtil == null) {
+                    continue;
+                }
+                DeviceClockSync sync = connection.getClockSync();
+                FrameAckTracker tracker = commandUtil.getAckTracker();
+                boolean boardAcks = tracker != null && tracker.hasSeenAcks();
+                if (boardAcks) {
+                    sync.onClockAck(tracker.getClockAckedAtNanos(), tracker.getClockRoundTripNanos());
+                }
+                GattCommandQueue queue = connection.getQueue();
+                if (queue != null && sync.onExpiredClockFrames(queue.getExpiredClockFrames())) {
+                    Log.d(TAG, "Clock frame expired for " + connection.getAddress() + ", re-anchoring");
+                    sendClockAnchor(connection, clock.getGameMillis(), clock.getShotMillis(), gameRunning,
+                            shotRunning);
+                } else if (sync.needsCorrection(now, boardAcks)) {
+                    Log.d(TAG, "Re-anchoring clock on " + connection.getAddress() + ", estimated drift "
+                            + sync.estimatedErrorNanos(now) / 1_000_000L + "ms");
+                    sendClockAnchor(connection, clock.getGameMillis(), clock.getShotMillis(), gameRunning,
+                            shotRunning);
+                }
+            }
+            gattHandler.postDelayed(this, CLOCK_SYNC_CHECK_INTERVAL);
+        }
+    };
+
+    // Measure each board's latency with pings and stagger broadcasts by it
+    private volatile boolean timeSync = false;
+    private static final long TIME_SYNC_INTERVAL = 2000; // ms
+    private final byte[] pingBuffer = new byte[ScoreboardFrame.PING_LENGTH];
+
+    // Pings every board whose firmware acks frames, on the GATT thread
+    private final Runnable timeSyncPing = new Runnable() {
+        @Override
+        public void run() {
+            if (!timeSync) {
+                return;
+            }
+            for (DeviceConnection connection : connections.values()) {
+                BLECommandUtil commandUtil = connection.getCommandUtil();
+                GattCommandQueue queue = connection.getQueue();
+                FrameAckTracker tracker = commandUtil != null ? commandUtil.getAckTracker() : null;
+                // A ping queued behind other writes would measure the queue, not the link
+                if (queue == null || tracker == null || !tracker.hasSeenAcks()
+                        || connection.getSetup() != DeviceConnection.Setup.DONE || queue.getQueueDepth() > 0) {
+                    continue;
+                }
+                int id = connection.getTimeSync().nextPing(System.nanoTime());
+                int length = ScoreboardFrame.encodePing(pingBuffer, 0, id);
+                // Critical so it isn't held back for packing
+                queue.offer(pingBuffer, length, true, GattCommandQueue.LANE_OPERATOR);
+            }
+            gattHandler.postDelayed(this, TIME_SYNC_INTERVAL);
+        }
+    };
+
+    // Compare each board's state dumps with the app's state and correct the difference
+    private volatile boolean reconcile = false;
+    private static final long RECONCILE_CHECK_INTERVAL = 500; // ms
+    private final byte[] stateRequestBuffer = new byte[ScoreboardFrame.STATE_REQUEST_LENGTH];
+
+    // Sends the reconciliation service's state requests and corrections
+    private final ReconciliationService.Link reconcileLink = new ReconciliationService.Link() {
+        @Override
+        public boolean requestState(String address) {
+            DeviceConnection connection = connections.get(address);
+            GattCommandQueue queue = connection != null && connection.isReady() ? connection.getQueue() : null;
+            if (queue == null) {
+                return false;
+            }
+            int length = ScoreboardFrame.encodeStateRequest(stateRequestBuffer, 0);
+            queue.offer(stateRequestBuffer, length, false, GattCommandQueue.LANE_OPERATOR);
+            return true;
+        }
+
+        @Override
+        public boolean isPending(String address, int slot) {
+            BLECommandUtil commandUtil = getReadyCommandUtil(address);
+            FrameAckTracker tracker = commandUtil != null ? commandUtil.getAckTracker() : null;
+            return tracker != null && tracker.isAwaitingAck(slot);
+        }
+
+        @Override
+        public boolean correctField(String address, int field, int boardValue, int value) {
+            BLECommandUtil commandUtil = getReadyCommandUtil(address);
+            if (commandUtil == null) {
+                return false;
+            }
+            Log.i(TAG, "Board " + address + " shows " + boardValue + " for field " + field + ", correcting to "
+                    + value);
+            return commandUtil.sendSetField(field, value);
+        }
+
+        @Override
+        public boolean isDeviceClock(String address) {
+            return isDeviceClockActive();
+        }
+
+        @Override
+        public boolean reanchorClock(String address) {
+            DeviceConnection connection = connections.get(address);
+            if (connection == null) {
+                return false;
+            }
+            Log.i(TAG, "Board " + address + " clock is off, re-anchoring");
+            sendCurrentClockAnchor(connection);
+            return true;
+        }
+
+        @Override
+        public long oneWayNanos(String address) {
+            return timeSync ? getOneWayLatencyNanos(address) : -1;
+        }
+    };
+    private final ReconciliationService reconciliationService = new ReconciliationService(reconcileLink,
+            ClockManager.getInstance().getGameClock(), ScoreboardState.getInstance(), System::nanoTime);
+
+    // Lets the service ask every board whose firmware acks frames for its state, on the GATT thread
+    private final Runnable reconcileTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!reconcile || !binaryFrames) {
+                return;
+            }
+            for (DeviceConnection connection : connections.values()) {
+                BLECommandUtil commandUtil = connection.isReady() ? connection.getCommandUtil() : null;
+                FrameAckTracker tracker = commandUtil != null ? commandUtil.getAckTracker() : null;
+                if (tracker == null || !tracker.hasSeenAcks()
+                        || connection.getSetup() != DeviceConnection.Setup.DONE) {
+                    continue;
+                }
+                reconciliationService.poll(connection.getAddress());
+            }
+            gattHandler.postDelayed(this, RECONCILE_CHECK_INTERVAL);
+        }
+    };
 
     // Scanning state
-    private boolean isScanning = false;
-    private final Handler scanHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean isScanning = false;
+    private final Set<String> pendingScanAddresses = ConcurrentHashMap.newKeySet(); // configured devices not found yet
+    private final Runnable scanTimeoutRunnable = () -> {
+        if (isScanning) {
+            stopScan();
+            notifyScanComplete();
+        }
+    };
 
     // Connection callbacks
-    private final List<ConnectionCallback> connectionCallbacks = new ArrayList<>();
-    private Context applicationContext;
+    private final CopyOnWriteArrayList<ConnectionCallback> connectionCallbacks = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<InboundListener> inboundListeners = new CopyOnWriteArrayList<>();
+    private volatile Context applicationContext;
 
     // Callback interface for connection events
     public interface ConnectionCallback {
@@ -68,8 +316,78 @@ public class BLEManager {
         void onScanComplete();
     }
 
+    // Builds the full board state pushed to a device after it reconnects
+    public interface SnapshotProvider {
+        byte[] buildSnapshot(String address);
+    }
+
+    /**
+     * Hears what the boards report, on the GATT thread. The dump is reused,
+     * copy it to keep it past the call.
+     */
+    public interface InboundListener {
+        void onBoardAck(String address, int sequence);
+
+        void onBoardStateDump(String address, InboundFrameParser.StateDump dump);
+
+        void onBoardError(String address, int sequence, int code);
+    }
+
+    // Routes the frames one board notifies to the ack tracker, the time sync and the listeners
+    private final class InboundHandler implements InboundFrameParser.Listener {
+        private final DeviceConnection connection;
+
+        InboundHandler(DeviceConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void onAck(int sequence) {
+            BLECommandUtil commandUtil = connection.getCommandUtil();
+            FrameAckTracker tracker = commandUtil != null ? commandUtil.getAckTracker() : null;
+            if (tracker != null) {
+                tracker.onAck(sequence);
+            }
+            if (!inboundListeners.isEmpty()) {
+                for (InboundListener listener : inboundListeners) {
+                    listener.onBoardAck(connection.getAddress(), sequence);
+                }
+            }
+        }
+
+        @Override
+        public void onPong(int id, long boardReceivedMillis, long boardSentMillis, long receivedAtNanos) {
+            connection.getTimeSync().onPong(id, boardReceivedMillis, boardSentMillis, receivedAtNanos);
+        }
+
+        @Override
+        public void onStateDump(InboundFrameParser.StateDump dump) {
+            for (InboundListener listener : inboundListeners) {
+                listener.onBoardStateDump(connection.getAddress(), dump);
+            }
+        }
+
+        @Override
+        public void onError(int sequence, int code) {
+            Log.w(TAG, "Board " + connection.getAddress() + " rejected frame " + sequence + ", error " + code);
+            for (InboundListener listener : inboundListeners) {
+                listener.onBoardError(connection.getAddress(), sequence, code);
+            }
+        }
+    }
+
     private BLEManager() {
         // Private constructor to enforce singleton
+        connectionOrchestrator.setTimeoutHandler(this::abortConnection);
+        broadcastEngine.setLatencySource(queueScheduler,
+                address -> timeSync ? getOneWayLatencyNanos(address) : -1);
+        addInboundListener(reconciliationService);
+    }
+
+    private static HandlerThread startGattThread() {
+        HandlerThread thread = new HandlerThread("BLE-GATT", Process.THREAD_PRIORITY_FOREGROUND);
+        thread.start();
+        return thread;
     }
 
     /**
@@ -119,6 +437,11 @@ public class BLEManager {
             return false;
         }
 
+        // Follow the game clock to pick connection priority and PHY
+        ClockManager.getInstance().addClockUpdateListener(linkPolicy);
+        ClockManager.getInstance().addExpiryListener(expiryHorn);
+        ClockManager.getInstance().addAnchorListener(clockAnchors);
+
         return true;
     }
 
@@ -128,9 +451,7 @@ public class BLEManager {
      * @param callback The callback to add
      */
     public void addConnectionCallback(ConnectionCallback callback) {
-        if (!connectionCallbacks.contains(callback)) {
-            connectionCallbacks.add(callback);
-        }
+        connectionCallbacks.addIfAbsent(callback);
     }
 
     /**
@@ -142,6 +463,21 @@ public class BLEManager {
         connectionCallbacks.remove(callback);
     }
 
+    /**
+     * Add a listener for acks, state dumps and errors reported by the boards
+     *
+     * @param listener The listener to add
+     */
+    public void addInboundListener(InboundListener listener) {
+        if (!inboundListeners.contains(listener)) {
+            inboundListeners.add(listener);
+        }
+    }
+
+    public void removeInboundListener(InboundListener listener) {
+        inboundListeners.remove(listener);
+    }
+
     /**
      * Check if Bluetooth is enabled
      * 
@@ -165,30 +501,41 @@ public class BLEManager {
             return false;
         }
 
-        // Check if we're already connected to this device
-        if (connectedDevices.containsKey(address)) {
+        // Check if we're already connected or connecting to this device
+        DeviceConnection existing = connections.get(address);
+        if (existing != null && existing.getState() != DeviceConnection.State.BACKOFF) {
             Log.d(TAG, "Already connected to device: " + address);
             return true;
         }
 
         // Check permissions
-        if (ActivityCompat.checkSelfPermission(context,
-                Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+        if (!BluetoothPermissions.hasConnectPermission(context)) {
             Log.e(TAG, "Missing BLUETOOTH_CONNECT permission");
             return false;
         }
 
         try {
             BluetoothDevice device = bluetoothAdapter.getRemoteDevice(address);
-            Log.d(TAG, "Connecting to " + address);
-
-            // Connect to GATT server
-            BluetoothGatt gatt = device.connectGatt(context, false, gattCallback);
-            if (gatt != null) {
-                // Add to pending connections
-                connectedDevices.put(address, gatt);
+            DeviceConnection connection = claimConnection(address, device);
+            if (connection == null) {
+                Log.d(TAG, "Already connected to device: " + address);
                 return true;
             }
+            Log.d(TAG, "Connecting to " + address);
+
+            // Connect to GATT server from the GATT thread
+            Context appContext = context.getApplicationContext();
+            gattHandler.post(() -> {
+                if (connection.getState() != DeviceConnection.State.CONNECTING) {
+                    // Cancelled before the attempt started
+                    return;
+                }
+                if (openGatt(connection, appContext) == null) {
+                    connections.remove(address, connection);
+                    connectionOrchestrator.onDeviceFailed(address);
+                }
+            });
+            return true;
         } catch (IllegalArgumentException e) {
             Log.e(TAG, "Invalid Bluetooth address: " + address, e);
         }
@@ -196,18 +543,389 @@ public class BLEManager {
         return false;
     }
 
+    // Open the GATT client with its callbacks delivered on the GATT thread
+    private BluetoothGatt openGatt(DeviceConnection connection, Context context) {
+        BluetoothGatt gatt = connection.getDevice().connectGatt(context, false, gattCallback,
+                BluetoothDevice.TRANSPORT_LE, BluetoothDevice.PHY_LE_1M_MASK, gattHandler);
+        if (gatt == null) {
+            Log.e(TAG, "connectGatt failed for device: " + connection.getAddress());
+            return null;
+        }
+        connection.setGatt(gatt);
+        return gatt;
+    }
+
+    // Claim a device for a new connection attempt, null if one is already under way.
+    // A connection waiting in BACKOFF is reused so its cached device is kept.
+    private DeviceConnection claimConnection(String address, BluetoothDevice device) {
+        DeviceConnection fresh = new DeviceConnection(address, DeviceConnection.State.CONNECTING);
+        fresh.setDevice(device);
+        fresh.setInboundParser(new InboundFrameParser(new InboundHandler(fresh)));
+        DeviceConnection current = connections.putIfAbsent(address, fresh);
+        if (current == null) {
+            return fresh;
+        }
+        if (current.transition(DeviceConnection.State.BACKOFF, DeviceConnection.State.CONNECTING)) {
+            current.setDevice(device);
+            return current;
+        }
+        return null;
+    }
+
+    /**
+     * Connect to all given devices concurrently. At most
+     * {@link #setMaxConcurrentConnections(int)} connections are attempted at
+     * the same time; the rest start as soon as a slot frees up.
+     *
+     * @param context   Context for the connections
+     * @param addresses The device addresses to connect to
+     */
+    public void connectAll(Context context, List<String> addresses) {
+        if (applicationContext == null) {
+            applicationContext = context.getApplicationContext();
+        }
+        connectionOrchestrator.connectAll(addresses);
+    }
+
+    /**
+     * Limit the number of connectGatt calls in flight at the same time
+     *
+     * @param maxConnections The limit, at least 1
+     */
+    public void setMaxConcurrentConnections(int maxConnections) {
+        connectionOrchestrator.setMaxInFlight(maxConnections);
+    }
+
+    /**
+     * Get the time it took a device to become ready after connectAll
+     *
+     * @param address The device address
+     * @return Time in milliseconds, or -1 if the device isn't ready yet
+     */
+    public long getTimeToReadyMillis(String address) {
+        return connectionOrchestrator.getTimeToReadyMillis(address);
+    }
+
+    // Connection attempt started by the orchestrator
+    private boolean startOrchestratedConnection(String address) {
+        if (isDeviceConnected(address)) {
+            // Already up, nothing to wait for
+            connectionOrchestrator.onDeviceReady(address);
+            return true;
+        }
+        return connectToDevice(applicationContext, address, null);
+    }
+
+    /**
+     * Set what gets pushed to a board after it reconnects. Defaults to the
+     * current clock digits.
+     *
+     * @param provider Builds the snapshot frame for a device
+     */
+    public void setSnapshotProvider(SnapshotProvider provider) {
+        this.snapshotProvider = provider;
+    }
+
+    /**
+     * Choose between binary scoreboard frames and the legacy ASCII digit frame
+     * for full-state updates. Boards running firmware without the frame
+     * decoder need the legacy frame.
+     *
+     * @param enabled true to send binary frames
+     */
+    public void setBinaryFramesEnabled(boolean enabled) {
+        this.binaryFrames = enabled;
+    }
+
+    public boolean isBinaryFramesEnabled() {
+        return binaryFrames;
+    }
+
+    /**
+     * Let the boards run the clock. Instead of streaming the clock, an anchor
+     * frame is sent when a clock starts, stops or is set, plus a correction
+     * now and then while it runs. Needs binary frames and firmware that
+     * counts down on its own.
+     *
+     * @param enabled true for device clock mode
+     */
+    public void setDeviceClockEnabled(boolean enabled) {
+        this.deviceClock = enabled;
+    }
+
+    public boolean isDeviceClockEnabled() {
+        return deviceClock;
+    }
+
+    /**
+     * Check if the boards are running the clock, so the app must not stream it
+     *
+     * @return true if device clock mode is on and binary frames are in use
+     */
+    public boolean isDeviceClockActive() {
+        return deviceClock && binaryFrames;
+    }
+
+    /**
+     * Measure the latency of every board with frame support with a
+     * ping/pong exchange, and stagger broadcasts and clock anchors by it so
+     * all boards change at the same moment. Boards on older firmware are
+     * never pinged.
+     *
+     * @param enabled true to measure and compensate
+     */
+    public void setTimeSyncEnabled(boolean enabled) {
+        this.timeSync = enabled;
+        gattHandler.removeCallbacks(timeSyncPing);
+        if (enabled) {
+            gattHandler.post(timeSyncPing);
+        }
+    }
+
+    public boolean isTimeSyncEnabled() {
+        return timeSync;
+    }
+
+    /**
+     * Ask every board with frame support for a state dump now and then, and
+     * send set-field frames or a clock anchor for whatever it shows wrong.
+     * Boards on older firmware are never asked.
+     *
+     * @param enabled true to check the boards
+     */
+    public void setReconciliationEnabled(boolean enabled) {
+        this.reconcile = enabled;
+        gattHandler.removeCallbacks(reconcileTick);
+        if (enabled) {
+            gattHandler.post(reconcileTick);
+        }
+    }
+
+    public boolean isReconciliationEnabled() {
+        return reconcile;
+    }
+
+    public ReconciliationService getReconciliationService() {
+        return reconciliationService;
+    }
+
+    /**
+     * Get the round trip and clock offset estimates of a device
+     *
+     * @param address The device address
+     * @return The estimates, or null for an unknown device
+     */
+    public BoardTimeSync getTimeSync(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getTimeSync() : null;
+    }
+
+    /**
+     * Get the time a write takes to reach a device
+     *
+     * @param address The device address
+     * @return Latency in nanoseconds, or -1 if it hasn't been measured
+     */
+    public long getOneWayLatencyNanos(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null && connection.isReady() ? connection.getTimeSync().getOneWayNanos() : -1;
+    }
+
+    // Anchor frame with the exact values, the board counts down from it while running.
+    // Running clocks are set ahead by the link latency, so they are right when applied.
+    private void sendClockAnchor(DeviceConnection connection, long gameMillis, long shotMillis,
+            boolean gameRunning, boolean shotRunning) {
+        BLECommandUtil commandUtil = connection.isReady() ? connection.getCommandUtil() : null;
+        if (commandUtil == null) {
+            return;
+        }
+        long leadNanos = timeSync ? Math.max(0, connection.getTimeSync().getOneWayNanos()) : 0;
+        long leadMillis = Math.round(leadNanos / 1e6);
+        if (gameRunning) {
+            gameMillis = Math.max(0, gameMillis - leadMillis);
+        }
+        if (shotRunning) {
+            shotMillis = Math.max(0, shotMillis - leadMillis);
+        }
+        connection.getClockSync().onAnchorSent(System.nanoTime(), gameRunning || shotRunning,
+                gameRunning || shotRunning ? leadNanos : 0);
+        commandUtil.sendScoreboardFrame((int) (gameMillis / 60000), (int) (gameMillis / 1000 % 60),
+                (int) (gameMillis % 1000 / 100), (int) (shotMillis / 1000), (int) (shotMillis % 1000 / 100),
+                anchorFlags(gameRunning, shotRunning));
+    }
+
+    // Anchor with the clock values of this moment
+    private void sendCurrentClockAnchor(DeviceConnection connection) {
+        GameClock clock = ClockManager.getInstance().getGameClock();
+        sendClockAnchor(connection, clock.getGameMillis(), clock.getShotMillis(), clock.isRunning(),
+                clock.isShotRunning());
+    }
+
+    // A running clock frame went unacked. Streamed frames are replaced by the
+    // next tick, a board counting down itself gets a fresh anchor instead.
+    private void onStaleClockFrame(DeviceConnection connection) {
+        if (!isDeviceClockActive()) {
+            return;
+        }
+        gattHandler.post(() -> {
+            if (connections.get(connection.getAddress()) == connection && isDeviceClockActive()) {
+                Log.d(TAG, "Anchor not acked by " + connection.getAddress() + ", sending a fresh one");
+                sendCurrentClockAnchor(connection);
+            }
+        });
+    }
+
+    private static int anchorFlags(boolean gameRunning, boolean shotRunning) {
+        int flags = ScoreboardFrame.FLAG_DEVICE_CLOCK | ScoreboardState.getInstance().getArrowFlags();
+        if (gameRunning) {
+            flags |= ScoreboardFrame.FLAG_CLOCK_RUNNING;
+        }
+        if (shotRunning) {
+            flags |= ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING;
+        }
+        return flags;
+    }
+
+    // Default snapshot: the current clock in the configured frame format
+    private byte[] buildClockSnapshot(String address) {
+        ClockManager clock = ClockManager.getInstance();
+        if (!binaryFrames) {
+            return BLECommandUtil.buildDigitFrame(clock);
+        }
+        byte[] frame = new byte[ScoreboardFrame.LENGTH];
+        if (isDeviceClockActive()) {
+            GameClock gameClock = clock.getGameClock();
+            long gameMillis = gameClock.getGameMillis();
+            long shotMillis = gameClock.getShotMillis();
+            ScoreboardFrame.encodeClock(frame, 0, 0, (int) (gameMillis / 60000), (int) (gameMillis / 1000 % 60),
+                    (int) (gameMillis % 1000 / 100), (int) (shotMillis / 1000), (int) (shotMillis % 1000 / 100),
+                    anchorFlags(gameClock.isRunning(), gameClock.isShotRunning()));
+            return frame;
+        }
+        int flags = clock.getClockState() == ClockManager.STATE_RUNNING ? ScoreboardFrame.FLAG_CLOCK_RUNNING : 0;
+        if (clock.isShotClockRunning()) {
+            flags |= ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING;
+        }
+        ScoreboardFrame.encodeClock(frame, 0, 0, clock.getMinutes(), clock.getSeconds(), clock.getMSec(),
+                clock.getShotClock(), clock.getShotTenths(), flags);
+        return frame;
+    }
+
+    // Reconnect attempt started by the supervisor, reusing the cached device
+    private boolean reconnectDevice(String address) {
+        DeviceConnection connection = connections.get(address);
+        if (connection == null) {
+            // Forgotten in the meantime, nothing left to reconnect
+            reconnectSupervisor.cancel(address);
+            return true;
+        }
+        if (!connection.transition(DeviceConnection.State.BACKOFF, DeviceConnection.State.CONNECTING)) {
+            // The operator reconnected it already
+            return true;
+        }
+
+        BluetoothDevice device = connection.getDevice();
+        Context context = applicationContext;
+        if (device == null || context == null || !BluetoothPermissions.hasConnectPermission(context)) {
+            Log.e(TAG, "Cannot reconnect to device: " + address);
+            connection.moveTo(DeviceConnection.State.BACKOFF);
+            return false;
+        }
+
+        // Supervisor attempts already run on the GATT thread
+        if (openGatt(connection, context) == null) {
+            connection.moveTo(DeviceConnection.State.BACKOFF);
+            return false;
+        }
+        return true;
+    }
+
+    // Bring a reconnected board back to the current state
+    private void pushSnapshot(String address) {
+        SnapshotProvider provider = snapshotProvider;
+        byte[] snapshot = provider != null ? provider.buildSnapshot(address) : null;
+        if (snapshot != null && snapshot.length > 0) {
+            Log.d(TAG, "Resyncing " + address + " with " + snapshot.length + " byte snapshot");
+            BLECommandUtil commandUtil = getReadyCommandUtil(address);
+            if (commandUtil != null && ScoreboardFrame.isFrame(snapshot, snapshot.length)) {
+                // Number it like any other frame so the board acks it
+                commandUtil.sendScoreboardFrame(snapshot);
+                DeviceConnection connection = connections.get(address);
+                if (connection != null && (snapshot[7] & ScoreboardFrame.FLAG_DEVICE_CLOCK) != 0) {
+                    boolean running = (snapshot[7]
+                            & (ScoreboardFrame.FLAG_CLOCK_RUNNING | ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING)) != 0;
+                    connection.getClockSync().onAnchorSent(System.nanoTime(), running);
+                }
+            } else {
+                sendClockFrame(address, snapshot, false);
+            }
+        }
+        // Absolute team state only exists in the binary protocol
+        sendTeamState(address);
+    }
+
+    // Tear down a link that went away and decide whether to bring it back
+    private void handleLinkLost(BluetoothGatt gatt, String address) {
+        DeviceConnection connection = connections.get(address);
+        boolean wasReady = connection != null && connection.isReady();
+        connectionOrchestrator.onDeviceFailed(address);
+        if (BluetoothPermissions.hasConnectPermission(applicationContext)) {
+            gatt.close();
+        }
+
+        // Ignore callbacks from a GATT client that has already been replaced
+        if (connection == null || (connection.getGatt() != null && connection.getGatt() != gatt)) {
+            return;
+        }
+        connection.release();
+        reconciliationService.forget(address);
+
+        // Reconnect unless the operator caused the disconnect
+        if (connection.getState() != DeviceConnection.State.DISCONNECTING
+                && (wasReady || reconnectSupervisor.isReconnecting(address))) {
+            connection.moveTo(DeviceConnection.State.BACKOFF);
+            reconnectSupervisor.onConnectionLost(address);
+        } else {
+            connections.remove(address, connection);
+        }
+    }
+
+    // Give up on a connection attempt that never completed
+    private void abortConnection(String address) {
+        DeviceConnection connection = connections.remove(address);
+        if (connection == null) {
+            return;
+        }
+        BluetoothGatt gatt = connection.getGatt();
+        connection.release();
+        if (gatt != null && BluetoothPermissions.hasConnectPermission(applicationContext)) {
+            gatt.disconnect();
+            gatt.close();
+        }
+    }
+
     /**
      * Disconnect from a device
      * 
      * @param address The device address to disconnect from
      */
     public void disconnectDevice(String address) {
-        BluetoothGatt gatt = connectedDevices.get(address);
-        if (gatt != null) {
-            if (ActivityCompat.checkSelfPermission(applicationContext,
-                    Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                gatt.disconnect();
-            }
+        // Operator asked for this, don't reconnect
+        reconnectSupervisor.cancel(address);
+
+        DeviceConnection connection = connections.get(address);
+        if (connection == null) {
+            return;
+        }
+        BluetoothGatt gatt = connection.getGatt();
+        DeviceConnection.State previous = connection.moveTo(DeviceConnection.State.DISCONNECTING);
+        if (previous == DeviceConnection.State.BACKOFF || gatt == null) {
+            // Nothing on air, just forget the device
+            connections.remove(address, connection);
+            return;
+        }
+        if (BluetoothPermissions.hasConnectPermission(applicationContext)) {
+            gattHandler.post(gatt::disconnect);
         }
     }
 
@@ -215,13 +933,16 @@ public class BLEManager {
      * Disconnect from all devices
      */
     public void disconnectAll() {
-        for (Map.Entry<String, BluetoothGatt> entry : new HashMap<>(connectedDevices).entrySet()) {
-            disconnectDevice(entry.getKey());
+        for (String address : connections.keySet()) {
+            disconnectDevice(address);
         }
     }
 
     /**
-     * Start scanning for BLE devices with the specified addresses
+     * Start scanning for BLE devices with the specified addresses.
+     * The scan is filtered in the controller on the configured MAC addresses (or
+     * on the HM-10 service UUID when no address is configured) and keeps running
+     * until every configured device has been found or the scan times out.
      * 
      * @param context         Context for the scan
      * @param deviceAddresses List of device addresses to scan for
@@ -238,38 +959,73 @@ public class BLEManager {
             return true;
         }
 
-        // Check permissions
-        if (ContextCompat.checkSelfPermission(context,
-                Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-            Log.e(TAG, "Location permission required for BLE scanning");
-            return false;
+        // Check permissions
+        if (ContextCompat.checkSelfPermission(context,
+                Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
+            Log.e(TAG, "Location permission required for BLE scanning");
+            return false;
+        }
+
+        if (ActivityCompat.checkSelfPermission(context,
+                Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED) {
+            Log.e(TAG, "BLUETOOTH_SCAN permission required");
+            return false;
+        }
+
+        // Only look for configured devices we're not already connected to
+        pendingScanAddresses.clear();
+        List<ScanFilter> filters = new ArrayList<>();
+        for (String address : deviceAddresses) {
+            if (address == null) {
+                continue;
+            }
+            String normalized = address.trim().toUpperCase(Locale.US);
+            if (!BluetoothAdapter.checkBluetoothAddress(normalized)) {
+                Log.w(TAG, "Skipping invalid device address: " + address);
+                continue;
+            }
+            DeviceConnection connection = connections.get(normalized);
+            boolean active = connection != null && connection.getState() != DeviceConnection.State.BACKOFF;
+            if (!active && pendingScanAddresses.add(normalized)) {
+                // Address only, no service UUID: the address already picks out one board, and
+                // several HM-10 clones don't put FFE0 in their advertisement, so the board would
+                // never be found. The service is checked in onServicesDiscovered instead.
+                filters.add(new ScanFilter.Builder().setDeviceAddress(normalized).build());
+            }
+        }
+
+        if (filters.isEmpty()) {
+            if (!deviceAddresses.isEmpty()) {
+                Log.d(TAG, "All configured devices already connected");
+                notifyScanComplete();
+                return true;
+            }
+            // Nothing configured, fall back to any HM-10 module
+            filters.add(new ScanFilter.Builder().setServiceUuid(new ParcelUuid(HM10_SERVICE_UUID)).build());
         }
 
+        ScanSettings settings = new ScanSettings.Builder()
+                .setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY)
+                .setCallbackType(ScanSettings.CALLBACK_TYPE_ALL_MATCHES)
+                .setMatchMode(ScanSettings.MATCH_MODE_AGGRESSIVE)
+                .setReportDelay(0)
+                .build();
+
         // Start the scan
         try {
             isScanning = true;
-            Log.d(TAG, "Starting BLE scan for devices: " + deviceAddresses);
+            Log.d(TAG, "Starting BLE scan for devices: " + pendingScanAddresses);
 
             // Set a timeout for the scan
-            scanHandler.postDelayed(() -> {
-                if (isScanning) {
-                    stopScan();
-                    notifyScanComplete();
-                }
-            }, SCAN_TIMEOUT);
+            gattHandler.removeCallbacks(scanTimeoutRunnable);
+            gattHandler.postDelayed(scanTimeoutRunnable, SCAN_TIMEOUT);
 
-            // Start the scan
-            if (ActivityCompat.checkSelfPermission(context,
-                    Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
-                bluetoothLeScanner.startScan(scanCallback);
-                return true;
-            } else {
-                Log.e(TAG, "BLUETOOTH_SCAN permission required");
-                return false;
-            }
+            bluetoothLeScanner.startScan(filters, settings, scanCallback);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "Error starting BLE scan", e);
             isScanning = false;
+            gattHandler.removeCallbacks(scanTimeoutRunnable);
             return false;
         }
     }
@@ -283,6 +1039,7 @@ public class BLEManager {
                     Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
                 bluetoothLeScanner.stopScan(scanCallback);
                 isScanning = false;
+                gattHandler.removeCallbacks(scanTimeoutRunnable);
                 Log.d(TAG, "BLE scan stopped");
             }
         }
@@ -296,7 +1053,7 @@ public class BLEManager {
      * @return true if command sent successfully
      */
     public boolean sendCommand(String address, byte command) {
-        BLECommandUtil commandUtil = deviceCommandUtils.get(address);
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
         if (commandUtil != null) {
             return commandUtil.sendCommand(command);
         } else {
@@ -305,6 +1062,160 @@ public class BLEManager {
         }
     }
 
+    /**
+     * Send a multi-byte frame to a specific device. The frame is queued with any
+     * pending commands and may be packed into the same write. It is copied, so
+     * the caller may reuse the array.
+     *
+     * @param address The device address
+     * @param frame   The bytes to send
+     * @return true if the frame was queued
+     */
+    public boolean sendFrame(String address, byte[] frame) {
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil != null) {
+            return commandUtil.sendFrame(frame);
+        } else {
+            Log.e(TAG, "No command utility for device: " + address);
+            return false;
+        }
+    }
+
+    /**
+     * Send an operator command for scores, fouls, timeouts or the arrow and
+     * record it in {@link ScoreboardState}. With binary frames enabled the board
+     * gets the new absolute value of the changed field, which is safe to
+     * retransmit; otherwise the legacy relative command byte is sent.
+     *
+     * @param address The device address
+     * @param command A team or arrow command byte
+     * @return true if the command was queued
+     */
+    public boolean sendTeamCommand(String address, byte command) {
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil == null) {
+            Log.e(TAG, "No command utility for device: " + address);
+            return false;
+        }
+        ScoreboardState state = ScoreboardState.getInstance();
+        int field = state.apply(command);
+        if (field >= 0 && binaryFrames) {
+            return commandUtil.sendSetField(field, state.get(field));
+        }
+        return commandUtil.sendCommand(command);
+    }
+
+    /**
+     * Send every team state field to a device, used after a new game. Does
+     * nothing when binary frames are off, legacy firmware resets itself.
+     *
+     * @param address The device address
+     * @return true if the state was queued or there was nothing to send
+     */
+    public boolean sendTeamState(String address) {
+        if (!binaryFrames) {
+            return true;
+        }
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil == null) {
+            Log.e(TAG, "No command utility for device: " + address);
+            return false;
+        }
+        return commandUtil.sendTeamState(ScoreboardState.getInstance());
+    }
+
+    /**
+     * Send a frame carrying the full clock state to a device. It is sent after
+     * horn and operator writes and replaces a clock frame still waiting in the
+     * queue.
+     *
+     * @param address The device address
+     * @param frame   The bytes to send, copied
+     * @param horn    true if the frame sounds the horn, which is sent first and
+     *                never replaced
+     * @return true if the frame was queued
+     */
+    public boolean sendClockFrame(String address, byte[] frame, boolean horn) {
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil != null) {
+            return commandUtil.sendClockFrame(frame, horn);
+        }
+        Log.e(TAG, "No command utility for device: " + address);
+        return false;
+    }
+
+    /**
+     * Send the full clock state to a device as a binary scoreboard frame
+     *
+     * @param address    The device address
+     * @param minutes    Game clock minutes (0-99)
+     * @param seconds    Game clock seconds (0-59)
+     * @param tenths     Game clock tenths, or ScoreboardFrame.TENTHS_NONE
+     * @param shotClock  Shot clock seconds (0-99)
+     * @param shotTenths Shot clock tenths, or ScoreboardFrame.TENTHS_NONE
+     * @param flags      Combination of the ScoreboardFrame.FLAG_* constants
+     * @return true if the frame was queued
+     */
+    public boolean sendScoreboardFrame(String address, int minutes, int seconds, int tenths, int shotClock,
+            int shotTenths, int flags) {
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil != null) {
+            return commandUtil.sendScoreboardFrame(minutes, seconds, tenths, shotClock, shotTenths, flags);
+        }
+        Log.e(TAG, "No command utility for device: " + address);
+        return false;
+    }
+
+    /**
+     * Send a command to a specific device and get notified when the write
+     * completes
+     *
+     * @param address The device address
+     * @param command The command byte to send
+     * @return Future completed with true once the device acknowledged the write
+     */
+    public CompletableFuture<Boolean> sendCommandAsync(String address, byte command) {
+        BLECommandUtil commandUtil = getReadyCommandUtil(address);
+        if (commandUtil != null) {
+            return commandUtil.sendCommandAsync(command);
+        }
+        Log.e(TAG, "No command utility for device: " + address);
+        return CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * Get the number of writes queued or in flight for a device
+     *
+     * @param address The device address
+     * @return The queue depth, 0 if the device has no queue
+     */
+    public int getQueueDepth(String address) {
+        GattCommandQueue queue = getReadyQueue(address);
+        return queue != null ? queue.getQueueDepth() : 0;
+    }
+
+    /**
+     * Switch between write-without-response and acknowledged writes for
+     * non-critical commands. Critical commands (new game, horn) are always
+     * acknowledged.
+     *
+     * @param enabled true to use write-without-response where supported
+     */
+    public void setWriteWithoutResponse(boolean enabled) {
+        writeWithoutResponse = enabled;
+        for (DeviceConnection connection : connections.values()) {
+            GattCommandQueue queue = connection.getQueue();
+            BLECommandUtil commandUtil = connection.getCommandUtil();
+            if (queue != null && commandUtil != null) {
+                queue.setWriteWithoutResponse(enabled && commandUtil.supportsWriteWithoutResponse());
+            }
+        }
+    }
+
+    public boolean isWriteWithoutResponse() {
+        return writeWithoutResponse;
+    }
+
     /**
      * Send a command to all connected devices
      * 
@@ -312,23 +1223,227 @@ public class BLEManager {
      * @return true if command sent to at least one device
      */
     public boolean sendCommandToAll(byte command) {
-        boolean success = false;
-        for (BLECommandUtil commandUtil : deviceCommandUtils.values()) {
-            if (commandUtil != null) {
-                success |= commandUtil.sendCommand(command);
+        return sendCommandToDevices(getConnectedDeviceAddresses(), command);
+    }
+
+    /**
+     * Send a command to several devices at the same instant. Completion
+     * timestamps and the spread between boards are tracked by the broadcast
+     * engine.
+     *
+     * @param addresses The device addresses
+     * @param command   The command byte to send
+     * @return true if the command was queued on at least one device
+     */
+    public boolean sendCommandToDevices(List<String> addresses, byte command) {
+        if (BLECommandUtil.resetsClockDigits(command)) {
+            for (int i = 0; i < addresses.size(); i++) {
+                BLECommandUtil commandUtil = getReadyCommandUtil(addresses.get(i));
+                if (commandUtil != null) {
+                    commandUtil.invalidateClockState();
+                }
+            }
+        }
+        return broadcast(addresses, new byte[] { command }, BLECommandUtil.isCriticalCommand(command),
+                BLECommandUtil.laneFor(command)) != null;
+    }
+
+    /**
+     * Send a multi-byte frame to several devices at the same instant
+     *
+     * @param addresses The device addresses
+     * @param frame     The bytes to send
+     * @return true if the frame was queued on at least one device
+     */
+    public boolean sendFrameToDevices(List<String> addresses, byte[] frame) {
+        return broadcast(addresses, frame, false) != null;
+    }
+
+    /**
+     * Update the clock digits on several devices. Each device only gets the
+     * digits it isn't showing yet, and all devices start their write together.
+     *
+     * @param addresses The device addresses
+     * @param minutes   Minutes to display (0-99)
+     * @param seconds   Seconds to display (0-59)
+     * @return true if at least one device was ready
+     */
+    public boolean sendTimeUpdateToDevices(List<String> addresses, int minutes, int seconds) {
+        synchronized (heldQueues) {
+            heldQueues.clear();
+            for (int i = 0; i < addresses.size(); i++) {
+                DeviceConnection connection = connections.get(addresses.get(i));
+                if (connection == null) {
+                    continue;
+                }
+                BLECommandUtil commandUtil = connection.getCommandUtil();
+                GattCommandQueue queue = connection.getQueue();
+                if (commandUtil != null && queue != null) {
+                    // Hold so no device starts before all have their digits
+                    queue.hold();
+                    heldQueues.add(queue);
+                    commandUtil.sendTimeUpdate(minutes, seconds);
+                }
+            }
+            broadcastEngine.release(heldQueues);
+            boolean sent = !heldQueues.isEmpty();
+            heldQueues.clear();
+            return sent;
+        }
+    }
+
+    /**
+     * Broadcast bytes to every given device that has a write queue
+     *
+     * @param addresses The device addresses
+     * @param value     The bytes to send
+     * @param critical  true to use acknowledged writes
+     * @return Future with the broadcast result, or null if no device was ready
+     */
+    public CompletableFuture<BroadcastEngine.BroadcastResult> broadcast(List<String> addresses, byte[] value,
+            boolean critical) {
+        return broadcast(addresses, value, critical, GattCommandQueue.LANE_OPERATOR);
+    }
+
+    // Broadcast in a specific queue lane
+    private CompletableFuture<BroadcastEngine.BroadcastResult> broadcast(List<String> addresses, byte[] value,
+            boolean critical, int lane) {
+        Map<String, GattCommandQueue> targets = new HashMap<>();
+        for (String address : addresses) {
+            GattCommandQueue queue = getReadyQueue(address);
+            if (queue != null) {
+                targets.put(address, queue);
+            } else {
+                Log.d(TAG, "Device " + address + " not ready, skipping broadcast");
+            }
+        }
+        if (targets.isEmpty()) {
+            return null;
+        }
+        return broadcastEngine.broadcast(targets, value, critical, lane);
+    }
+
+    /**
+     * Get the number of clock frames a device never got because a newer one
+     * replaced them or they went stale under congestion
+     *
+     * @param address The device address
+     * @return The dropped frame count, 0 if the device isn't ready
+     */
+    public long getDroppedClockFrames(String address) {
+        GattCommandQueue queue = getReadyQueue(address);
+        return queue != null ? queue.getDroppedClockFrames() : 0;
+    }
+
+    public BroadcastEngine getBroadcastEngine() {
+        return broadcastEngine;
+    }
+
+    /**
+     * Apply the current link policy to every connected device
+     */
+    public void applyLinkPolicy() {
+        gattHandler.post(() -> {
+            for (DeviceConnection connection : connections.values()) {
+                DeviceConnection.State state = connection.getState();
+                BluetoothGatt gatt = connection.getGatt();
+                if (gatt != null && (state == DeviceConnection.State.DISCOVERING
+                        || state == DeviceConnection.State.READY)) {
+                    applyLinkPolicy(gatt);
+                }
             }
+        });
+    }
+
+    private void applyLinkPolicy(BluetoothGatt gatt) {
+        if (applicationContext == null || !BluetoothPermissions.hasConnectPermission(applicationContext)) {
+            return;
         }
-        return success;
+
+        int priority = linkPolicy.getConnectionPriority();
+        int phy = linkPolicy.getPreferredPhy();
+        Log.d(TAG, "Applying connection priority " + priority + " and PHY " + phy + " to "
+                + gatt.getDevice().getAddress());
+        gatt.requestConnectionPriority(priority);
+        gatt.setPreferredPhy(phy, phy, BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+    }
+
+    /**
+     * Get the connection interval negotiated with a device
+     *
+     * @param address The device address
+     * @return Interval in milliseconds, or -1 if not reported yet
+     */
+    public float getConnectionIntervalMillis(String address) {
+        DeviceConnection connection = connections.get(address);
+        int interval = connection != null ? connection.getConnectionInterval() : -1;
+        return interval >= 0 ? interval * 1.25f : -1;
+    }
+
+    /**
+     * Get the PHY currently used by a device
+     *
+     * @param address The device address
+     * @return One of the BluetoothDevice PHY_LE_* constants, or -1 if unknown
+     */
+    public int getPhy(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getPhy() : -1;
     }
 
     /**
      * Check if a device is connected
      * 
      * @param address The device address
-     * @return true if device is connected
+     * @return true if device is connected and ready for commands
      */
     public boolean isDeviceConnected(String address) {
-        return connectedDevices.containsKey(address) && connectedDevices.get(address) != null;
+        DeviceConnection connection = connections.get(address);
+        return connection != null && connection.isReady();
+    }
+
+    /**
+     * Get the connection state of a device
+     *
+     * @param address The device address
+     * @return The current state, or null if the device isn't known
+     */
+    public DeviceConnection.State getConnectionState(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getState() : null;
+    }
+
+    // Lock-free lookups used on the send path, null unless the device is READY
+    private BLECommandUtil getReadyCommandUtil(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getCommandUtil() : null;
+    }
+
+    private GattCommandQueue getReadyQueue(String address) {
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getQueue() : null;
+    }
+
+    /**
+     * Add a READY board on a given command path, without a GATT link. Lets JVM
+     * tests drive the send path against a fake transport.
+     *
+     * @param address     The device address
+     * @param commandUtil Command utility writing through the queue
+     * @param queue       The write queue for the board
+     */
+    void attachBoard(String address, BLECommandUtil commandUtil, GattCommandQueue queue) {
+        DeviceConnection connection = new DeviceConnection(address, DeviceConnection.State.DISCOVERING);
+        connection.markReady(commandUtil, queue);
+        connections.put(address, connection);
+    }
+
+    // Drop a board added with attachBoard
+    void detachBoard(String address) {
+        DeviceConnection connection = connections.remove(address);
+        if (connection != null) {
+            connection.release();
+        }
     }
 
     /**
@@ -337,7 +1452,13 @@ public class BLEManager {
      * @return The number of connected devices
      */
     public int getConnectedDeviceCount() {
-        return connectedDevices.size();
+        int count = 0;
+        for (DeviceConnection connection : connections.values()) {
+            if (connection.isReady()) {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -346,7 +1467,13 @@ public class BLEManager {
      * @return List of connected device addresses
      */
     public List<String> getConnectedDeviceAddresses() {
-        return new ArrayList<>(connectedDevices.keySet());
+        List<String> addresses = new ArrayList<>();
+        for (DeviceConnection connection : connections.values()) {
+            if (connection.isReady()) {
+                addresses.add(connection.getAddress());
+            }
+        }
+        return addresses;
     }
 
     /**
@@ -356,7 +1483,8 @@ public class BLEManager {
      * @return BluetoothGatt object or null if not connected
      */
     public BluetoothGatt getBluetoothGatt(String address) {
-        return connectedDevices.get(address);
+        DeviceConnection connection = connections.get(address);
+        return connection != null ? connection.getGatt() : null;
     }
 
     /**
@@ -367,8 +1495,12 @@ public class BLEManager {
         disconnectAll();
 
         // Clear all collections
-        connectedDevices.clear();
-        deviceCommandUtils.clear();
+        connectionOrchestrator.cancel();
+        reconnectSupervisor.cancelAll();
+        for (DeviceConnection connection : connections.values()) {
+            connection.release();
+        }
+        connections.clear();
         connectionCallbacks.clear();
 
         // Stop any ongoing scan
@@ -379,23 +1511,13 @@ public class BLEManager {
     private final ScanCallback scanCallback = new ScanCallback() {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
-            BluetoothDevice device = result.getDevice();
-            if (device != null && device.getAddress() != null) {
-                Log.d(TAG, "Found device: " + device.getAddress());
-                // We just try to connect to any device we find during scan
-                // Actual filtering will be done when getting stored device addresses
-                if (ActivityCompat.checkSelfPermission(applicationContext,
-                        Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED) {
-                    bluetoothLeScanner.stopScan(this);
-                    isScanning = false;
-                    // Attempt to connect to the device if it's in our list
-                    String deviceName = ActivityCompat.checkSelfPermission(applicationContext,
-                            Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED
-                                    ? device.getName()
-                                    : "Unknown";
-                    connectToDevice(applicationContext, device.getAddress(),
-                            deviceName != null ? deviceName : "Unknown");
-                }
+            handleScanResult(result);
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            for (ScanResult result : results) {
+                handleScanResult(result);
             }
         }
 
@@ -403,10 +1525,39 @@ public class BLEManager {
         public void onScanFailed(int errorCode) {
             Log.e(TAG, "Scan failed with error code: " + errorCode);
             isScanning = false;
+            gattHandler.removeCallbacks(scanTimeoutRunnable);
             notifyScanComplete();
         }
     };
 
+    // Connect to a device reported by the filtered scan
+    private void handleScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        if (!isScanning || device == null || device.getAddress() == null) {
+            return;
+        }
+
+        String address = device.getAddress();
+        boolean targeted = !pendingScanAddresses.isEmpty();
+        if (targeted && !pendingScanAddresses.remove(address)) {
+            // Duplicate report for a device we already picked up
+            return;
+        }
+        Log.d(TAG, "Found device: " + address + " (RSSI " + result.getRssi() + ")");
+
+        String deviceName = BluetoothPermissions.hasConnectPermission(applicationContext)
+                        ? device.getName()
+                        : "Unknown";
+        connectToDevice(applicationContext, address, deviceName != null ? deviceName : "Unknown");
+
+        // Stop once every configured device is found, or after the first HM-10
+        // when scanning without configured addresses
+        if (pendingScanAddresses.isEmpty()) {
+            stopScan();
+            notifyScanComplete();
+        }
+    }
+
     // GATT callback
     private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
         @Override
@@ -416,14 +1567,27 @@ public class BLEManager {
                 if (newState == BluetoothProfile.STATE_CONNECTED) {
                     Log.d(TAG, "Connected to device: " + address);
 
+                    DeviceConnection connection = connections.get(address);
+                    if (connection == null) {
+                        // Attempt was aborted while the link came up
+                        if (BluetoothPermissions.hasConnectPermission(applicationContext)) {
+                            gatt.disconnect();
+                        }
+                        return;
+                    }
+                    connection.setGatt(gatt);
+                    if (!connection.transition(DeviceConnection.State.CONNECTING,
+                            DeviceConnection.State.DISCOVERING)) {
+                        // Disconnect requested while connecting, wait for it
+                        return;
+                    }
+
                     // Discover services
-                    if (ActivityCompat.checkSelfPermission(applicationContext,
-                            Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
+                    if (BluetoothPermissions.hasConnectPermission(applicationContext)) {
                         gatt.discoverServices();
                     }
 
-                    String deviceName = ActivityCompat.checkSelfPermission(applicationContext,
-                            Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED
+                    String deviceName = BluetoothPermissions.hasConnectPermission(applicationContext)
                                     ? gatt.getDevice().getName()
                                     : "Unknown";
                     if (deviceName == null)
@@ -431,8 +1595,8 @@ public class BLEManager {
 
                     final String finalDeviceName = deviceName;
                     // Notify connected on the main thread
-                    new Handler(Looper.getMainLooper()).post(() -> {
-                        for (ConnectionCallback callback : new ArrayList<>(connectionCallbacks)) {
+                    eventDispatcher.dispatch(() -> {
+                        for (ConnectionCallback callback : connectionCallbacks) {
                             callback.onDeviceConnected(address, finalDeviceName);
                         }
                     });
@@ -441,16 +1605,11 @@ public class BLEManager {
                     Log.d(TAG, "Disconnected from device: " + address);
 
                     // Clean up
-                    deviceCommandUtils.remove(address);
-                    connectedDevices.remove(address);
-                    if (ActivityCompat.checkSelfPermission(applicationContext,
-                            Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                        gatt.close();
-                    }
+                    handleLinkLost(gatt, address);
 
                     // Notify disconnected on the main thread
-                    new Handler(Looper.getMainLooper()).post(() -> {
-                        for (ConnectionCallback callback : new ArrayList<>(connectionCallbacks)) {
+                    eventDispatcher.dispatch(() -> {
+                        for (ConnectionCallback callback : connectionCallbacks) {
                             callback.onDeviceDisconnected(address);
                         }
                     });
@@ -460,17 +1619,12 @@ public class BLEManager {
                 Log.e(TAG, "Connection error: " + status + " for device: " + address);
 
                 // Clean up
-                deviceCommandUtils.remove(address);
-                connectedDevices.remove(address);
-                if (ActivityCompat.checkSelfPermission(applicationContext,
-                        Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                    gatt.close();
-                }
+                handleLinkLost(gatt, address);
 
                 // Notify error on the main thread
                 final int finalStatus = status;
-                new Handler(Looper.getMainLooper()).post(() -> {
-                    for (ConnectionCallback callback : new ArrayList<>(connectionCallbacks)) {
+                eventDispatcher.dispatch(() -> {
+                    for (ConnectionCallback callback : connectionCallbacks) {
                         callback.onConnectionError(address, finalStatus);
                     }
                 });
@@ -480,6 +1634,11 @@ public class BLEManager {
         @Override
         public void onServicesDiscovered(BluetoothGatt gatt, int status) {
             String address = gatt.getDevice().getAddress();
+            DeviceConnection connection = connections.get(address);
+            if (connection == null || connection.getState() != DeviceConnection.State.DISCOVERING) {
+                // Disconnected or aborted while discovering
+                return;
+            }
             if (status == BluetoothGatt.GATT_SUCCESS) {
                 Log.d(TAG, "Services discovered for device: " + address);
 
@@ -488,20 +1647,239 @@ public class BLEManager {
                 if (service != null) {
                     Log.d(TAG, "Found HM-10 service");
 
-                    // Create a command utility for this device
+                    // Create a command utility for this device, with writes serialized
+                    // through a per-device queue
                     BLECommandUtil commandUtil = new BLECommandUtil(gatt, applicationContext, null);
-                    deviceCommandUtils.put(address, commandUtil);
+                    GattCommandQueue queue = new GattCommandQueue(address, commandUtil::writeValue,
+                            queueScheduler);
+                    queue.setWriteWithoutResponse(writeWithoutResponse && commandUtil.supportsWriteWithoutResponse());
+                    commandUtil.setCommandQueue(queue);
+                    FrameAckTracker tracker = new FrameAckTracker(queue, queueScheduler);
+                    tracker.setStaleClockListener(() -> onStaleClockFrame(connection));
+                    commandUtil.setAckTracker(tracker);
+                    int interval = connection.getConnectionInterval();
+                    if (interval > 0) {
+                        queue.setCoalesceWindow((long) Math.ceil(interval * 1.25f));
+                    }
+
+                    // Hold writes until the MTU exchange and the notification
+                    // subscription are done, GATT only runs one operation at a time
+                    queue.hold();
+                    connection.setSetup(DeviceConnection.Setup.MTU);
+
+                    // Publish the command path and go READY in one step
+                    if (!connection.markReady(commandUtil, queue)) {
+                        queue.clear();
+                        return;
+                    }
+
+                    // Ask for a larger MTU so packed commands fit in one write
+                    if (BluetoothPermissions.hasConnectPermission(applicationContext)
+                            && gatt.requestMtu(PREFERRED_MTU)) {
+                        scheduleSetupTimeout(connection, gatt, DeviceConnection.Setup.MTU);
+                    } else {
+                        subscribeToNotifications(connection, gatt);
+                    }
+                    applyLinkPolicy(gatt);
+                    connectionOrchestrator.onDeviceReady(address);
+
+                    // A board that came back after a dropout shows stale digits
+                    if (reconnectSupervisor.isReconnecting(address)) {
+                        reconnectSupervisor.onReconnected(address);
+                        pushSnapshot(address);
+                    }
+                } else {
+                    Log.e(TAG, "HM-10 service not found on device: " + address);
+                    connectionOrchestrator.onDeviceFailed(address);
+                    dropUnusableLink(connection, gatt);
                 }
             } else {
                 Log.e(TAG, "Service discovery failed with status: " + status);
+                connectionOrchestrator.onDeviceFailed(address);
+                dropUnusableLink(connection, gatt);
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            String address = gatt.getDevice().getAddress();
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "MTU changed to " + mtu + " for device: " + address);
+                GattCommandQueue queue = getReadyQueue(address);
+                if (queue != null) {
+                    queue.setMtu(mtu);
+                }
+            } else {
+                Log.w(TAG, "MTU request failed with status: " + status + " for device: " + address);
+            }
+
+            DeviceConnection connection = connections.get(address);
+            if (connection != null && connection.getSetup() == DeviceConnection.Setup.MTU) {
+                subscribeToNotifications(connection, gatt);
+            }
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            String address = gatt.getDevice().getAddress();
+            DeviceConnection connection = connections.get(address);
+            if (connection == null || connection.getSetup() != DeviceConnection.Setup.SUBSCRIBE) {
+                return;
+            }
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "Notifications enabled for device: " + address);
+            } else {
+                Log.w(TAG, "Enabling notifications failed with status: " + status + " for device: " + address);
+            }
+            finishSetup(connection);
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic,
+                byte[] value) {
+            onNotification(gatt, characteristic, value, System.nanoTime());
+        }
+
+        // Only called before API 33, later releases pass the value to the overload above
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+            onNotification(gatt, characteristic, characteristic.getValue(), System.nanoTime());
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            String address = gatt.getDevice().getAddress();
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "PHY updated to " + txPhy + " for device: " + address);
+                DeviceConnection connection = connections.get(address);
+                if (connection != null) {
+                    connection.setPhy(txPhy);
+                }
+            }
+        }
+
+        // Hidden BluetoothGattCallback method, still dispatched to app callbacks.
+        // It is the only way to learn the interval the controller actually chose.
+        public void onConnectionUpdated(BluetoothGatt gatt, int interval, int latency, int timeout,
+                int status) {
+            String address = gatt.getDevice().getAddress();
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                Log.d(TAG, "Connection interval " + (interval * 1.25f) + " ms, latency " + latency
+                        + " for device: " + address);
+                DeviceConnection connection = connections.get(address);
+                if (connection != null) {
+                    connection.setConnectionInterval(interval);
+                }
+
+                // Pack writes over one connection interval
+                GattCommandQueue queue = getReadyQueue(address);
+                if (queue != null) {
+                    queue.setCoalesceWindow((long) Math.ceil(interval * 1.25f));
+                }
+            }
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic,
+                int status) {
+            String address = gatt.getDevice().getAddress();
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.w(TAG, "Write failed with status: " + status + " for device: " + address);
+            }
+
+            // Release the next queued write for this device
+            GattCommandQueue queue = getReadyQueue(address);
+            if (queue != null) {
+                queue.onWriteComplete(status == BluetoothGatt.GATT_SUCCESS);
             }
         }
     };
 
+    // Bytes a board notified. Frames may be split over notifications, the
+    // parser puts them back together and routes acks, pongs, state dumps and errors.
+    private void onNotification(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, byte[] value,
+            long receivedAt) {
+        if (value == null || !HM10_CHARACTERISTIC_UUID.equals(characteristic.getUuid())) {
+            return;
+        }
+        DeviceConnection connection = connections.get(gatt.getDevice().getAddress());
+        if (connection == null || connection.getGatt() != gatt) {
+            return;
+        }
+        InboundFrameParser parser = connection.getInboundParser();
+        if (parser != null) {
+            parser.feed(value, 0, value.length, receivedAt);
+        }
+    }
+
+    // Ask the board to notify us, acks, pongs, state dumps and errors arrive through these notifications
+    private void subscribeToNotifications(DeviceConnection connection, BluetoothGatt gatt) {
+        connection.setSetup(DeviceConnection.Setup.SUBSCRIBE);
+        BluetoothGattService service = gatt.getService(HM10_SERVICE_UUID);
+        BluetoothGattCharacteristic characteristic = service != null
+                ? service.getCharacteristic(HM10_CHARACTERISTIC_UUID)
+                : null;
+        BluetoothGattDescriptor cccd = characteristic != null ? characteristic.getDescriptor(CCCD_UUID) : null;
+        if (cccd != null && BluetoothPermissions.hasConnectPermission(applicationContext)
+                && gatt.setCharacteristicNotification(characteristic, true)) {
+            if (writeNotificationDescriptor(gatt, cccd)) {
+                scheduleSetupTimeout(connection, gatt, DeviceConnection.Setup.SUBSCRIBE);
+                return;
+            }
+        }
+        Log.w(TAG, "Notifications unavailable for device: " + connection.getAddress());
+        finishSetup(connection);
+    }
+
+    // The value-taking write from API 33, the descriptor's own value before that
+    @SuppressWarnings("deprecation")
+    private static boolean writeNotificationDescriptor(BluetoothGatt gatt, BluetoothGattDescriptor cccd) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return gatt.writeDescriptor(cccd, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE)
+                    == BluetoothStatusCodes.SUCCESS;
+        }
+        cccd.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+        return gatt.writeDescriptor(cccd);
+    }
+
+    // Move on if a setup step gets no callback, so the held writes aren't stuck forever
+    private void scheduleSetupTimeout(DeviceConnection connection, BluetoothGatt gatt, DeviceConnection.Setup step) {
+        gattHandler.postDelayed(() -> {
+            if (connections.get(connection.getAddress()) != connection || connection.getGatt() != gatt
+                    || connection.getSetup() != step) {
+                return;
+            }
+            Log.w(TAG, "No answer to setup step " + step + " from device: " + connection.getAddress());
+            if (step == DeviceConnection.Setup.MTU) {
+                subscribeToNotifications(connection, gatt);
+            } else {
+                finishSetup(connection);
+            }
+        }, SETUP_STEP_TIMEOUT);
+    }
+
+    // Setup is over, let the held writes go out
+    private void finishSetup(DeviceConnection connection) {
+        connection.setSetup(DeviceConnection.Setup.DONE);
+        GattCommandQueue queue = connection.getQueue();
+        if (queue != null) {
+            queue.release();
+        }
+    }
+
+    // A board without the HM-10 service is no use, let the disconnect path clean up
+    private void dropUnusableLink(DeviceConnection connection, BluetoothGatt gatt) {
+        connection.moveTo(DeviceConnection.State.DISCONNECTING);
+        if (BluetoothPermissions.hasConnectPermission(applicationContext)) {
+            gatt.disconnect();
+        }
+    }
+
     // Notify all callbacks that scan is complete
     private void notifyScanComplete() {
-        new Handler(Looper.getMainLooper()).post(() -> {
-            for (ConnectionCallback callback : new ArrayList<>(connectionCallbacks)) {
+        eventDispatcher.dispatch(() -> {
+            for (ConnectionCallback callback : connectionCallbacks) {
                 callback.onScanComplete();
             }
         });
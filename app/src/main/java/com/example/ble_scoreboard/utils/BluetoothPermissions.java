@@ -0,0 +1,51 @@
+package com.example.ble_scoreboard.utils;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+
+import androidx.core.content.ContextCompat;
+
+/**
+ * Cached BLUETOOTH_CONNECT permission state.
+ * Android kills the process when a permission is revoked, so once granted the
+ * answer can't change underneath us. Activities invalidate the cache when a
+ * permission request returns or when they resume, which covers new grants.
+ */
+public final class BluetoothPermissions {
+
+    private static final int UNKNOWN = 0;
+    private static final int GRANTED = 1;
+    private static final int DENIED = 2;
+
+    private static volatile int connectState = UNKNOWN;
+
+    private BluetoothPermissions() {
+    }
+
+    /**
+     * Check if BLUETOOTH_CONNECT is granted, asking the system only when the
+     * cached answer was invalidated
+     *
+     * @param context Any context of the app
+     * @return true if the permission is granted
+     */
+    public static boolean hasConnectPermission(Context context) {
+        int state = connectState;
+        if (state == UNKNOWN) {
+            state = ContextCompat.checkSelfPermission(context,
+                    Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED
+                            ? GRANTED
+                            : DENIED;
+            connectState = state;
+        }
+        return state == GRANTED;
+    }
+
+    /**
+     * Forget the cached permission state, call after permission results
+     */
+    public static void invalidate() {
+        connectState = UNKNOWN;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Estimates the round trip to one board and the offset of its clock from the
+ * phone's, NTP style, from ping/pong exchanges. The pong carries the board
+ * time when the ping arrived and when the pong left, so the time the board
+ * held the ping is taken out of the round trip. Both estimates are smoothed
+ * with the weights TCP uses for its round trip average. A ping that waited
+ * behind other traffic has a long round trip and a one-sided offset, so such
+ * samples are left out of both averages.
+ *
+ * Phone times are System.nanoTime, board times are the board's 32-bit
+ * millisecond counter.
+ */
+public class BoardTimeSync {
+
+    // A pong that takes longer than this answers a ping that was given up on
+    public static final long PING_TIMEOUT_NANOS = 1_000_000_000L;
+
+    // An offset jump this large means the board restarted or its counter wrapped
+    private static final long OFFSET_JUMP_NANOS = 1_000_000_000L;
+
+    private static final int GAIN_SHIFT = 3; // new samples weigh 1/8
+    private static final int DEVIATION_SHIFT = 2; // 1/4
+    private static final int OUTLIER_DEVIATIONS = 4;
+    private static final long MIN_DEVIATION_NANOS = 1_000_000L; // board times are whole ms
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long MILLIS_MASK = 0xFFFFFFFFL;
+
+    private int pingId = -1;
+    private long pingSentAtNanos;
+    private boolean awaitingPong;
+
+    private boolean hasEstimate;
+    private long roundTripNanos;
+    private long roundTripDeviationNanos;
+    private long offsetNanos;
+
+    private long samples;
+    private long outliers;
+
+    /**
+     * Start a new exchange, giving up on an unanswered ping
+     *
+     * @param now System.nanoTime when the ping is queued
+     * @return The id to send in the ping (0-255)
+     */
+    public synchronized int nextPing(long now) {
+        pingId = (pingId + 1) & 0xFF;
+        pingSentAtNanos = now;
+        awaitingPong = true;
+        return pingId;
+    }
+
+    /**
+     * Take in a pong
+     *
+     * @param id                  Ping id echoed by the board
+     * @param boardReceivedMillis Board time when the ping arrived
+     * @param boardSentMillis     Board time when the pong was sent
+     * @param now                 System.nanoTime when the pong arrived
+     * @return true if the sample was used, false if it was stale, unexpected
+     *         or an outlier
+     */
+    public synchronized boolean onPong(int id, long boardReceivedMillis, long boardSentMillis, long now) {
+        if (!awaitingPong || id != pingId || now - pingSentAtNanos > PING_TIMEOUT_NANOS) {
+            return false;
+        }
+        awaitingPong = false;
+        samples++;
+
+        long held = ((boardSentMillis - boardReceivedMillis) & MILLIS_MASK) * NANOS_PER_MILLI;
+        long roundTrip = Math.max(0, now - pingSentAtNanos - held);
+        long offset = ((boardReceivedMillis & MILLIS_MASK) * NANOS_PER_MILLI - pingSentAtNanos
+                + (boardSentMillis & MILLIS_MASK) * NANOS_PER_MILLI - now) / 2;
+
+        if (!hasEstimate || Math.abs(offset - offsetNanos) > OFFSET_JUMP_NANOS + roundTrip) {
+            // First sample, or a board that restarted: start over
+            hasEstimate = true;
+            roundTripNanos = roundTrip;
+            roundTripDeviationNanos = Math.max(MIN_DEVIATION_NANOS, roundTrip / 2);
+            offsetNanos = offset;
+            return true;
+        }
+
+        // The deviation always follows, so a lasting rise in latency stops
+        // being an outlier after a few samples
+        long error = roundTrip - roundTripNanos;
+        boolean outlier = error > OUTLIER_DEVIATIONS * roundTripDeviationNanos;
+        roundTripDeviationNanos = Math.max(MIN_DEVIATION_NANOS,
+                roundTripDeviationNanos + ((Math.abs(error) - roundTripDeviationNanos) >> DEVIATION_SHIFT));
+        if (outlier) {
+            outliers++;
+            return false;
+        }
+        roundTripNanos += error >> GAIN_SHIFT;
+        offsetNanos += (offset - offsetNanos) >> GAIN_SHIFT;
+        return true;
+    }
+
+    /**
+     * Forget the estimates, called when the link goes away
+     */
+    public synchronized void reset() {
+        awaitingPong = false;
+        hasEstimate = false;
+        roundTripNanos = 0;
+        roundTripDeviationNanos = 0;
+        offsetNanos = 0;
+    }
+
+    public synchronized boolean hasEstimate() {
+        return hasEstimate;
+    }
+
+    // Smoothed round trip without the board's own handling time, -1 before the first pong
+    public synchronized long getRoundTripNanos() {
+        return hasEstimate ? roundTripNanos : -1;
+    }
+
+    public synchronized long getRoundTripDeviationNanos() {
+        return hasEstimate ? roundTripDeviationNanos : -1;
+    }
+
+    // Time from a write being issued until the board has it, -1 before the first pong
+    public synchronized long getOneWayNanos() {
+        return hasEstimate ? roundTripNanos / 2 : -1;
+    }
+
+    // Board time minus phone time, both in nanoseconds
+    public synchronized long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    // Pongs that waited behind other traffic and were left out
+    public synchronized long getOutliers() {
+        return outliers;
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.ble_scoreboard.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the same bytes to several devices at once.
+ * The value is placed on every device queue before any of them is allowed to
+ * issue, so all boards start their write in the same instant. Completion
+ * times are recorded per device and the spread (latest minus earliest) is
+ * reported for each broadcast.
+ *
+ * With a latency source set, the boards with a faster link are released
+ * later by the difference in one-way latency, so the value arrives on every
+ * board at about the same time. The completion spread then includes that
+ * stagger.
+ */
+public class BroadcastEngine {
+    private static final String TAG = "BroadcastEngine";
+
+    // A latency estimate that far off is more likely wrong than real
+    private static final long MAX_STAGGER_NANOS = 100_000_000L;
+
+    // Outcome of a single broadcast
+    public static final class BroadcastResult {
+        private final long startNanos;
+        private final Map<String, Long> completionNanos;
+        private final List<String> failedDevices;
+
+        BroadcastResult(long startNanos, Map<String, Long> completionNanos, List<String> failedDevices) {
+            this.startNanos = startNanos;
+            this.completionNanos = Collections.unmodifiableMap(completionNanos);
+            this.failedDevices = Collections.unmodifiableList(failedDevices);
+        }
+
+        // Completion time (System.nanoTime) of each device that acknowledged
+        public Map<String, Long> getCompletionNanos() {
+            return completionNanos;
+        }
+
+        public List<String> getFailedDevices() {
+            return failedDevices;
+        }
+
+        public boolean isAllSucceeded() {
+            return failedDevices.isEmpty();
+        }
+
+        /**
+         * Time between the first and the last device completing the write
+         *
+         * @return Spread in nanoseconds, 0 with fewer than two devices
+         */
+        public long getSpreadNanos() {
+            if (completionNanos.size() < 2) {
+                return 0;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (long completed : completionNanos.values()) {
+                min = Math.min(min, completed);
+                max = Math.max(max, completed);
+            }
+            return max - min;
+        }
+
+        /**
+         * Time from the broadcast until the slowest device completed
+         *
+         * @return Latency in nanoseconds, 0 if no device completed
+         */
+        public long getLatencyNanos() {
+            long max = startNanos;
+            for (long completed : completionNanos.values()) {
+                max = Math.max(max, completed);
+            }
+            return max - startNanos;
+        }
+    }
+
+    // Callback for broadcast metrics
+    public interface BroadcastListener {
+        void onBroadcastComplete(BroadcastResult result);
+    }
+
+    // One-way link latency of a device
+    public interface LatencySource {
+        /**
+         * @param address The device address
+         * @return Latency in nanoseconds, or -1 if it isn't known
+         */
+        long oneWayNanos(String address);
+    }
+
+    private final List<BroadcastListener> listeners = new ArrayList<>();
+    private volatile LatencySource latencySource;
+    private volatile GattCommandQueue.Scheduler staggerScheduler;
+    private volatile BroadcastResult lastResult;
+    private volatile long maxSpreadNanos;
+
+    /**
+     * Send a value to every given device queue at the same instant
+     *
+     * @param queues   Queues of the devices to send to, keyed by address
+     * @param value    The bytes to send
+     * @param critical true to use acknowledged writes
+     * @return Future completed once every device finished its write
+     */
+    public CompletableFuture<BroadcastResult> broadcast(Map<String, GattCommandQueue> queues, byte[] value,
+            boolean critical) {
+        return broadcast(queues, value, critical, GattCommandQueue.LANE_OPERATOR);
+    }
+
+    /**
+     * Send a value to every given device queue at the same instant
+     *
+     * @param queues   Queues of the devices to send to, keyed by address
+     * @param value    The bytes to send
+     * @param critical true to use acknowledged writes
+     * @param lane     Queue lane, one of the GattCommandQueue.LANE_* constants
+     * @return Future completed once every device finished its write
+     */
+    public CompletableFuture<BroadcastResult> broadcast(Map<String, GattCommandQueue> queues, byte[] value,
+            boolean critical, int lane) {
+        long startNanos = System.nanoTime();
+        Map<String, Long> completionNanos = new HashMap<>();
+        List<String> failedDevices = new ArrayList<>();
+        CompletableFuture<BroadcastResult> result = new CompletableFuture<>();
+
+        if (queues.isEmpty()) {
+            result.complete(new BroadcastResult(startNanos, completionNanos, failedDevices));
+            return result;
+        }
+
+        // Hold every queue so no device starts before all have the value
+        for (GattCommandQueue queue : queues.values()) {
+            queue.hold();
+        }
+
+        AtomicInteger remaining = new AtomicInteger(queues.size());
+        for (Map.Entry<String, GattCommandQueue> entry : queues.entrySet()) {
+            String address = entry.getKey();
+            entry.getValue().enqueue(value, critical, lane).thenAccept(success -> {
+                long completed = System.nanoTime();
+                synchronized (completionNanos) {
+                    if (success) {
+                        completionNanos.put(address, completed);
+                    } else {
+                        failedDevices.add(address);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    BroadcastResult broadcastResult;
+                    synchronized (completionNanos) {
+                        broadcastResult = new BroadcastResult(startNanos, completionNanos, failedDevices);
+                    }
+                    onBroadcastComplete(broadcastResult);
+                    result.complete(broadcastResult);
+                }
+            });
+        }
+
+        release(new ArrayList<>(queues.values()));
+        return result;
+    }
+
+    /**
+     * Release held queues so the writes arrive together. Without latency
+     * estimates every queue is released at once. Doesn't allocate, so it can
+     * run on every clock tick.
+     *
+     * @param queues Queues held once each
+     */
+    public void release(List<GattCommandQueue> queues) {
+        LatencySource latencies = latencySource;
+        GattCommandQueue.Scheduler scheduler = staggerScheduler;
+        int count = queues.size();
+        long slowest = 0;
+        if (latencies != null && scheduler != null && count > 1) {
+            for (int i = 0; i < count; i++) {
+                long latency = latencies.oneWayNanos(queues.get(i).getAddress());
+                slowest = Math.max(slowest, Math.min(latency, MAX_STAGGER_NANOS));
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            GattCommandQueue queue = queues.get(i);
+            long delayMillis = 0;
+            if (slowest > 0) {
+                long latency = Math.max(0, latencies.oneWayNanos(queue.getAddress()));
+                delayMillis = Math.round(Math.max(0, slowest - latency) / 1e6);
+            }
+            if (delayMillis > 0) {
+                scheduler.schedule(queue.getReleaseTask(), delayMillis);
+            } else {
+                queue.release();
+            }
+        }
+    }
+
+    /**
+     * Stagger broadcasts by link latency
+     *
+     * @param scheduler Runs the delayed releases
+     * @param latencies Latency of each device, null to release all at once
+     */
+    public void setLatencySource(GattCommandQueue.Scheduler scheduler, LatencySource latencies) {
+        this.staggerScheduler = scheduler;
+        this.latencySource = latencies;
+    }
+
+    private void onBroadcastComplete(BroadcastResult result) {
+        long spread = result.getSpreadNanos();
+        lastResult = result;
+        if (spread > maxSpreadNanos) {
+            maxSpreadNanos = spread;
+        }
+        if (!result.isAllSucceeded()) {
+            Log.w(TAG, "Broadcast failed on " + result.getFailedDevices());
+        }
+
+        List<BroadcastListener> snapshot;
+        synchronized (listeners) {
+            snapshot = new ArrayList<>(listeners);
+        }
+        for (BroadcastListener listener : snapshot) {
+            listener.onBroadcastComplete(result);
+        }
+    }
+
+    public void addBroadcastListener(BroadcastListener listener) {
+        synchronized (listeners) {
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+        }
+    }
+
+    public void removeBroadcastListener(BroadcastListener listener) {
+        synchronized (listeners) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Get the result of the most recently completed broadcast
+     *
+     * @return The last result, or null if nothing was broadcast yet
+     */
+    public BroadcastResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Get the largest completion spread seen since the last reset
+     *
+     * @return Spread in nanoseconds
+     */
+    public long getMaxSpreadNanos() {
+        return maxSpreadNanos;
+    }
+
+    public void resetStatistics() {
+        lastResult = null;
+        maxSpreadNanos = 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Delta encoder for the per-digit clock protocol of a single board.
+ * Each clock digit is set with a position command followed by a digit
+ * command. The encoder remembers the digits the board is showing and only
+ * emits the position/digit pairs that changed, which is usually just the
+ * seconds-units digit. After a failed write or a reconnect the board state is
+ * unknown, so the next frame carries all four pairs again.
+ */
+public class ClockFrameEncoder {
+
+    // Two bytes (position, digit) for each of the four clock digits
+    public static final int MAX_FRAME_LENGTH = 8;
+
+    private static final byte[] POSITIONS = {
+            BLECommandUtil.COMMAND_CLOCK_MIN1_POS,
+            BLECommandUtil.COMMAND_CLOCK_MIN2_POS,
+            BLECommandUtil.COMMAND_CLOCK_SEC1_POS,
+            BLECommandUtil.COMMAND_CLOCK_SEC2_POS
+    };
+
+    private static final int UNKNOWN = -1;
+
+    private final int[] shownDigits = { UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN };
+
+    /**
+     * Encode the pairs needed to bring the board to the given time
+     *
+     * @param minutes Minutes to display (0-99)
+     * @param seconds Seconds to display (0-59)
+     * @param out     Buffer of at least {@link #MAX_FRAME_LENGTH} bytes
+     * @return Number of bytes written to out, 0 if the board is up to date
+     */
+    public synchronized int encode(int minutes, int seconds, byte[] out) {
+        int length = 0;
+        length = encodeDigit(0, minutes / 10, out, length);
+        length = encodeDigit(1, minutes % 10, out, length);
+        length = encodeDigit(2, seconds / 10, out, length);
+        length = encodeDigit(3, seconds % 10, out, length);
+        return length;
+    }
+
+    private int encodeDigit(int position, int digit, byte[] out, int offset) {
+        digit = Math.min(Math.max(digit, 0), 9);
+        if (shownDigits[position] == digit) {
+            return offset;
+        }
+        shownDigits[position] = digit;
+        out[offset] = POSITIONS[position];
+        out[offset + 1] = (byte) (BLECommandUtil.COMMAND_DIGIT_0 + digit);
+        return offset + 2;
+    }
+
+    /**
+     * Forget what the board shows so the next frame is a full one. Called when a
+     * write fails or the board reconnects.
+     */
+    public synchronized void invalidate() {
+        for (int i = 0; i < shownDigits.length; i++) {
+            shownDigits[i] = UNKNOWN;
+        }
+    }
+}
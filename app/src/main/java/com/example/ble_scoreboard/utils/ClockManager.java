@@ -1,14 +1,24 @@
 package com.example.ble_scoreboard.utils;
 
 import android.os.Handler;
-import android.os.Looper;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * Utility class for managing game clock and shot clock
+ * Utility class for managing game clock and shot clock. The time itself is
+ * kept by a {@link GameClock} on SystemClock.elapsedRealtimeNanos, the
+ * handler ticks only redraw and send it.
+ *
+ * Ticks and expiry run on a dedicated high-priority thread, so a busy main
+ * thread can't hold up the clock or the horn. The exact instants the game and
+ * shot clocks run out are scheduled on their own. {@link ExpiryListener}s hear
+ * about them on the clock thread, {@link ClockUpdateListener}s on the main
+ * thread, batched per frame.
  */
 public class ClockManager {
     private static final String TAG = "ClockManager";
@@ -29,6 +39,7 @@ public class ClockManager {
     private int seconds;
     private int milliseconds;
     private int shotClock;
+    private int shotTenths;
 
     // Individual digit variables as shown in the block-based code
     private int min1; // First digit of minutes
@@ -41,17 +52,40 @@ public class ClockManager {
     private int shot1; // First digit of shot clock
     private int shot2; // Second digit of shot clock
 
-    // Clock state
-    private int clockState;
+    // Clock state, changed on the clock thread when the game clock runs out
+    private volatile int clockState;
     private boolean shotClockEnabled;
 
-    // Listeners
-    private List<ClockUpdateListener> listeners = new ArrayList<>();
+    // Clock update listeners, called on the main thread but registered from anywhere
+    private final List<ClockUpdateListener> listeners = new CopyOnWriteArrayList<>();
 
-    // Handler for timer
-    private Handler handler = new Handler(Looper.getMainLooper());
+    // Called on the clock thread the moment a clock runs out
+    private final List<ExpiryListener> expiryListeners = new CopyOnWriteArrayList<>();
+
+    // Called whenever a clock starts, stops or is set
+    private final List<AnchorListener> anchorListeners = new CopyOnWriteArrayList<>();
+
+    // Monotonic time, not affected by handler delays or wall clock changes
+    private final GameClock gameClock = new GameClock(SystemClock::elapsedRealtimeNanos);
+
+    // Ticks and expiry run here, away from layout passes on the main thread
+    private final HandlerThread clockThread = startClockThread();
+    private final Handler handler = new Handler(clockThread.getLooper());
     private Runnable clockRunnable;
-    private static final int TICK_INTERVAL = 100; // 100ms interval - better for BLE stability
+    private Runnable expiryRunnable;
+
+    // Clock updates reach the main thread once per frame at most
+    private final EventDispatcher eventDispatcher = new EventDispatcher();
+    private boolean updatePending;
+    private final Runnable deliverClockUpdate = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (ClockManager.this) {
+                updatePending = false;
+            }
+            notifyClockUpdate();
+        }
+    };
 
     // Singleton instance
     private static ClockManager instance;
@@ -64,88 +98,177 @@ public class ClockManager {
     }
 
     private ClockManager() {
-        resetToDefaults();
         initializeClockRunnable();
+        resetToDefaults();
+    }
+
+    private static HandlerThread startClockThread() {
+        HandlerThread thread = new HandlerThread("GameClock", Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        thread.start();
+        return thread;
     }
 
     private void initializeClockRunnable() {
         clockRunnable = new Runnable() {
             @Override
             public void run() {
-                if (clockState == STATE_RUNNING) {
-                    decrementClock();
-                    updateDigitVariables();
-                    notifyClockUpdate();
-                    handler.postDelayed(this, TICK_INTERVAL);
+                synchronized (ClockManager.this) {
+                    if (!gameClock.isRunning() && !gameClock.isShotRunning()) {
+                        return;
+                    }
+                    long delayNanos = gameClock.onTick();
+                    refreshFromGameClock();
+                    if (delayNanos >= 0) {
+                        postAfter(clockRunnable, delayNanos);
+                    }
                 }
+                postClockUpdate();
+            }
+        };
+        expiryRunnable = new Runnable() {
+            @Override
+            public void run() {
+                onExpiryDue();
             }
         };
     }
 
-    public void resetToDefaults() {
-        minutes = DEFAULT_GAME_MINUTES;
-        seconds = DEFAULT_GAME_SECONDS;
-        milliseconds = DEFAULT_MSEC;
-        shotClock = DEFAULT_SHOT_CLOCK;
-        clockState = STATE_STOPPED;
-        shotClockEnabled = true;
-        updateDigitVariables();
+    // Post to the clock thread, rounded up so it never fires before the instant
+    private void postAfter(Runnable task, long delayNanos) {
+        handler.postDelayed(task, (delayNanos + 999_999L) / 1_000_000L);
     }
 
-    public void startClock() {
-        if (clockState != STATE_RUNNING) {
-            clockState = STATE_RUNNING;
-            handler.post(clockRunnable);
-            notifyClockStateChange();
+    // Schedule the next instant the game or shot clock runs out
+    private synchronized void scheduleExpiry() {
+        handler.removeCallbacks(expiryRunnable);
+        long game = gameClock.nanosUntilGameExpiry();
+        long shot = gameClock.nanosUntilShotExpiry();
+        long next = game < 0 ? shot : shot < 0 ? game : Math.min(game, shot);
+        if (next >= 0) {
+            postAfter(expiryRunnable, next);
         }
     }
 
-    public void stopClock() {
-        if (clockState == STATE_RUNNING) {
-            clockState = STATE_STOPPED;
-            handler.removeCallbacks(clockRunnable);
-            notifyClockStateChange();
+    // Runs on the clock thread at an expiry instant
+    private void onExpiryDue() {
+        boolean shotExpired;
+        boolean gameExpired;
+        synchronized (this) {
+            shotExpired = gameClock.expireShotIfDue();
+            gameExpired = gameClock.expireGameIfDue();
+            if (gameExpired) {
+                clockState = STATE_STOPPED;
+                handler.removeCallbacks(clockRunnable);
+                Log.d(TAG, "Game clock expired, tick jitter mean " + gameClock.getMeanJitterNanos() / 1000
+                        + "us max " + gameClock.getMaxJitterNanos() / 1000 + "us");
+            }
+            refreshFromGameClock();
+            scheduleExpiry();
+        }
+
+        // The horn goes out from here, before the main thread hears about it
+        for (ExpiryListener listener : expiryListeners) {
+            if (gameExpired) {
+                listener.onClockExpired(false);
+            }
+            if (shotExpired) {
+                listener.onClockExpired(true);
+            }
+        }
+        if (gameExpired || shotExpired) {
+            notifyAnchor();
+        }
+        postClockUpdate();
+        if (shotExpired) {
+            eventDispatcher.dispatch(this::notifyShotClockExpired);
+        }
+        if (gameExpired) {
+            // Stopped itself at zero, listeners hear it like any other stop
+            eventDispatcher.dispatch(this::notifyClockStateChange);
+            eventDispatcher.dispatch(this::notifyGameClockExpired);
         }
     }
 
-    public void pauseClock() {
-        if (clockState == STATE_RUNNING) {
-            clockState = STATE_PAUSED;
+    // Queue one clock update for the main thread unless one is waiting already
+    private void postClockUpdate() {
+        synchronized (this) {
+            if (updatePending) {
+                return;
+            }
+            updatePending = true;
+        }
+        eventDispatcher.dispatch(deliverClockUpdate);
+    }
+
+    public void resetToDefaults() {
+        synchronized (this) {
             handler.removeCallbacks(clockRunnable);
-            notifyClockStateChange();
+            handler.removeCallbacks(expiryRunnable);
+            gameClock.stop();
+            gameClock.setGameMillis((DEFAULT_GAME_MINUTES * 60 + DEFAULT_GAME_SECONDS) * 1000L + DEFAULT_MSEC);
+            gameClock.setShotMillis(DEFAULT_SHOT_CLOCK * 1000L);
+            gameClock.setShotClockEnabled(true);
+            gameClock.resetStats();
+            clockState = STATE_STOPPED;
+            shotClockEnabled = true;
+            refreshFromGameClock();
         }
+        notifyAnchor();
     }
 
-    private void decrementClock() {
-        // Decrease milliseconds by 100ms (1 tenth of a second)
-        milliseconds -= 100;
+    public void startClock() {
+        synchronized (this) {
+            if (clockState == STATE_RUNNING) {
+                return;
+            }
+            long delayNanos = gameClock.start();
+            if (delayNanos < 0) {
+                return;
+            }
+            clockState = STATE_RUNNING;
+            // The shot clock may already be ticking on its own
+            handler.removeCallbacks(clockRunnable);
+            postAfter(clockRunnable, delayNanos);
+            scheduleExpiry();
+        }
+        notifyAnchor();
+        notifyClockStateChange();
+    }
 
-        // Handle millisecond wrap-around
-        if (milliseconds < 0) {
-            milliseconds = 900; // Reset to 900ms
-            seconds--;
+    public void stopClock() {
+        haltClock(STATE_STOPPED);
+    }
 
-            // Decrement shot clock on each second
-            if (shotClockEnabled && shotClock > 0) {
-                shotClock--;
-                updateShotClockDigits();
-            }
+    public void pauseClock() {
+        haltClock(STATE_PAUSED);
+    }
 
-            // Handle seconds wrap-around
-            if (seconds < 0) {
-                seconds = 59;
-                minutes--;
-
-                // Handle clock reaching zero
-                if (minutes < 0) {
-                    clockState = STATE_STOPPED;
-                    minutes = 0;
-                    seconds = 0;
-                    milliseconds = 0;
-                    notifyGameClockExpired();
-                }
+    private void haltClock(int state) {
+        synchronized (this) {
+            if (clockState != STATE_RUNNING) {
+                return;
             }
+            gameClock.stop();
+            clockState = state;
+            handler.removeCallbacks(clockRunnable);
+            handler.removeCallbacks(expiryRunnable);
+            refreshFromGameClock();
         }
+        notifyAnchor();
+        notifyClockStateChange();
+    }
+
+    // Take the displayed values from the game clock, truncated to tenths
+    private void refreshFromGameClock() {
+        long remaining = gameClock.getGameMillis();
+        minutes = (int) (remaining / 60000);
+        seconds = (int) (remaining / 1000 % 60);
+        milliseconds = (int) (remaining % 1000 / 100 * 100);
+        long shotRemaining = gameClock.getShotMillis();
+        shotClock = (int) (shotRemaining / 1000);
+        shotTenths = shotRemaining < GameClock.SHOT_TENTHS_BELOW_MILLIS
+                ? (int) (shotRemaining % 1000 / 100) : ScoreboardFrame.TENTHS_NONE;
+        updateDigitVariables();
     }
 
     // Update individual digit variables
@@ -168,18 +291,26 @@ public class ClockManager {
 
     // Set game clock
     public void setGameClock(int minutes, int seconds) {
-        this.minutes = Math.min(Math.max(minutes, 0), 99); // Clamp between 0-99
-        this.seconds = Math.min(Math.max(seconds, 0), 59); // Clamp between 0-59
-        this.milliseconds = 0;
-        updateDigitVariables();
-        notifyClockUpdate();
+        minutes = Math.min(Math.max(minutes, 0), 99); // Clamp between 0-99
+        seconds = Math.min(Math.max(seconds, 0), 59); // Clamp between 0-59
+        synchronized (this) {
+            gameClock.setGameMillis((minutes * 60 + seconds) * 1000L);
+            refreshFromGameClock();
+            scheduleExpiry();
+        }
+        notifyAnchor();
+        postClockUpdate();
     }
 
     // Set shot clock
     public void setShotClock(int seconds) {
-        this.shotClock = Math.min(Math.max(seconds, 0), 99); // Clamp between 0-99
-        updateShotClockDigits();
-        notifyClockUpdate();
+        synchronized (this) {
+            gameClock.setShotMillis(Math.min(Math.max(seconds, 0), 99) * 1000L); // Clamp between 0-99
+            refreshFromGameClock();
+            scheduleExpiry();
+        }
+        notifyAnchor();
+        postClockUpdate();
     }
 
     // Reset shot clock to standard values
@@ -191,62 +322,128 @@ public class ClockManager {
         setShotClock(24);
     }
 
+    /**
+     * Start the shot clock on its own, also while the game clock is stopped.
+     * Matches BLECommandUtil.COMMAND_START_SHOT_CLOCK on the board.
+     */
+    public void startShotClock() {
+        synchronized (this) {
+            long delayNanos = gameClock.startShot();
+            if (delayNanos < 0) {
+                return;
+            }
+            handler.removeCallbacks(clockRunnable);
+            postAfter(clockRunnable, delayNanos);
+            scheduleExpiry();
+        }
+        notifyAnchor();
+        postClockUpdate();
+    }
+
+    /**
+     * Stop only the shot clock, matches BLECommandUtil.COMMAND_STOP_SHOT_CLOCK
+     */
+    public void stopShotClock() {
+        synchronized (this) {
+            gameClock.stopShot();
+            if (!gameClock.isRunning()) {
+                handler.removeCallbacks(clockRunnable);
+            }
+            refreshFromGameClock();
+            scheduleExpiry();
+        }
+        notifyAnchor();
+        postClockUpdate();
+    }
+
+    /**
+     * Put the shot clock back to 24 without changing whether it runs,
+     * matches BLECommandUtil.COMMAND_RESET_SHOT_CLOCK
+     */
+    public void resetShotClock() {
+        setShotClock(DEFAULT_SHOT_CLOCK);
+    }
+
     // Get current clock values
-    public int getMinutes() {
+    public synchronized int getMinutes() {
         return minutes;
     }
 
-    public int getSeconds() {
+    public synchronized int getSeconds() {
         return seconds;
     }
 
-    public int getMilliseconds() {
+    public synchronized int getMilliseconds() {
         return milliseconds;
     }
 
-    public int getShotClock() {
+    public synchronized int getShotClock() {
         return shotClock;
     }
 
     // Get individual digit values
-    public int getMin1() {
+    public synchronized int getMin1() {
         return min1;
     }
 
-    public int getMin2() {
+    public synchronized int getMin2() {
         return min2;
     }
 
-    public int getSec1() {
+    public synchronized int getSec1() {
         return sec1;
     }
 
-    public int getSec2() {
+    public synchronized int getSec2() {
         return sec2;
     }
 
-    public int getMSec() {
+    public synchronized int getMSec() {
         return mSec;
     }
 
-    public int getShot1() {
+    public synchronized int getShot1() {
         return shot1;
     }
 
-    public int getShot2() {
+    public synchronized int getShot2() {
         return shot2;
     }
 
+    /**
+     * Shot clock tenths, shown below five seconds
+     *
+     * @return 0-9, or ScoreboardFrame.TENTHS_NONE while whole seconds are shown
+     */
+    public synchronized int getShotTenths() {
+        return shotTenths;
+    }
+
+    public boolean isShotClockRunning() {
+        return gameClock.isShotRunning();
+    }
+
     public int getClockState() {
         return clockState;
     }
 
-    public boolean isShotClockEnabled() {
+    public synchronized boolean isShotClockEnabled() {
         return shotClockEnabled;
     }
 
-    public void setShotClockEnabled(boolean enabled) {
+    public synchronized void setShotClockEnabled(boolean enabled) {
         this.shotClockEnabled = enabled;
+        gameClock.setShotClockEnabled(enabled);
+        scheduleExpiry();
+    }
+
+    /**
+     * The underlying clock, for its tick jitter and drift statistics
+     *
+     * @return The game clock
+     */
+    public GameClock getGameClock() {
+        return gameClock;
     }
 
     // Register for clock updates
@@ -260,9 +457,61 @@ public class ClockManager {
         listeners.remove(listener);
     }
 
+    // Register to hear about a clock running out on the clock thread
+    public void addExpiryListener(ExpiryListener listener) {
+        if (!expiryListeners.contains(listener)) {
+            expiryListeners.add(listener);
+        }
+    }
+
+    public void removeExpiryListener(ExpiryListener listener) {
+        expiryListeners.remove(listener);
+    }
+
+    // Register to hear the clock values each time a clock starts, stops or is set
+    public void addAnchorListener(AnchorListener listener) {
+        if (!anchorListeners.contains(listener)) {
+            anchorListeners.add(listener);
+        }
+    }
+
+    public void removeAnchorListener(AnchorListener listener) {
+        anchorListeners.remove(listener);
+    }
+
+    // Tell anchor listeners the exact clock values right after a change
+    private void notifyAnchor() {
+        if (anchorListeners.isEmpty()) {
+            return;
+        }
+        long gameMillis;
+        long shotMillis;
+        boolean gameRunning;
+        boolean shotRunning;
+        synchronized (this) {
+            gameMillis = gameClock.getGameMillis();
+            shotMillis = gameClock.getShotMillis();
+            gameRunning = gameClock.isRunning();
+            shotRunning = gameClock.isShotRunning();
+        }
+        for (AnchorListener listener : anchorListeners) {
+            listener.onClockAnchor(gameMillis, shotMillis, gameRunning, shotRunning);
+        }
+    }
+
     private void notifyClockUpdate() {
+        int m;
+        int s;
+        int ms;
+        int shot;
+        synchronized (this) {
+            m = minutes;
+            s = seconds;
+            ms = milliseconds;
+            shot = shotClock;
+        }
         for (ClockUpdateListener listener : listeners) {
-            listener.onClockUpdate(minutes, seconds, milliseconds, shotClock);
+            listener.onClockUpdate(m, s, ms, shot);
         }
     }
 
@@ -294,4 +543,21 @@ public class ClockManager {
 
         void onShotClockExpired();
     }
+
+    /**
+     * Hears about a clock running out on the clock thread, within a few ms
+     * of zero. Must not block.
+     */
+    public interface ExpiryListener {
+        void onClockExpired(boolean shotClock);
+    }
+
+    /**
+     * Hears the clock values at the instant a clock starts, stops, is set or
+     * runs out, on the thread that made the change. A board that counts down
+     * itself only needs these.
+     */
+    public interface AnchorListener {
+        void onClockAnchor(long gameMillis, long shotMillis, boolean gameRunning, boolean shotRunning);
+    }
 }
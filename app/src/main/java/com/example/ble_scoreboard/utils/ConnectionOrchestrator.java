@@ -0,0 +1,206 @@
+package com.example.ble_scoreboard.utils;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings up several scoreboard gateways concurrently.
+ * The Android stack gets unreliable with too many simultaneous connectGatt
+ * calls, so at most {@code maxInFlight} connections are attempted at once and
+ * the next device starts as soon as one becomes ready or fails. The time from
+ * the request until each device is ready is recorded.
+ */
+public class ConnectionOrchestrator {
+    private static final String TAG = "ConnectionOrchestrator";
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 2;
+    private static final long DEFAULT_CONNECT_TIMEOUT = 10000; // ms before a slot is given up
+
+    // Starts a connection attempt, returns false if it could not be started
+    public interface Connector {
+        boolean connect(String address);
+    }
+
+    // Called when an attempt is abandoned so the connection can be torn down
+    public interface TimeoutHandler {
+        void onConnectTimeout(String address);
+    }
+
+    private final Connector connector;
+    private final GattCommandQueue.Scheduler scheduler;
+    private TimeoutHandler timeoutHandler;
+
+    private final ArrayDeque<String> waiting = new ArrayDeque<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private final Map<String, Runnable> timeouts = new HashMap<>();
+    private final Map<String, Long> requestNanos = new HashMap<>();
+    private final Map<String, Long> timeToReadyNanos = new HashMap<>();
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    public ConnectionOrchestrator(Connector connector, GattCommandQueue.Scheduler scheduler) {
+        this.connector = connector;
+        this.scheduler = scheduler;
+    }
+
+    public void setTimeoutHandler(TimeoutHandler timeoutHandler) {
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    /**
+     * Connect to all given devices, keeping at most maxInFlight attempts open
+     *
+     * @param addresses The device addresses to bring up
+     */
+    public void connectAll(List<String> addresses) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (String address : addresses) {
+                if (address == null || address.isEmpty() || inFlight.contains(address)
+                        || waiting.contains(address)) {
+                    continue;
+                }
+                waiting.add(address);
+                requestNanos.put(address, now);
+                timeToReadyNanos.remove(address);
+            }
+        }
+        startNext();
+    }
+
+    /**
+     * Report that a device finished service discovery and can take commands
+     *
+     * @param address The device address
+     */
+    public void onDeviceReady(String address) {
+        synchronized (this) {
+            Long requested = requestNanos.remove(address);
+            if (requested != null) {
+                long elapsed = System.nanoTime() - requested;
+                timeToReadyNanos.put(address, elapsed);
+                Log.d(TAG, "Device " + address + " ready after " + (elapsed / 1000000) + " ms");
+            }
+            if (!finish(address)) {
+                return;
+            }
+        }
+        startNext();
+    }
+
+    /**
+     * Report that a connection attempt failed
+     *
+     * @param address The device address
+     */
+    public void onDeviceFailed(String address) {
+        synchronized (this) {
+            requestNanos.remove(address);
+            if (!finish(address)) {
+                return;
+            }
+        }
+        Log.w(TAG, "Connection attempt failed for device: " + address);
+        startNext();
+    }
+
+    // Free the slot held by a device, returns false if it wasn't ours
+    private boolean finish(String address) {
+        if (!inFlight.remove(address)) {
+            return false;
+        }
+        Runnable timeout = timeouts.remove(address);
+        if (timeout != null) {
+            scheduler.cancel(timeout);
+        }
+        return true;
+    }
+
+    // Fill free slots with waiting devices
+    private void startNext() {
+        while (true) {
+            String address;
+            synchronized (this) {
+                if (inFlight.size() >= maxInFlight || waiting.isEmpty()) {
+                    return;
+                }
+                address = waiting.poll();
+                inFlight.add(address);
+                Runnable timeout = () -> {
+                    Log.w(TAG, "Connection attempt timed out for device: " + address);
+                    if (timeoutHandler != null) {
+                        timeoutHandler.onConnectTimeout(address);
+                    }
+                    onDeviceFailed(address);
+                };
+                timeouts.put(address, timeout);
+                scheduler.schedule(timeout, connectTimeout);
+            }
+
+            Log.d(TAG, "Starting connection to " + address);
+            if (!connector.connect(address)) {
+                onDeviceFailed(address);
+            }
+        }
+    }
+
+    /**
+     * Drop every waiting attempt and stop tracking the ones in flight
+     */
+    public synchronized void cancel() {
+        waiting.clear();
+        for (Runnable timeout : timeouts.values()) {
+            scheduler.cancel(timeout);
+        }
+        timeouts.clear();
+        inFlight.clear();
+        requestNanos.clear();
+    }
+
+    /**
+     * Set how many connection attempts may be open at the same time
+     *
+     * @param maxInFlight The limit, at least 1
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        synchronized (this) {
+            this.maxInFlight = Math.max(1, maxInFlight);
+        }
+        startNext();
+    }
+
+    public synchronized int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public synchronized void setConnectTimeout(long timeoutMillis) {
+        this.connectTimeout = timeoutMillis;
+    }
+
+    /**
+     * Get the time from the connect request until the device was ready
+     *
+     * @param address The device address
+     * @return Time in milliseconds, or -1 if the device hasn't become ready
+     */
+    public synchronized long getTimeToReadyMillis(String address) {
+        Long elapsed = timeToReadyNanos.get(address);
+        return elapsed != null ? elapsed / 1000000 : -1;
+    }
+
+    /**
+     * Check if a device is waiting for a slot or currently connecting
+     *
+     * @param address The device address
+     * @return true if the device is still being brought up
+     */
+    public synchronized boolean isPending(String address) {
+        return inFlight.contains(address) || waiting.contains(address);
+    }
+}
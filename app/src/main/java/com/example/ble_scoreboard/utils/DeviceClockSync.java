@@ -0,0 +1,135 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Decides when a board counting the clock down itself needs a new anchor.
+ * The board starts from the anchor frame once it arrives, so it lags by the
+ * delay before the frame was applied, less any lead the anchor was sent
+ * with, and its oscillator drifts from then on.
+ * The delay is taken from the ack round trip, the drift is assumed from a
+ * ppm rating. A correction is due once the two add up to more than the
+ * threshold, when an anchor is never acked on a board that acks, or when a
+ * clock frame expired in the queue before it was sent.
+ *
+ * Times are System.nanoTime, like the ack tracker's.
+ */
+public class DeviceClockSync {
+
+    public static final long DEFAULT_THRESHOLD_NANOS = GameClock.TICK_NANOS;
+    public static final long DEFAULT_DRIFT_PPM = 1000; // ceramic resonators, no crystal
+
+    // An anchor that isn't acked by then is taken as lost
+    private static final long ANCHOR_ACK_TIMEOUT_NANOS = 1_000_000_000L;
+
+    private long thresholdNanos = DEFAULT_THRESHOLD_NANOS;
+    private long driftPpm = DEFAULT_DRIFT_PPM;
+
+    private boolean running;
+    private long anchorSentAtNanos = -1;
+    private long appliedAtNanos = -1;
+    private long applyDelayNanos;
+    private long leadNanos;
+
+    private long anchors;
+    private long expiredFrames;
+
+    /**
+     * Remember an anchor that was just sent
+     *
+     * @param now     System.nanoTime when it was encoded
+     * @param running true if a clock is counting down from it
+     */
+    public synchronized void onAnchorSent(long now, boolean running) {
+        onAnchorSent(now, running, 0);
+    }
+
+    /**
+     * Remember an anchor whose running clocks were set ahead by the expected
+     * link latency
+     *
+     * @param now       System.nanoTime when it was encoded
+     * @param running   true if a clock is counting down from it
+     * @param leadNanos How far ahead the running clocks were set
+     */
+    public synchronized void onAnchorSent(long now, boolean running, long leadNanos) {
+        this.running = running;
+        anchorSentAtNanos = now;
+        appliedAtNanos = -1;
+        applyDelayNanos = 0;
+        this.leadNanos = Math.max(0, leadNanos);
+        anchors++;
+    }
+
+    /**
+     * Take in the newest clock frame ack
+     *
+     * @param ackedAtNanos   When the ack arrived, from the ack tracker
+     * @param roundTripNanos Send to ack time of that frame
+     */
+    public synchronized void onClockAck(long ackedAtNanos, long roundTripNanos) {
+        if (anchorSentAtNanos < 0 || appliedAtNanos >= 0 || ackedAtNanos < anchorSentAtNanos) {
+            return;
+        }
+        // The board applied the frame about half a round trip before its ack came back
+        appliedAtNanos = ackedAtNanos - roundTripNanos / 2;
+        applyDelayNanos = Math.max(0, appliedAtNanos - anchorSentAtNanos);
+    }
+
+    /**
+     * How far the board may be from the phone's clock by now
+     *
+     * @param now System.nanoTime
+     * @return The estimated error in nanoseconds, 0 while the clocks are stopped
+     */
+    public synchronized long estimatedErrorNanos(long now) {
+        if (!running || anchorSentAtNanos < 0) {
+            return 0;
+        }
+        long countingSince = appliedAtNanos >= 0 ? appliedAtNanos : anchorSentAtNanos;
+        // Until the ack arrives the lead is taken to have matched the delay
+        long applyError = appliedAtNanos >= 0 ? Math.abs(applyDelayNanos - leadNanos) : 0;
+        return applyError + Math.max(0, now - countingSince) / 1_000_000L * driftPpm;
+    }
+
+    /**
+     * Check if the board should get a new anchor
+     *
+     * @param now       System.nanoTime
+     * @param boardAcks true if the board acks frames
+     * @return true if a correction is due
+     */
+    public synchronized boolean needsCorrection(long now, boolean boardAcks) {
+        if (!running || anchorSentAtNanos < 0) {
+            return false;
+        }
+        if (boardAcks && appliedAtNanos < 0 && now - anchorSentAtNanos > ANCHOR_ACK_TIMEOUT_NANOS) {
+            return true;
+        }
+        return estimatedErrorNanos(now) > thresholdNanos;
+    }
+
+    /**
+     * Take in the queue's count of clock frames that expired unsent. Nothing
+     * follows a lost anchor, so the board needs a new one right away.
+     *
+     * @param expired The count from GattCommandQueue.getExpiredClockFrames
+     * @return true if a frame expired since the last call
+     */
+    public synchronized boolean onExpiredClockFrames(long expired) {
+        // A new queue after a reconnect counts from zero again
+        boolean lost = expired > expiredFrames;
+        expiredFrames = expired;
+        return lost;
+    }
+
+    public synchronized void setThresholdNanos(long thresholdNanos) {
+        this.thresholdNanos = Math.max(1, thresholdNanos);
+    }
+
+    public synchronized void setDriftPpm(long driftPpm) {
+        this.driftPpm = Math.max(0, driftPpm);
+    }
+
+    public synchronized long getAnchors() {
+        return anchors;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.ble_scoreboard.utils;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connection state of a single scoreboard board.
+ * GATT callbacks arrive on Binder threads while commands are sent from the UI
+ * and clock threads, so the state is kept in an atomic reference and the
+ * per-connection objects are volatile. A board only accepts commands once it
+ * is READY, and its command utility and queue are published before that
+ * transition, so a sender that sees READY also sees a usable queue.
+ */
+public class DeviceConnection {
+
+    public enum State {
+        CONNECTING, // connectGatt issued, waiting for the link
+        DISCOVERING, // link up, discovering the HM-10 service
+        READY, // service found, commands can be sent
+        DISCONNECTING, // operator asked to disconnect
+        BACKOFF // dropped, waiting for the next reconnect attempt
+    }
+
+    // Link setup after discovery, queued writes are held until it is DONE
+    public enum Setup {
+        MTU, // waiting for the MTU exchange
+        SUBSCRIBE, // enabling notifications for frame acks
+        DONE
+    }
+
+    private final String address;
+    private final AtomicReference<State> state;
+    private volatile BluetoothDevice device;
+    private volatile BluetoothGatt gatt;
+    private volatile BLECommandUtil commandUtil;
+    private volatile GattCommandQueue queue;
+    private volatile int connectionInterval = -1; // in 1.25 ms units
+    private volatile int phy = -1;
+    private volatile Setup setup = Setup.DONE;
+    private volatile InboundFrameParser inboundParser;
+
+    // Anchor bookkeeping for boards counting the clock down themselves
+    private final DeviceClockSync clockSync = new DeviceClockSync();
+
+    // Round trip and clock offset measured with pings
+    private final BoardTimeSync timeSync = new BoardTimeSync();
+
+    public DeviceConnection(String address, State initialState) {
+        this.address = address;
+        this.state = new AtomicReference<>(initialState);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public DeviceClockSync getClockSync() {
+        return clockSync;
+    }
+
+    public BoardTimeSync getTimeSync() {
+        return timeSync;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Check if the board can take commands. Lock-free, safe on the send path.
+     *
+     * @return true if the connection is READY
+     */
+    public boolean isReady() {
+        return state.get() == State.READY;
+    }
+
+    /**
+     * Move to a new state only if the connection is still in the expected one
+     *
+     * @param expected The state the caller saw
+     * @param next     The state to move to
+     * @return true if the transition happened
+     */
+    public boolean transition(State expected, State next) {
+        return state.compareAndSet(expected, next);
+    }
+
+    /**
+     * Move to a new state unconditionally
+     *
+     * @param next The state to move to
+     * @return The previous state
+     */
+    public State moveTo(State next) {
+        return state.getAndSet(next);
+    }
+
+    /**
+     * Publish the command path and mark the board READY
+     *
+     * @param commandUtil The command utility for the board
+     * @param queue       The write queue for the board
+     * @return true if the connection was still discovering
+     */
+    public boolean markReady(BLECommandUtil commandUtil, GattCommandQueue queue) {
+        this.commandUtil = commandUtil;
+        this.queue = queue;
+        return state.compareAndSet(State.DISCOVERING, State.READY);
+    }
+
+    /**
+     * Drop the link objects, failing any writes that were still queued
+     */
+    public void release() {
+        GattCommandQueue oldQueue = queue;
+        BLECommandUtil oldUtil = commandUtil;
+        queue = null;
+        commandUtil = null;
+        gatt = null;
+        connectionInterval = -1;
+        phy = -1;
+        setup = Setup.DONE;
+        timeSync.reset();
+        InboundFrameParser parser = inboundParser;
+        if (parser != null) {
+            parser.reset();
+        }
+        if (oldUtil != null) {
+            oldUtil.release();
+        }
+        if (oldQueue != null) {
+            oldQueue.clear();
+        }
+    }
+
+    public BluetoothDevice getDevice() {
+        return device;
+    }
+
+    public void setDevice(BluetoothDevice device) {
+        this.device = device;
+    }
+
+    public BluetoothGatt getGatt() {
+        return gatt;
+    }
+
+    public void setGatt(BluetoothGatt gatt) {
+        this.gatt = gatt;
+    }
+
+    // Only handed out while READY so callers never write to a half-built link
+    public BLECommandUtil getCommandUtil() {
+        return isReady() ? commandUtil : null;
+    }
+
+    public GattCommandQueue getQueue() {
+        return isReady() ? queue : null;
+    }
+
+    public int getConnectionInterval() {
+        return connectionInterval;
+    }
+
+    public void setConnectionInterval(int connectionInterval) {
+        this.connectionInterval = connectionInterval;
+    }
+
+    public Setup getSetup() {
+        return setup;
+    }
+
+    public void setSetup(Setup setup) {
+        this.setup = setup;
+    }
+
+    // Reassembles what the board notifies, fed on the GATT thread
+    public InboundFrameParser getInboundParser() {
+        return inboundParser;
+    }
+
+    public void setInboundParser(InboundFrameParser inboundParser) {
+        this.inboundParser = inboundParser;
+    }
+
+    public int getPhy() {
+        return phy;
+    }
+
+    public void setPhy(int phy) {
+        this.phy = phy;
+    }
+}
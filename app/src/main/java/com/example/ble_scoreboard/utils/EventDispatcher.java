@@ -0,0 +1,71 @@
+package com.example.ble_scoreboard.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+
+/**
+ * Delivers listener events on the main thread, batched per display frame.
+ * Events raised on the GATT thread are collected and run together from a
+ * single Choreographer frame callback, so a burst of connection events costs
+ * one main-thread wakeup and never interrupts a frame being drawn.
+ */
+public class EventDispatcher implements Choreographer.FrameCallback {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<Runnable> pending = new ArrayList<>();
+    private final ArrayList<Runnable> delivering = new ArrayList<>();
+    private boolean frameScheduled = false;
+
+    // Choreographer is per-thread, so the frame callback is posted from the main thread
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(EventDispatcher.this);
+        }
+    };
+
+    /**
+     * Queue an event for delivery on the next frame
+     *
+     * @param event The event to run on the main thread
+     */
+    public void dispatch(Runnable event) {
+        synchronized (pending) {
+            pending.add(event);
+            if (frameScheduled) {
+                return;
+            }
+            frameScheduled = true;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            scheduleFrame.run();
+        } else {
+            mainHandler.post(scheduleFrame);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        synchronized (pending) {
+            delivering.addAll(pending);
+            pending.clear();
+            frameScheduled = false;
+        }
+        for (int i = 0; i < delivering.size(); i++) {
+            delivering.get(i).run();
+        }
+        delivering.clear();
+    }
+
+    /**
+     * Drop events that haven't been delivered yet
+     */
+    public void clear() {
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+}
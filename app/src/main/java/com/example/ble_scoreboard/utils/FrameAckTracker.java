@@ -0,0 +1,299 @@
+package com.example.ble_scoreboard.utils;
+
+import android.util.Log;
+
+/**
+ * Retransmits binary scoreboard frames the board hasn't acknowledged.
+ * Firmware with frame support echoes the sequence number of each frame it
+ * applied through a notification. Frames carry absolute values, so only the
+ * newest frame for each slot matters: the clock has one slot and every team
+ * state field has its own. A newer frame replaces the one waiting in its slot,
+ * and the frame is resent with its original sequence number, which makes a
+ * duplicate harmless on the board.
+ *
+ * A frame of a running clock is out of date by the time its ack is overdue,
+ * so it is never resent. In streaming mode the next tick replaces it, in
+ * device clock mode the stale clock listener sends a fresh anchor.
+ *
+ * The ack timeout and round trip run from the moment the queue hands the
+ * frame to the stack, not from when it was queued, so time spent behind other
+ * writes doesn't count. Frames are tagged with their slot and sequence for
+ * that. A frame the queue never sends keeps the time it was queued.
+ *
+ * Boards on older firmware never ack, so nothing is retransmitted until the
+ * first ack has been seen on the connection.
+ */
+public class FrameAckTracker {
+    private static final String TAG = "FrameAckTracker";
+
+    public static final int SLOT_CLOCK = 0;
+    private static final int SLOT_COUNT = 1 + ScoreboardFrame.FIELD_COUNT;
+
+    private static final long DEFAULT_ACK_TIMEOUT = 150; // ms, a few connection intervals
+    private static final int MAX_RETRANSMITS = 3;
+
+    // Told when a running clock frame went unacked and was given up
+    public interface StaleClockListener {
+        void onStaleClockFrame();
+    }
+
+    private final GattCommandQueue queue;
+    private final GattCommandQueue.Scheduler scheduler;
+    private final GameClock.TimeSource timeSource;
+    private volatile StaleClockListener staleClockListener;
+
+    // Newest unacked frame per slot, sequence -1 when the slot is idle
+    private final byte[][] frames = new byte[SLOT_COUNT][ScoreboardFrame.LENGTH];
+    private final int[] lengths = new int[SLOT_COUNT];
+    private final int[] sequences = new int[SLOT_COUNT];
+    private final int[] retransmits = new int[SLOT_COUNT];
+    private final long[] sentAtNanos = new long[SLOT_COUNT];
+    private final boolean[] horns = new boolean[SLOT_COUNT]; // resent in the horn lane
+    private boolean acksSeen;
+    private boolean timerScheduled;
+    private long ackTimeout = DEFAULT_ACK_TIMEOUT;
+
+    // When the newest clock frame was acked and how long after its last send
+    private long clockAckedAtNanos = -1;
+    private long clockRoundTripNanos = -1;
+
+    // Counters for diagnostics
+    private long ackedFrames;
+    private long retransmittedFrames;
+    private long lostFrames;
+    private long staleClockFrames;
+
+    private final Runnable ackTimeoutTask = new Runnable() {
+        @Override
+        public void run() {
+            onAckTimeout();
+        }
+    };
+
+    public FrameAckTracker(GattCommandQueue queue, GattCommandQueue.Scheduler scheduler) {
+        this(queue, scheduler, System::nanoTime);
+    }
+
+    /**
+     * @param queue      Queue the frames are resent through
+     * @param scheduler  Runs the ack timeout
+     * @param timeSource Time for the ack timeout and round trips
+     */
+    public FrameAckTracker(GattCommandQueue queue, GattCommandQueue.Scheduler scheduler,
+            GameClock.TimeSource timeSource) {
+        this.queue = queue;
+        this.scheduler = scheduler;
+        this.timeSource = timeSource;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            sequences[i] = -1;
+        }
+        queue.setSendListener(this::onWriteSent);
+    }
+
+    /**
+     * Slot used by the set-field frames of a team state field
+     *
+     * @param field One of the ScoreboardFrame.FIELD_* constants
+     * @return The slot
+     */
+    public static int fieldSlot(int field) {
+        return 1 + field;
+    }
+
+    /**
+     * Queue tag for a frame, so the tracker hears when it is actually sent
+     *
+     * @param slot     {@link #SLOT_CLOCK} or a {@link #fieldSlot(int)}
+     * @param sequence The sequence number in the frame
+     * @return The tag to queue the frame with
+     */
+    public static int tag(int slot, int sequence) {
+        return slot << 8 | sequence & 0xFF;
+    }
+
+    /**
+     * Remember a frame that was just queued so it can be resent if no ack arrives.
+     * Queue it with its {@link #tag(int, int)} so the ack is timed from the send.
+     *
+     * @param slot     {@link #SLOT_CLOCK} or a {@link #fieldSlot(int)}
+     * @param source   The encoded frame, copied
+     * @param length   Length of the frame
+     * @param sequence The sequence number in the frame
+     */
+    public void onFrameSent(int slot, byte[] source, int length, int sequence) {
+        synchronized (this) {
+            System.arraycopy(source, 0, frames[slot], 0, length);
+            lengths[slot] = length;
+            sequences[slot] = sequence & 0xFF;
+            horns[slot] = slot == SLOT_CLOCK && (source[7] & ScoreboardFrame.FLAG_HORN) != 0;
+            retransmits[slot] = 0;
+            sentAtNanos[slot] = timeSource.nanoTime(); // until the queue reports the send
+            if (!acksSeen || timerScheduled) {
+                return;
+            }
+            timerScheduled = true;
+        }
+        scheduler.schedule(ackTimeoutTask, ackTimeout);
+    }
+
+    // The queue handed a tagged frame to the stack, time its ack from now
+    private synchronized void onWriteSent(int tag) {
+        int slot = tag >>> 8;
+        if (slot < SLOT_COUNT && sequences[slot] == (tag & 0xFF)) {
+            sentAtNanos[slot] = timeSource.nanoTime();
+        }
+    }
+
+    /**
+     * Called when the board reports a sequence number it applied
+     *
+     * @param sequence The acknowledged sequence number
+     */
+    public synchronized void onAck(int sequence) {
+        acksSeen = true;
+        sequence &= 0xFF;
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (sequences[slot] == sequence) {
+                sequences[slot] = -1;
+                ackedFrames++;
+                if (slot == SLOT_CLOCK) {
+                    clockAckedAtNanos = timeSource.nanoTime();
+                    clockRoundTripNanos = clockAckedAtNanos - sentAtNanos[slot];
+                }
+            }
+        }
+    }
+
+    // Resend every frame whose ack is overdue, then wait for the next deadline
+    private void onAckTimeout() {
+        long nextDelayNanos = Long.MAX_VALUE;
+        boolean staleClock = false;
+        synchronized (this) {
+            timerScheduled = false;
+            long now = timeSource.nanoTime();
+            long timeoutNanos = ackTimeout * 1_000_000L;
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                if (sequences[slot] < 0) {
+                    continue;
+                }
+                long waited = now - sentAtNanos[slot];
+                if (waited < timeoutNanos) {
+                    nextDelayNanos = Math.min(nextDelayNanos, timeoutNanos - waited);
+                    continue;
+                }
+                if (slot == SLOT_CLOCK && isRunning(frames[slot])) {
+                    // Resending would show an old value, a newer frame has to replace it
+                    sequences[slot] = -1;
+                    staleClockFrames++;
+                    staleClock = true;
+                    continue;
+                }
+                if (retransmits[slot] >= MAX_RETRANSMITS) {
+                    Log.w(TAG, "No ack for frame " + sequences[slot] + " from " + queue.getAddress());
+                    sequences[slot] = -1;
+                    lostFrames++;
+                    continue;
+                }
+                retransmits[slot]++;
+                retransmittedFrames++;
+                sentAtNanos[slot] = now;
+                int tag = tag(slot, sequences[slot]);
+                if (horns[slot]) {
+                    // Keeps its priority, a resent horn must not wait behind other writes
+                    queue.offer(frames[slot], lengths[slot], true, GattCommandQueue.LANE_HORN, tag);
+                } else if (slot == SLOT_CLOCK) {
+                    queue.offerClockFrame(frames[slot], lengths[slot], false, tag);
+                } else {
+                    queue.offer(frames[slot], lengths[slot], false, GattCommandQueue.LANE_OPERATOR, tag);
+                }
+                nextDelayNanos = Math.min(nextDelayNanos, timeoutNanos);
+            }
+            if (nextDelayNanos != Long.MAX_VALUE) {
+                timerScheduled = true;
+            }
+        }
+        StaleClockListener listener = staleClockListener;
+        if (staleClock && listener != null) {
+            listener.onStaleClockFrame();
+        }
+        if (nextDelayNanos != Long.MAX_VALUE) {
+            scheduler.schedule(ackTimeoutTask, Math.max(1, nextDelayNanos / 1_000_000L));
+        }
+    }
+
+    private static boolean isRunning(byte[] clockFrame) {
+        return (clockFrame[7] & (ScoreboardFrame.FLAG_CLOCK_RUNNING | ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING)) != 0;
+    }
+
+    /**
+     * Stop waiting for acks, called when the link goes away
+     */
+    public void reset() {
+        scheduler.cancel(ackTimeoutTask);
+        synchronized (this) {
+            timerScheduled = false;
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                sequences[slot] = -1;
+                retransmits[slot] = 0;
+            }
+        }
+    }
+
+    public void setStaleClockListener(StaleClockListener staleClockListener) {
+        this.staleClockListener = staleClockListener;
+    }
+
+    public synchronized void setAckTimeout(long timeoutMillis) {
+        this.ackTimeout = Math.max(1, timeoutMillis);
+    }
+
+    public synchronized boolean isAwaitingAck() {
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            if (sequences[slot] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if the newest frame of a slot is still waiting for its ack
+     *
+     * @param slot {@link #SLOT_CLOCK} or a {@link #fieldSlot(int)}
+     * @return true if the board may not have applied it yet
+     */
+    public synchronized boolean isAwaitingAck(int slot) {
+        return sequences[slot] >= 0;
+    }
+
+    public synchronized boolean hasSeenAcks() {
+        return acksSeen;
+    }
+
+    // System.nanoTime of the last clock frame ack, -1 before the first
+    public synchronized long getClockAckedAtNanos() {
+        return clockAckedAtNanos;
+    }
+
+    // Time from the last send of that frame to its ack
+    public synchronized long getClockRoundTripNanos() {
+        return clockRoundTripNanos;
+    }
+
+    public synchronized long getAckedFrames() {
+        return ackedFrames;
+    }
+
+    public synchronized long getRetransmittedFrames() {
+        return retransmittedFrames;
+    }
+
+    public synchronized long getLostFrames() {
+        return lostFrames;
+    }
+
+    // Running clock frames given up without a resend
+    public synchronized long getStaleClockFrames() {
+        return staleClockFrames;
+    }
+}
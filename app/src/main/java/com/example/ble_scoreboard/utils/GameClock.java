@@ -0,0 +1,308 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * The game clock and shot clock as a countdown against a monotonic time
+ * source. The remaining time is worked out from the time of the last start,
+ * so a late tick can make a redraw late but can never lose time. Ticks are
+ * lined up with the tenth-second boundaries of the game clock, and their
+ * lateness is kept as jitter statistics. Running out is not left to the
+ * ticks: the owner asks for the exact expiry instants and schedules them.
+ *
+ * The shot clock has its own start and stop, so it can run while the game
+ * clock is stopped. Starting the game clock starts it too unless it is
+ * disabled, and stopping the game clock stops both.
+ *
+ * Has no Android dependencies so it can run against a fake time source in
+ * JVM tests.
+ */
+public class GameClock {
+
+    // One displayed tenth of a second
+    public static final long TICK_NANOS = 100_000_000L;
+
+    // The shot clock shows whole seconds above this and tenths below it
+    public static final long SHOT_TENTHS_BELOW_MILLIS = 5_000;
+
+    private static final long SECOND_NANOS = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Monotonic clock, SystemClock.elapsedRealtimeNanos on the device
+     */
+    public interface TimeSource {
+        long nanoTime();
+    }
+
+    // A countdown anchored at the time it was last set, started or stopped
+    private static final class Countdown {
+        long remainingNanos;
+        long anchorNanos;
+        boolean running;
+
+        long remaining(long now) {
+            return running ? Math.max(0, remainingNanos - (now - anchorNanos)) : remainingNanos;
+        }
+
+        void set(long nanos, long now) {
+            remainingNanos = Math.max(0, nanos);
+            anchorNanos = now;
+        }
+
+        void run(boolean run, long now) {
+            set(remaining(now), now);
+            running = run;
+        }
+    }
+
+    private final TimeSource timeSource;
+    private final Countdown game = new Countdown();
+    private final Countdown shot = new Countdown();
+    // Game clock running, the shot clock has its own flag
+    private boolean running;
+    private boolean shotClockEnabled = true;
+    private boolean expired;
+    private boolean shotExpired;
+    private long nextTickNanos;
+
+    // Tick statistics since the last resetStats
+    private long ticks;
+    private long missedTicks;
+    private long totalJitterNanos;
+    private long maxJitterNanos;
+    private long cumulativeLatenessNanos;
+
+    public GameClock(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Set the game clock
+     *
+     * @param millis Remaining time in milliseconds
+     */
+    public synchronized void setGameMillis(long millis) {
+        game.set(millis * NANOS_PER_MILLI, timeSource.nanoTime());
+        expired = false;
+    }
+
+    /**
+     * Set the shot clock
+     *
+     * @param millis Remaining time in milliseconds
+     */
+    public synchronized void setShotMillis(long millis) {
+        shot.set(millis * NANOS_PER_MILLI, timeSource.nanoTime());
+        shotExpired = false;
+    }
+
+    public synchronized void setShotClockEnabled(boolean enabled) {
+        shotClockEnabled = enabled;
+        if (!enabled) {
+            shot.run(false, timeSource.nanoTime());
+        }
+    }
+
+    /**
+     * Start the game clock, and the shot clock with it unless it is disabled
+     *
+     * @return Nanoseconds until the first tick, or -1 if the clock didn't start
+     */
+    public synchronized long start() {
+        long now = timeSource.nanoTime();
+        if (running || game.remaining(now) == 0) {
+            return -1;
+        }
+        running = true;
+        game.run(true, now);
+        if (shotClockEnabled && shot.remaining(now) > 0) {
+            shot.run(true, now);
+        }
+        return scheduleNextTick(now);
+    }
+
+    /**
+     * Freeze both clocks at their current values
+     */
+    public synchronized void stop() {
+        long now = timeSource.nanoTime();
+        running = false;
+        game.run(false, now);
+        shot.run(false, now);
+    }
+
+    /**
+     * Start only the shot clock
+     *
+     * @return Nanoseconds until the next tick, or -1 if the shot clock didn't
+     *         start
+     */
+    public synchronized long startShot() {
+        long now = timeSource.nanoTime();
+        if (shot.running || !shotClockEnabled || shot.remaining(now) == 0) {
+            return -1;
+        }
+        shot.run(true, now);
+        return scheduleNextTick(now);
+    }
+
+    /**
+     * Freeze only the shot clock
+     */
+    public synchronized void stopShot() {
+        shot.run(false, timeSource.nanoTime());
+    }
+
+    /**
+     * Called when a tick fires. Records how late it was.
+     *
+     * @return Nanoseconds until the next tick, or -1 if neither clock has time
+     *         left to count down
+     */
+    public synchronized long onTick() {
+        if (!running && !shot.running) {
+            return -1;
+        }
+        long now = timeSource.nanoTime();
+        long lateness = now - nextTickNanos;
+        ticks++;
+        cumulativeLatenessNanos += lateness;
+        long jitter = Math.abs(lateness);
+        totalJitterNanos += jitter;
+        maxJitterNanos = Math.max(maxJitterNanos, jitter);
+        if (lateness >= TICK_NANOS) {
+            missedTicks += lateness / TICK_NANOS;
+        }
+
+        return scheduleNextTick(now);
+    }
+
+    /**
+     * Time until the game clock runs out
+     *
+     * @return Nanoseconds until zero, or -1 if the clock isn't running
+     */
+    public synchronized long nanosUntilGameExpiry() {
+        return running ? game.remaining(timeSource.nanoTime()) : -1;
+    }
+
+    /**
+     * Time until the shot clock runs out
+     *
+     * @return Nanoseconds until zero, or -1 if the shot clock isn't running or
+     *         already ran out
+     */
+    public synchronized long nanosUntilShotExpiry() {
+        return shot.running && !shotExpired ? shot.remaining(timeSource.nanoTime()) : -1;
+    }
+
+    /**
+     * Stop the clock if the game clock has reached zero
+     *
+     * @return true if the game clock ran out just now
+     */
+    public synchronized boolean expireGameIfDue() {
+        long now = timeSource.nanoTime();
+        if (!running || game.remaining(now) > 0) {
+            return false;
+        }
+        running = false;
+        game.run(false, now);
+        shot.run(false, now);
+        expired = true;
+        return true;
+    }
+
+    /**
+     * Stop the shot clock if it has reached zero. It stays at zero until it
+     * is set again.
+     *
+     * @return true if the shot clock ran out just now
+     */
+    public synchronized boolean expireShotIfDue() {
+        long now = timeSource.nanoTime();
+        if (!shot.running || shotExpired || shot.remaining(now) > 0) {
+            return false;
+        }
+        shot.run(false, now);
+        shotExpired = true;
+        return true;
+    }
+
+    // Next tick on the next boundary where either clock's display changes
+    private long scheduleNextTick(long now) {
+        long delay = Long.MAX_VALUE;
+        long gameRemaining = game.remaining(now);
+        if (running && gameRemaining > 0) {
+            delay = untilBoundary(gameRemaining, TICK_NANOS);
+        }
+        long shotRemaining = shot.remaining(now);
+        if (shot.running && shotRemaining > 0) {
+            long unit = shotRemaining > SHOT_TENTHS_BELOW_MILLIS * NANOS_PER_MILLI ? SECOND_NANOS : TICK_NANOS;
+            delay = Math.min(delay, untilBoundary(shotRemaining, unit));
+        }
+        if (delay == Long.MAX_VALUE) {
+            return -1;
+        }
+        nextTickNanos = now + delay;
+        return delay;
+    }
+
+    private static long untilBoundary(long remaining, long unit) {
+        long delay = remaining % unit;
+        return delay == 0 ? unit : delay;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized boolean isShotRunning() {
+        return shot.running;
+    }
+
+    // True once the game clock ran out, until it is set again
+    public synchronized boolean isExpired() {
+        return expired;
+    }
+
+    public synchronized long getGameMillis() {
+        return game.remaining(timeSource.nanoTime()) / NANOS_PER_MILLI;
+    }
+
+    public synchronized long getShotMillis() {
+        return shot.remaining(timeSource.nanoTime()) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Forget the tick statistics
+     */
+    public synchronized void resetStats() {
+        ticks = 0;
+        missedTicks = 0;
+        totalJitterNanos = 0;
+        maxJitterNanos = 0;
+        cumulativeLatenessNanos = 0;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    // Tenths that were never drawn because a tick came more than a tenth late
+    public synchronized long getMissedTicks() {
+        return missedTicks;
+    }
+
+    public synchronized long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    public synchronized long getMeanJitterNanos() {
+        return ticks == 0 ? 0 : totalJitterNanos / ticks;
+    }
+
+    // The drift a clock that counted ticks would have built up by now
+    public synchronized long getTickDriftNanos() {
+        return cumulativeLatenessNanos;
+    }
+}
@@ -0,0 +1,928 @@
+package com.example.ble_scoreboard.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serialized write queue for a single BLE device.
+ * Android only allows one outstanding GATT operation per connection, so writes
+ * are issued one at a time and the next one is started from
+ * onCharacteristicWrite (or when the current write times out).
+ *
+ * The stack answers writes in the order they were issued, so callbacks are
+ * counted against issued writes. A write that timed out is failed right away,
+ * but the stack may still be busy with it: nothing new is issued until its
+ * late callback arrives, which is then ignored, or a grace period passes.
+ * A write the stack rejects outright is retried with backoff before it fails.
+ *
+ * In write-without-response mode the link-layer round trip is skipped, so a
+ * credit window (in bytes) keeps us from overrunning the HM-10 buffer. Credits
+ * are consumed per byte written and refill at the module's UART drain rate.
+ * Critical writes always use an acknowledged write.
+ *
+ * Non-critical writes queued within one connection interval are packed into a
+ * single write of up to MTU - 3 bytes. The firmware reads the HM-10 UART as a
+ * byte stream, so a packed write is seen exactly like back-to-back writes.
+ *
+ * Writes are only ever issued from the scheduler's thread. Callers on other
+ * threads (UI, clock) just queue the value and return without touching GATT.
+ *
+ * Values are copied into pooled entries, so callers may reuse their buffers,
+ * and a steady stream of {@link #offer} calls allocates nothing once the pool
+ * and pack buffers have warmed up.
+ *
+ * Writes wait in one of three lanes with strict priority: horn, operator
+ * commands, clock frames. The next write always starts from the highest lane
+ * that has something waiting, so a horn waits for at most the write already
+ * in flight. The clock lane holds a single entry: a newer clock frame replaces
+ * one that hasn't been sent yet. Frames of a running clock also carry a
+ * deadline of one frame period. A frame still waiting when its deadline passes
+ * is dropped, since the next tick brings a fresher one, so the board never
+ * shows time older than one period plus the write in flight.
+ */
+public class GattCommandQueue {
+    private static final String TAG = "GattCommandQueue";
+
+    private static final long DEFAULT_WRITE_TIMEOUT = 500; // ms to wait for onCharacteristicWrite
+    private static final int MAX_WRITE_ATTEMPTS = 5; // a rejected write is failed after this many tries
+    private static final long REJECTED_RETRY_DELAY = 10; // ms before the first retry, doubled each time
+    private static final int DEFAULT_CREDIT_WINDOW = 20; // bytes the HM-10 can buffer safely
+    private static final int DEFAULT_DRAIN_RATE = 960; // bytes per second at 9600 baud
+    private static final int DEFAULT_MAX_PAYLOAD = 20; // default ATT MTU (23) minus header
+    private static final long DEFAULT_COALESCE_WINDOW = 10; // ms, roughly one connection interval
+    private static final int MAX_POOLED_WRITES = 64; // entries kept for reuse
+    private static final long DEFAULT_CLOCK_FRAME_DEADLINE = 200; // ms, one clock frame period
+
+    // Priority lanes, lower value goes first
+    public static final int LANE_HORN = 0;
+    public static final int LANE_OPERATOR = 1;
+    public static final int LANE_CLOCK = 2;
+    private static final int LANE_COUNT = 3;
+
+    // Performs the actual characteristic write for this device
+    public interface Transport {
+        boolean write(byte[] value, boolean withResponse);
+    }
+
+    // Schedules write timeouts (backed by a Handler in the app)
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+
+        void cancel(Runnable task);
+    }
+
+    // Told when a write failed, timed out or was dropped
+    public interface FailureListener {
+        void onWriteFailed();
+    }
+
+    // Told about each tagged entry when the write carrying it is handed to the stack
+    public interface SendListener {
+        void onWriteSent(int tag);
+    }
+
+    // Tag of an entry nobody needs to hear about
+    public static final int NO_TAG = -1;
+
+    // Queue entry, recycled through the pool once its write completes
+    private static final class PendingWrite {
+        byte[] value = new byte[1]; // owned storage, grown as needed
+        int length;
+        boolean critical;
+        long deadlineNanos; // 0 when the write never goes stale
+        int tag; // passed to the send listener, NO_TAG for none
+        CompletableFuture<Boolean> future; // null for fire-and-forget writes
+        PendingWrite next; // link in the pending list or the pool
+
+        void set(byte[] source, int sourceLength, boolean critical, CompletableFuture<Boolean> future,
+                long deadlineNanos, int tag) {
+            if (value.length < sourceLength) {
+                value = new byte[sourceLength];
+            }
+            System.arraycopy(source, 0, value, 0, sourceLength);
+            this.length = sourceLength;
+            this.critical = critical;
+            this.future = future;
+            this.deadlineNanos = deadlineNanos;
+            this.tag = tag;
+        }
+    }
+
+    private final String address;
+    private final Transport transport;
+    private final Scheduler scheduler;
+    private final GameClock.TimeSource timeSource;
+
+    // Pending writes (one list per lane) and the pool are linked through the
+    // entries themselves, so walking or moving them never allocates
+    private final PendingWrite[] laneHeads = new PendingWrite[LANE_COUNT];
+    private final PendingWrite[] laneTails = new PendingWrite[LANE_COUNT];
+    private int pendingCount;
+    private long supersededClockFrames;
+    private long expiredClockFrames;
+    private long clockFrameDeadline = DEFAULT_CLOCK_FRAME_DEADLINE;
+    private PendingWrite pool;
+    private int poolSize;
+
+    // The batch in flight, swapped with the completing list instead of copied
+    private ArrayList<PendingWrite> inFlight = new ArrayList<>();
+    private ArrayList<PendingWrite> completing = new ArrayList<>();
+
+    // Exact-length buffers for packed writes, indexed by length
+    private byte[][] packBuffers = new byte[DEFAULT_MAX_PAYLOAD + 1][];
+    private long writeTimeout = DEFAULT_WRITE_TIMEOUT;
+    private volatile FailureListener failureListener;
+    private volatile SendListener sendListener;
+    private int[] sentTags = new int[DEFAULT_MAX_PAYLOAD]; // tags of the write just sent, reused
+
+    // Packing of queued writes into a single ATT write
+    private int maxPayload = DEFAULT_MAX_PAYLOAD;
+    private long coalesceWindow = DEFAULT_COALESCE_WINDOW;
+    private boolean coalescing = false;
+    private int holdCount = 0;
+
+    // Write-without-response flow control
+    private boolean writeWithoutResponse = false;
+    private int creditWindow = DEFAULT_CREDIT_WINDOW;
+    private int drainRate = DEFAULT_DRAIN_RATE;
+    private double credits = DEFAULT_CREDIT_WINDOW;
+    private long lastRefillNanos;
+    private boolean waitingForCredits = false;
+    private boolean issueScheduled = false;
+
+    // Writes handed to the stack and callbacks received, in issue order
+    private long issuedWrites;
+    private long answeredWrites;
+    private boolean timedOut; // the newest issued write was failed by the timeout
+
+    // A batch the stack rejected, waiting for its retry
+    private byte[] retryValue;
+    private boolean retryWithResponse;
+    private int rejectedAttempts;
+
+    private final Runnable timeoutTask = new Runnable() {
+        @Override
+        public void run() {
+            onWriteTimeout();
+        }
+    };
+
+    // The stack never answered the timed-out write, stop waiting for it
+    private final Runnable graceTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (GattCommandQueue.this) {
+                answeredWrites = issuedWrites;
+            }
+            issueNext();
+        }
+    };
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            byte[] value;
+            boolean withResponse;
+            synchronized (GattCommandQueue.this) {
+                value = retryValue;
+                withResponse = retryWithResponse;
+                retryValue = null;
+            }
+            if (value != null && !send(value, withResponse)) {
+                issueNext();
+            }
+        }
+    };
+
+    private final Runnable creditTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (GattCommandQueue.this) {
+                waitingForCredits = false;
+            }
+            issueNext();
+        }
+    };
+
+    private final Runnable issueTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (GattCommandQueue.this) {
+                issueScheduled = false;
+            }
+            issueNext();
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (GattCommandQueue.this) {
+                coalescing = false;
+            }
+            issueNext();
+        }
+    };
+
+    // Scheduled by staggered broadcasts, one instance so releasing doesn't allocate
+    private final Runnable releaseTask = new Runnable() {
+        @Override
+        public void run() {
+            release();
+        }
+    };
+
+    public GattCommandQueue(String address, Transport transport, Scheduler scheduler) {
+        this(address, transport, scheduler, System::nanoTime);
+    }
+
+    /**
+     * @param address    The device address
+     * @param transport  Writes to the device
+     * @param scheduler  Runs timeouts and delayed issues
+     * @param timeSource Time for clock frame deadlines and write credits
+     */
+    public GattCommandQueue(String address, Transport transport, Scheduler scheduler,
+            GameClock.TimeSource timeSource) {
+        this.address = address;
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.timeSource = timeSource;
+        this.lastRefillNanos = timeSource.nanoTime();
+    }
+
+    /**
+     * Queue a value to be written once all earlier writes have completed
+     *
+     * @param value The bytes to write
+     * @return Future completed with true when the write is acknowledged, false if
+     *         it failed, timed out or the queue was cleared
+     */
+    public CompletableFuture<Boolean> enqueue(byte[] value) {
+        return enqueue(value, false);
+    }
+
+    /**
+     * Queue a value to be written once all earlier writes have completed
+     *
+     * @param value    The bytes to write
+     * @param critical true to always use an acknowledged write
+     * @return Future completed with the write result
+     */
+    public CompletableFuture<Boolean> enqueue(byte[] value, boolean critical) {
+        return enqueue(value, critical, LANE_OPERATOR);
+    }
+
+    /**
+     * Queue a value in a priority lane
+     *
+     * @param value    The bytes to write
+     * @param critical true to always use an acknowledged write
+     * @param lane     One of the LANE_* constants
+     * @return Future completed with the write result, false if a newer clock
+     *         frame replaced it
+     */
+    public CompletableFuture<Boolean> enqueue(byte[] value, boolean critical, int lane) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        add(value, value.length, critical || lane == LANE_HORN, future, lane, 0, NO_TAG);
+        return future;
+    }
+
+    /**
+     * Queue a value without tracking its result. The value is copied, so the
+     * caller may reuse the array right away. Allocation-free in steady state.
+     *
+     * @param value    The bytes to write
+     * @param critical true to always use an acknowledged write
+     */
+    public void offer(byte[] value, boolean critical) {
+        add(value, value.length, critical, null, LANE_OPERATOR, 0, NO_TAG);
+    }
+
+    /**
+     * Queue the first bytes of a buffer without tracking the result
+     *
+     * @param value    Buffer holding the bytes to write, copied
+     * @param length   Number of bytes to take from the start of the buffer
+     * @param critical true to always use an acknowledged write
+     */
+    public void offer(byte[] value, int length, boolean critical) {
+        add(value, length, critical, null, LANE_OPERATOR, 0, NO_TAG);
+    }
+
+    /**
+     * Queue the first bytes of a buffer in a priority lane without tracking
+     * the result. Horn lane writes are always acknowledged. A clock lane write
+     * must carry the full clock state, since it may replace an unsent one.
+     *
+     * @param value    Buffer holding the bytes to write, copied
+     * @param length   Number of bytes to take from the start of the buffer
+     * @param critical true to always use an acknowledged write
+     * @param lane     One of the LANE_* constants
+     */
+    public void offer(byte[] value, int length, boolean critical, int lane) {
+        offer(value, length, critical, lane, NO_TAG);
+    }
+
+    /**
+     * Queue the first bytes of a buffer in a priority lane, telling the send
+     * listener once the write carrying them is handed to the stack
+     *
+     * @param value    Buffer holding the bytes to write, copied
+     * @param length   Number of bytes to take from the start of the buffer
+     * @param critical true to always use an acknowledged write
+     * @param lane     One of the LANE_* constants
+     * @param tag      Passed to the send listener, or NO_TAG
+     */
+    public void offer(byte[] value, int length, boolean critical, int lane, int tag) {
+        add(value, length, critical || lane == LANE_HORN, null, lane, 0, tag);
+    }
+
+    /**
+     * Queue a frame with the full clock state in the clock lane, replacing an
+     * unsent one
+     *
+     * @param value   Buffer holding the frame, copied
+     * @param length  Number of bytes to take from the start of the buffer
+     * @param expires true for frames of a running clock, which are dropped if
+     *                they can't be sent within the clock frame deadline
+     */
+    public void offerClockFrame(byte[] value, int length, boolean expires) {
+        offerClockFrame(value, length, expires, NO_TAG);
+    }
+
+    /**
+     * Queue a clock frame, telling the send listener once it is handed to the
+     * stack
+     *
+     * @param value   Buffer holding the frame, copied
+     * @param length  Number of bytes to take from the start of the buffer
+     * @param expires true for frames of a running clock
+     * @param tag     Passed to the send listener, or NO_TAG
+     */
+    public void offerClockFrame(byte[] value, int length, boolean expires, int tag) {
+        long deadlineNanos = 0;
+        if (expires) {
+            synchronized (this) {
+                deadlineNanos = timeSource.nanoTime() + clockFrameDeadline * 1_000_000L;
+            }
+        }
+        add(value, length, false, null, LANE_CLOCK, deadlineNanos, tag);
+    }
+
+    private void add(byte[] value, int length, boolean critical, CompletableFuture<Boolean> future, int lane,
+            long deadlineNanos, int tag) {
+        boolean startWindow = false;
+        CompletableFuture<Boolean> superseded = null;
+        synchronized (this) {
+            PendingWrite write = lane == LANE_CLOCK ? laneTails[LANE_CLOCK] : null;
+            if (write != null) {
+                // Replace the unsent clock frame in place, it is out of date
+                superseded = write.future;
+                write.set(value, length, critical, future, deadlineNanos, tag);
+                supersededClockFrames++;
+            } else {
+                write = pool;
+                if (write != null) {
+                    pool = write.next;
+                    poolSize--;
+                } else {
+                    write = new PendingWrite();
+                }
+                write.set(value, length, critical, future, deadlineNanos, tag);
+                write.next = null;
+                if (laneTails[lane] == null) {
+                    laneHeads[lane] = write;
+                } else {
+                    laneTails[lane].next = write;
+                }
+                laneTails[lane] = write;
+                pendingCount++;
+            }
+            if (critical) {
+                // Don't hold a critical write back for packing
+                coalescing = false;
+            } else if (inFlight.isEmpty() && !coalescing && holdCount == 0 && coalesceWindow > 0) {
+                // Link is idle, give other writes in this interval a chance to join
+                coalescing = true;
+                startWindow = true;
+            }
+        }
+        if (superseded != null) {
+            superseded.complete(false);
+        }
+        if (startWindow) {
+            scheduler.schedule(flushTask, coalesceWindow);
+        } else {
+            requestIssue();
+        }
+    }
+
+    // Hand issuing over to the scheduler thread, at most once until it runs
+    private void requestIssue() {
+        synchronized (this) {
+            if (issueScheduled) {
+                return;
+            }
+            issueScheduled = true;
+        }
+        scheduler.schedule(issueTask, 0);
+    }
+
+    /**
+     * Called from onCharacteristicWrite when the in-flight write finished
+     *
+     * @param success true if the GATT status was GATT_SUCCESS
+     */
+    public void onWriteComplete(boolean success) {
+        boolean current;
+        synchronized (this) {
+            if (answeredWrites == issuedWrites) {
+                // Nothing is waiting for a callback, the grace period already gave up on it
+                return;
+            }
+            answeredWrites++;
+            // Only the newest issued write can still be in flight
+            current = answeredWrites == issuedWrites && !timedOut;
+        }
+        if (current) {
+            scheduler.cancel(timeoutTask);
+            completeInFlight(success);
+        } else {
+            // Late answer to a write that already timed out
+            scheduler.cancel(graceTask);
+        }
+        issueNext();
+    }
+
+    // Fail the batch, but keep waiting for the stack before issuing again
+    private void onWriteTimeout() {
+        Log.w(TAG, "Write timed out for device: " + address);
+        synchronized (this) {
+            timedOut = true;
+        }
+        completeInFlight(false);
+        scheduler.schedule(graceTask, writeTimeout);
+    }
+
+    // Complete and recycle the in-flight batch. Only runs on the scheduler thread.
+    private void completeInFlight(boolean success) {
+        ArrayList<PendingWrite> completed;
+        synchronized (this) {
+            completed = inFlight;
+            inFlight = completing;
+            completing = completed;
+        }
+        FailureListener listener = failureListener;
+        if (!success && listener != null && !completed.isEmpty()) {
+            listener.onWriteFailed();
+        }
+        for (int i = 0; i < completed.size(); i++) {
+            CompletableFuture<Boolean> future = completed.get(i).future;
+            if (future != null) {
+                future.complete(success);
+            }
+        }
+        synchronized (this) {
+            for (int i = 0; i < completed.size(); i++) {
+                recycle(completed.get(i));
+            }
+        }
+        completed.clear();
+    }
+
+    private void recycle(PendingWrite write) {
+        write.future = null;
+        write.next = null;
+        if (poolSize < MAX_POOLED_WRITES) {
+            write.next = pool;
+            pool = write;
+            poolSize++;
+        }
+    }
+
+    // Start the next queued write if nothing is in flight
+    private void issueNext() {
+        while (true) {
+            byte[] value;
+            boolean withResponse;
+            PendingWrite stale;
+            CompletableFuture<Boolean> staleFuture = null;
+            synchronized (this) {
+                if (!inFlight.isEmpty() || answeredWrites != issuedWrites || waitingForCredits || coalescing
+                        || holdCount > 0 || pendingCount == 0) {
+                    return;
+                }
+
+                stale = pollExpiredClockFrame();
+                if (stale != null) {
+                    staleFuture = stale.future;
+                    recycle(stale);
+                    value = null;
+                    withResponse = false;
+                } else {
+                    PendingWrite head = laneHeads[firstLane()];
+                    int length = packedLength();
+                    withResponse = !writeWithoutResponse || head.critical;
+                    if (!withResponse) {
+                        long waitMillis = reserveCredits(length);
+                        if (waitMillis > 0) {
+                            // Controller buffer is full, wait for it to drain
+                            waitingForCredits = true;
+                            scheduler.schedule(creditTask, waitMillis);
+                            return;
+                        }
+                    }
+
+                    value = pack(length);
+                }
+            }
+
+            if (stale != null) {
+                // The board never got that frame, a delta encoder must resend everything
+                FailureListener listener = failureListener;
+                if (listener != null) {
+                    listener.onWriteFailed();
+                }
+                if (staleFuture != null) {
+                    staleFuture.complete(false);
+                }
+                continue;
+            }
+
+            if (send(value, withResponse)) {
+                return;
+            }
+            // Rejected too often and failed, try the next one
+        }
+    }
+
+    // Hand the in-flight batch to the stack. A busy stack rejects writes, so a
+    // rejected batch is kept and retried with backoff. Returns false once the
+    // batch has been failed after too many rejections.
+    private boolean send(byte[] value, boolean withResponse) {
+        synchronized (this) {
+            issuedWrites++;
+            timedOut = false;
+        }
+        scheduler.schedule(timeoutTask, writeTimeout);
+        if (transport.write(value, withResponse)) {
+            notifySent();
+            return true;
+        }
+
+        scheduler.cancel(timeoutTask);
+        int attempts;
+        synchronized (this) {
+            issuedWrites--;
+            attempts = ++rejectedAttempts;
+            if (attempts < MAX_WRITE_ATTEMPTS) {
+                retryValue = value;
+                retryWithResponse = withResponse;
+            } else {
+                rejectedAttempts = 0;
+            }
+        }
+        if (attempts < MAX_WRITE_ATTEMPTS) {
+            scheduler.schedule(retryTask, REJECTED_RETRY_DELAY << (attempts - 1));
+            return true;
+        }
+        Log.e(TAG, "Write rejected " + attempts + " times for device: " + address);
+        completeInFlight(false);
+        return false;
+    }
+
+    // Tell the send listener which tagged entries just went out. The tags are
+    // copied first so the listener runs without the queue lock.
+    private void notifySent() {
+        SendListener listener = sendListener;
+        int count = 0;
+        synchronized (this) {
+            rejectedAttempts = 0;
+            if (listener == null) {
+                return;
+            }
+            for (int i = 0; i < inFlight.size(); i++) {
+                int tag = inFlight.get(i).tag;
+                if (tag == NO_TAG) {
+                    continue;
+                }
+                if (count == sentTags.length) {
+                    sentTags = Arrays.copyOf(sentTags, count * 2);
+                }
+                sentTags[count++] = tag;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            listener.onWriteSent(sentTags[i]);
+        }
+    }
+
+    // Take the waiting clock frame if its deadline passed, a newer one follows
+    private PendingWrite pollExpiredClockFrame() {
+        PendingWrite write = laneHeads[LANE_CLOCK];
+        if (write == null || write.deadlineNanos == 0 || timeSource.nanoTime() - write.deadlineNanos < 0) {
+            return null;
+        }
+        laneHeads[LANE_CLOCK] = null;
+        laneTails[LANE_CLOCK] = null;
+        pendingCount--;
+        expiredClockFrames++;
+        return write;
+    }
+
+    // Bytes taken by the writes at the head of the queue that fit in one
+    // packet, walking the lanes in priority order
+    private int packedLength() {
+        int length = 0;
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            for (PendingWrite write = laneHeads[lane]; write != null; write = write.next) {
+                if (length > 0 && (write.critical || length + write.length > maxPayload)) {
+                    return length;
+                }
+                length += write.length;
+                if (write.critical) {
+                    return length;
+                }
+            }
+        }
+        return length;
+    }
+
+    // Highest priority lane with a pending write, only called when one exists
+    private int firstLane() {
+        int lane = 0;
+        while (laneHeads[lane] == null) {
+            lane++;
+        }
+        return lane;
+    }
+
+    // Move the head writes into the in-flight batch and join their bytes
+    private byte[] pack(int length) {
+        PendingWrite head = pollPending();
+        inFlight.add(head);
+        if (head.value.length == length && head.length == length) {
+            return head.value;
+        }
+
+        // The stack copies the value during writeCharacteristic and only one
+        // write is in flight, so the buffer for each length can be reused
+        byte[] packed = length < packBuffers.length ? packBuffers[length] : null;
+        if (packed == null) {
+            packed = new byte[length];
+            if (length < packBuffers.length) {
+                packBuffers[length] = packed;
+            }
+        }
+        System.arraycopy(head.value, 0, packed, 0, head.length);
+        int offset = head.length;
+        while (offset < length) {
+            PendingWrite write = pollPending();
+            System.arraycopy(write.value, 0, packed, offset, write.length);
+            offset += write.length;
+            inFlight.add(write);
+        }
+        return packed;
+    }
+
+    // Take the next write in priority order
+    private PendingWrite pollPending() {
+        int lane = firstLane();
+        PendingWrite write = laneHeads[lane];
+        laneHeads[lane] = write.next;
+        if (laneHeads[lane] == null) {
+            laneTails[lane] = null;
+        }
+        write.next = null;
+        pendingCount--;
+        return write;
+    }
+
+    // Take credits for a write-without-response, returns ms to wait if short
+    private long reserveCredits(int length) {
+        long now = timeSource.nanoTime();
+        credits = Math.min(creditWindow, credits + (now - lastRefillNanos) * drainRate / 1e9);
+        lastRefillNanos = now;
+
+        // A single write larger than the window is allowed once the window is full
+        double needed = Math.min(length, creditWindow);
+        if (credits >= needed) {
+            credits -= length;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((needed - credits) * 1000 / drainRate));
+    }
+
+    /**
+     * Stop issuing writes until {@link #release()} is called. Used to line up
+     * the same write on several devices.
+     */
+    public synchronized void hold() {
+        holdCount++;
+    }
+
+    /**
+     * Resume issuing writes after {@link #hold()}
+     */
+    public void release() {
+        synchronized (this) {
+            if (holdCount == 0) {
+                return;
+            }
+            holdCount--;
+        }
+        requestIssue();
+    }
+
+    /**
+     * Get a task that calls {@link #release()}, for releasing later without
+     * allocating
+     *
+     * @return The same task on every call
+     */
+    public Runnable getReleaseTask() {
+        return releaseTask;
+    }
+
+    /**
+     * Fail all pending writes, used when the device disconnects
+     */
+    public void clear() {
+        ArrayList<PendingWrite> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(inFlight);
+            while (pendingCount > 0) {
+                dropped.add(pollPending());
+            }
+            inFlight.clear();
+        }
+        scheduler.cancel(timeoutTask);
+        scheduler.cancel(graceTask);
+        scheduler.cancel(retryTask);
+        scheduler.cancel(creditTask);
+        scheduler.cancel(flushTask);
+        scheduler.cancel(issueTask);
+        synchronized (this) {
+            waitingForCredits = false;
+            coalescing = false;
+            issueScheduled = false;
+            answeredWrites = issuedWrites;
+            retryValue = null;
+            rejectedAttempts = 0;
+        }
+        FailureListener listener = failureListener;
+        if (listener != null && !dropped.isEmpty()) {
+            listener.onWriteFailed();
+        }
+        for (PendingWrite write : dropped) {
+            if (write.future != null) {
+                write.future.complete(false);
+            }
+        }
+        synchronized (this) {
+            for (PendingWrite write : dropped) {
+                recycle(write);
+            }
+        }
+    }
+
+    /**
+     * Get the number of writes waiting or in flight
+     *
+     * @return The queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return pendingCount + inFlight.size();
+    }
+
+    /**
+     * Check if a lane has writes waiting to be sent
+     *
+     * @param lane One of the LANE_* constants
+     * @return true if the lane isn't empty
+     */
+    public synchronized boolean hasPending(int lane) {
+        return laneHeads[lane] != null;
+    }
+
+    /**
+     * Get the number of writes waiting in a lane
+     *
+     * @param lane One of the LANE_* constants
+     * @return The lane depth, at most 1 for the clock lane
+     */
+    public synchronized int getPendingCount(int lane) {
+        int count = 0;
+        for (PendingWrite write = laneHeads[lane]; write != null; write = write.next) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of clock frames replaced by a newer one before being sent
+     *
+     * @return The count since the queue was created
+     */
+    public synchronized long getSupersededClockFrames() {
+        return supersededClockFrames;
+    }
+
+    /**
+     * Get the number of clock frames dropped because their deadline passed
+     *
+     * @return The count since the queue was created
+     */
+    public synchronized long getExpiredClockFrames() {
+        return expiredClockFrames;
+    }
+
+    /**
+     * Get the number of clock frames that were never sent, either replaced by a
+     * newer one or past their deadline
+     *
+     * @return The count since the queue was created
+     */
+    public synchronized long getDroppedClockFrames() {
+        return supersededClockFrames + expiredClockFrames;
+    }
+
+    /**
+     * Set how long a frame of a running clock may wait before it is dropped
+     *
+     * @param deadlineMillis The deadline, normally one clock frame period
+     */
+    public synchronized void setClockFrameDeadline(long deadlineMillis) {
+        this.clockFrameDeadline = Math.max(1, deadlineMillis);
+    }
+
+    public void setFailureListener(FailureListener failureListener) {
+        this.failureListener = failureListener;
+    }
+
+    public void setSendListener(SendListener sendListener) {
+        this.sendListener = sendListener;
+    }
+
+    public void setWriteTimeout(long timeoutMillis) {
+        this.writeTimeout = timeoutMillis;
+    }
+
+    /**
+     * Use write-without-response for non-critical writes
+     *
+     * @param enabled true to skip the ATT write response where possible
+     */
+    public synchronized void setWriteWithoutResponse(boolean enabled) {
+        this.writeWithoutResponse = enabled;
+    }
+
+    public synchronized boolean isWriteWithoutResponse() {
+        return writeWithoutResponse;
+    }
+
+    /**
+     * Configure the credit window used in write-without-response mode
+     *
+     * @param windowBytes    Bytes the device can buffer
+     * @param bytesPerSecond Rate at which the device drains its buffer
+     */
+    public synchronized void setCreditWindow(int windowBytes, int bytesPerSecond) {
+        this.creditWindow = Math.max(1, windowBytes);
+        this.drainRate = Math.max(1, bytesPerSecond);
+        this.credits = Math.min(credits, creditWindow);
+    }
+
+    /**
+     * Set the largest write allowed, called once the MTU has been negotiated
+     *
+     * @param mtu The negotiated ATT MTU
+     */
+    public synchronized void setMtu(int mtu) {
+        this.maxPayload = Math.max(1, mtu - 3);
+        if (packBuffers.length != maxPayload + 1) {
+            packBuffers = new byte[maxPayload + 1][];
+        }
+    }
+
+    public synchronized int getMaxPayload() {
+        return maxPayload;
+    }
+
+    /**
+     * Set how long an idle queue waits for more writes to pack together
+     *
+     * @param windowMillis Coalescing window, 0 to send immediately
+     */
+    public synchronized void setCoalesceWindow(long windowMillis) {
+        this.coalesceWindow = Math.max(0, windowMillis);
+    }
+
+    public String getAddress() {
+        return address;
+    }
+}
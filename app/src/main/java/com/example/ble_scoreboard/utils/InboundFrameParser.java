@@ -0,0 +1,271 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Reassembles the frames a board sends from its notification stream.
+ * The HM-10 forwards its UART in chunks of up to 20 bytes, so a frame can be
+ * split over several notifications and one notification can hold several
+ * frames. Bytes are fed in as they arrive and every complete frame with a
+ * good checksum is handed to the listener as a typed event. A frame that
+ * fails its checksum is replayed from the next start byte inside it, so one
+ * corrupted byte doesn't cost the frame after it.
+ *
+ * Doesn't allocate after construction. The state dump handed to the listener
+ * is reused, copy it to keep it. Not thread-safe, feed it from the GATT
+ * thread only.
+ */
+public class InboundFrameParser {
+
+    // Typed events, called on the feeding thread
+    public interface Listener {
+        void onAck(int sequence);
+
+        void onPong(int id, long boardReceivedMillis, long boardSentMillis, long receivedAtNanos);
+
+        void onStateDump(StateDump dump);
+
+        void onError(int sequence, int code);
+    }
+
+    /**
+     * Everything a board reported showing in a state dump
+     */
+    public static final class StateDump {
+        private long receivedAtNanos;
+        private int lastSequence;
+        private int minutes;
+        private int seconds;
+        private int tenths;
+        private int shotClock;
+        private int shotTenths;
+        private int flags;
+        private final int[] fields = new int[ScoreboardFrame.FIELD_COUNT];
+
+        /**
+         * Copy another dump into this one
+         *
+         * @param other The dump to copy
+         */
+        public void set(StateDump other) {
+            receivedAtNanos = other.receivedAtNanos;
+            lastSequence = other.lastSequence;
+            minutes = other.minutes;
+            seconds = other.seconds;
+            tenths = other.tenths;
+            shotClock = other.shotClock;
+            shotTenths = other.shotTenths;
+            flags = other.flags;
+            System.arraycopy(other.fields, 0, fields, 0, fields.length);
+        }
+
+        // When the notification that completed the dump arrived
+        public long getReceivedAtNanos() {
+            return receivedAtNanos;
+        }
+
+        // Sequence number of the last frame the board applied before the dump
+        public int getLastSequence() {
+            return lastSequence;
+        }
+
+        public int getMinutes() {
+            return minutes;
+        }
+
+        public int getSeconds() {
+            return seconds;
+        }
+
+        public int getTenths() {
+            return tenths;
+        }
+
+        public int getShotClock() {
+            return shotClock;
+        }
+
+        public int getShotTenths() {
+            return shotTenths;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        /**
+         * Get a team state value
+         *
+         * @param field One of the ScoreboardFrame.FIELD_* constants
+         * @return The value the board shows
+         */
+        public int getField(int field) {
+            return fields[field];
+        }
+    }
+
+    private final Listener listener;
+    private final byte[] buffer = new byte[ScoreboardFrame.MAX_INBOUND_LENGTH];
+    private final StateDump dump = new StateDump();
+    private int fill;
+    private int length;
+    private long receivedAtNanos;
+
+    // Counters for diagnostics
+    private long frames;
+    private long corruptFrames;
+    private long strayBytes;
+
+    public InboundFrameParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Feed bytes received from the board
+     *
+     * @param data            Buffer holding the bytes
+     * @param offset          Start of the bytes
+     * @param count           Number of bytes
+     * @param receivedAtNanos System.nanoTime when they arrived
+     */
+    public void feed(byte[] data, int offset, int count, long receivedAtNanos) {
+        this.receivedAtNanos = receivedAtNanos;
+        for (int i = offset; i < offset + count; i++) {
+            accept(data[i]);
+        }
+    }
+
+    /**
+     * Drop a partly received frame, called when the link goes away
+     */
+    public void reset() {
+        fill = 0;
+    }
+
+    private void accept(byte value) {
+        if (fill == 0) {
+            if (value == ScoreboardFrame.SOF) {
+                buffer[fill++] = value;
+            } else {
+                strayBytes++;
+            }
+            return;
+        }
+
+        buffer[fill++] = value;
+        if (fill == 2) {
+            length = inboundLength(value);
+            if (length == 0) {
+                corruptFrames++;
+                resync();
+                return;
+            }
+        }
+        if (fill < length) {
+            return;
+        }
+        if (ScoreboardFrame.crc8(buffer, 0, length - 1) != buffer[length - 1]) {
+            corruptFrames++;
+            resync();
+            return;
+        }
+        fill = 0;
+        dispatch();
+    }
+
+    // Replay everything after the failed start byte, which may hold the real one.
+    // Replayed bytes are only ever written to lower indices than they are read from.
+    private void resync() {
+        int end = fill;
+        fill = 0;
+        for (int i = 1; i < end; i++) {
+            accept(buffer[i]);
+        }
+    }
+
+    private void dispatch() {
+        int type = buffer[1] & 0x0F;
+        int sequence = buffer[2] & 0xFF;
+        switch (type) {
+            case ScoreboardFrame.TYPE_ACK:
+                frames++;
+                listener.onAck(sequence);
+                break;
+            case ScoreboardFrame.TYPE_PONG:
+                frames++;
+                listener.onPong(sequence, ScoreboardFrame.pongReceivedAt(buffer, 0),
+                        ScoreboardFrame.pongSentAt(buffer, 0), receivedAtNanos);
+                break;
+            case ScoreboardFrame.TYPE_STATE:
+                if (!decodeState()) {
+                    corruptFrames++;
+                    return;
+                }
+                frames++;
+                listener.onStateDump(dump);
+                break;
+            case ScoreboardFrame.TYPE_ERROR:
+                frames++;
+                listener.onError(sequence, buffer[3] & 0xFF);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean decodeState() {
+        int minutes = ScoreboardFrame.fromBcd(buffer[3]);
+        int seconds = ScoreboardFrame.fromBcd(buffer[4]);
+        int shotClock = ScoreboardFrame.fromBcd(buffer[6]);
+        int tenths = (buffer[5] >> 4) & 0x0F;
+        int shotTenths = buffer[5] & 0x0F;
+        if (minutes < 0 || seconds < 0 || seconds > 59 || shotClock < 0
+                || !ScoreboardFrame.isValidTenths(tenths) || !ScoreboardFrame.isValidTenths(shotTenths)) {
+            return false;
+        }
+        dump.receivedAtNanos = receivedAtNanos;
+        dump.lastSequence = buffer[2] & 0xFF;
+        dump.minutes = minutes;
+        dump.seconds = seconds;
+        dump.tenths = tenths;
+        dump.shotClock = shotClock;
+        dump.shotTenths = shotTenths;
+        dump.flags = buffer[7] & 0xFF;
+        for (int field = 0; field < ScoreboardFrame.FIELD_COUNT; field++) {
+            dump.fields[field] = ((buffer[8 + 2 * field] & 0xFF) << 8) | (buffer[9 + 2 * field] & 0xFF);
+        }
+        return true;
+    }
+
+    // Length of a frame the board sends, 0 for anything else
+    private static int inboundLength(byte verType) {
+        if (((verType >> 4) & 0x0F) != ScoreboardFrame.VERSION) {
+            return 0;
+        }
+        switch (verType & 0x0F) {
+            case ScoreboardFrame.TYPE_ACK:
+                return ScoreboardFrame.ACK_LENGTH;
+            case ScoreboardFrame.TYPE_PONG:
+                return ScoreboardFrame.PONG_LENGTH;
+            case ScoreboardFrame.TYPE_STATE:
+                return ScoreboardFrame.STATE_LENGTH;
+            case ScoreboardFrame.TYPE_ERROR:
+                return ScoreboardFrame.ERROR_LENGTH;
+            default:
+                return 0;
+        }
+    }
+
+    // Frames that passed their checksum
+    public long getFrames() {
+        return frames;
+    }
+
+    // Frames that failed their checksum or carried impossible values
+    public long getCorruptFrames() {
+        return corruptFrames;
+    }
+
+    // Bytes outside any frame, such as ASCII echoed by older firmware
+    public long getStrayBytes() {
+        return strayBytes;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ble_scoreboard.utils;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+
+/**
+ * Keeps the scoreboard links in step with the game clock.
+ * While the clock runs every board needs tenth-second updates, so links use
+ * high connection priority and the 2M PHY. When the clock is stopped the
+ * links go back to balanced, and to low power while paused.
+ */
+public class LinkPolicy implements ClockManager.ClockUpdateListener {
+
+    private final BLEManager bleManager;
+    private int clockState = ClockManager.STATE_STOPPED;
+
+    public LinkPolicy(BLEManager bleManager) {
+        this.bleManager = bleManager;
+    }
+
+    /**
+     * Get the connection priority for the current clock state
+     *
+     * @return One of the BluetoothGatt CONNECTION_PRIORITY_* constants
+     */
+    public int getConnectionPriority() {
+        switch (clockState) {
+            case ClockManager.STATE_RUNNING:
+                return BluetoothGatt.CONNECTION_PRIORITY_HIGH;
+            case ClockManager.STATE_PAUSED:
+                return BluetoothGatt.CONNECTION_PRIORITY_LOW_POWER;
+            default:
+                return BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
+        }
+    }
+
+    /**
+     * Get the preferred PHY mask for the current clock state
+     *
+     * @return One of the BluetoothDevice PHY_LE_*_MASK constants
+     */
+    public int getPreferredPhy() {
+        return clockState == ClockManager.STATE_RUNNING
+                ? BluetoothDevice.PHY_LE_2M_MASK
+                : BluetoothDevice.PHY_LE_1M_MASK;
+    }
+
+    @Override
+    public void onClockUpdate(int minutes, int seconds, int milliseconds, int shotClock) {
+        // Only state changes affect the link
+    }
+
+    @Override
+    public void onClockStateChanged(int state) {
+        if (state != clockState) {
+            clockState = state;
+            bleManager.applyLinkPolicy();
+        }
+    }
+
+    @Override
+    public void onGameClockExpired() {
+        // The stop at zero arrives through onClockStateChanged
+    }
+
+    @Override
+    public void onShotClockExpired() {
+        // Shot clock expiry doesn't change the link requirements
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.ble_scoreboard.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that each board shows what the app thinks it shows.
+ * Boards are asked for a state dump now and then, less often while a clock
+ * runs so the requests don't compete with clock frames. Each dump is
+ * compared field by field with the app's state, and only the fields that
+ * differ get a set-field frame. A field whose newest frame is still waiting
+ * for its ack is skipped, the ack tracker is already resending it. A board
+ * that keeps reporting the same wrong value after a few corrections doesn't
+ * show that field, a shot clock board has no scores, and is left alone.
+ *
+ * In device clock mode the board's clock is compared too, allowing for the
+ * age of the dump and the digits the board leaves out, and a new anchor is
+ * sent if it is off.
+ *
+ * Has no Android dependencies so it can run against a fake link in JVM tests.
+ */
+public class ReconciliationService implements BLEManager.InboundListener {
+
+    public static final long DEFAULT_IDLE_INTERVAL = 2000; // ms between dumps while the clocks are stopped
+    public static final long DEFAULT_RUNNING_INTERVAL = 15000; // ms between dumps while a clock runs
+
+    // A board that reports the same wrong value this many times running doesn't show the field
+    private static final int MAX_FIELD_CORRECTIONS = 3;
+
+    // Clock error allowed on top of the digits the board doesn't show
+    private static final long CLOCK_TOLERANCE_MILLIS = GameClock.TICK_NANOS / 1_000_000L;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // The boards, backed by BLEManager
+    public interface Link {
+        boolean requestState(String address);
+
+        /**
+         * @param address The device address
+         * @param slot    A FrameAckTracker slot
+         * @return true if the newest frame of the slot hasn't been acked yet
+         */
+        boolean isPending(String address, int slot);
+
+        boolean correctField(String address, int field, int boardValue, int value);
+
+        // True if the board counts the clock down itself
+        boolean isDeviceClock(String address);
+
+        boolean reanchorClock(String address);
+
+        // Time for a frame to get from the board to the app, -1 if unknown
+        long oneWayNanos(String address);
+    }
+
+    // What the service knows about one board
+    private static final class BoardRecord {
+        long lastRequestNanos;
+        boolean requested;
+        boolean requestSoon;
+        final int[] correctedValues = new int[ScoreboardFrame.FIELD_COUNT];
+        final int[] corrections = new int[ScoreboardFrame.FIELD_COUNT];
+    }
+
+    private final Link link;
+    private final GameClock clock;
+    private final ScoreboardState state;
+    private final GameClock.TimeSource timeSource;
+    private final Map<String, BoardRecord> boards = new HashMap<>();
+    private long idleInterval = DEFAULT_IDLE_INTERVAL;
+    private long runningInterval = DEFAULT_RUNNING_INTERVAL;
+
+    // Counters for diagnostics
+    private long requests;
+    private long dumps;
+    private long correctedFields;
+    private long clockCorrections;
+
+    /**
+     * @param link       Sends to the boards
+     * @param clock      The app's clock
+     * @param state      The app's team state
+     * @param timeSource Same time base as the dump timestamps, System.nanoTime
+     */
+    public ReconciliationService(Link link, GameClock clock, ScoreboardState state, GameClock.TimeSource timeSource) {
+        this.link = link;
+        this.clock = clock;
+        this.state = state;
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Ask a board for a dump if one is due. Called regularly for every board
+     * that can answer.
+     *
+     * @param address The device address
+     * @return true if a request was sent
+     */
+    public synchronized boolean poll(String address) {
+        BoardRecord board = record(address);
+        long now = timeSource.nanoTime();
+        long interval = clock.isRunning() || clock.isShotRunning() ? runningInterval : idleInterval;
+        if (board.requested && !board.requestSoon && now - board.lastRequestNanos < interval * NANOS_PER_MILLI) {
+            return false;
+        }
+        if (!link.requestState(address)) {
+            return false;
+        }
+        board.requested = true;
+        board.requestSoon = false;
+        board.lastRequestNanos = now;
+        requests++;
+        return true;
+    }
+
+    /**
+     * Forget a board, called when its link goes away
+     *
+     * @param address The device address
+     */
+    public synchronized void forget(String address) {
+        boards.remove(address);
+    }
+
+    @Override
+    public void onBoardAck(String address, int sequence) {
+    }
+
+    @Override
+    public synchronized void onBoardStateDump(String address, InboundFrameParser.StateDump dump) {
+        BoardRecord board = record(address);
+        dumps++;
+        for (int field = 0; field < ScoreboardFrame.FIELD_COUNT; field++) {
+            reconcileField(address, board, field, dump.getField(field));
+        }
+        if (link.isDeviceClock(address) && !link.isPending(address, FrameAckTracker.SLOT_CLOCK)
+                && !clockMatches(address, dump)) {
+            if (link.reanchorClock(address)) {
+                clockCorrections++;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onBoardError(String address, int sequence, int code) {
+        // Whatever the board rejected may be missing, check soon
+        record(address).requestSoon = true;
+    }
+
+    private void reconcileField(String address, BoardRecord board, int field, int boardValue) {
+        int value = state.get(field);
+        if (boardValue == value) {
+            board.corrections[field] = 0;
+            return;
+        }
+        if (link.isPending(address, FrameAckTracker.fieldSlot(field))) {
+            return;
+        }
+        // The same wrong value after the last corrections: the board doesn't keep this field
+        if (board.corrections[field] >= MAX_FIELD_CORRECTIONS && board.correctedValues[field] == value) {
+            return;
+        }
+        if (board.correctedValues[field] != value) {
+            board.corrections[field] = 0;
+        }
+        if (link.correctField(address, field, boardValue, value)) {
+            board.correctedValues[field] = value;
+            board.corrections[field]++;
+            correctedFields++;
+        }
+    }
+
+    // Compare the board's clock at the time of the dump with the app's
+    private boolean clockMatches(String address, InboundFrameParser.StateDump dump) {
+        boolean gameRunning = clock.isRunning();
+        boolean shotRunning = clock.isShotRunning();
+        if (((dump.getFlags() & ScoreboardFrame.FLAG_CLOCK_RUNNING) != 0) != gameRunning
+                || ((dump.getFlags() & ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING) != 0) != shotRunning) {
+            return false;
+        }
+
+        long ageNanos = timeSource.nanoTime() - dump.getReceivedAtNanos() + Math.max(0, link.oneWayNanos(address));
+        long ageMillis = ageNanos / NANOS_PER_MILLI;
+        long game = clock.getGameMillis() + (gameRunning ? ageMillis : 0);
+        long shot = clock.getShotMillis() + (shotRunning ? ageMillis : 0);
+        long boardGame = (dump.getMinutes() * 60L + dump.getSeconds()) * 1000;
+        long boardShot = dump.getShotClock() * 1000L;
+        return matches(game, boardGame, dump.getTenths()) && matches(shot, boardShot, dump.getShotTenths());
+    }
+
+    // Without tenths the board may round either way within the second
+    private static boolean matches(long expected, long boardWhole, int tenths) {
+        long unit = tenths == ScoreboardFrame.TENTHS_NONE ? 1000 : 100;
+        long board = boardWhole + (tenths == ScoreboardFrame.TENTHS_NONE ? 0 : tenths * 100L);
+        return Math.abs(expected - board) <= unit + CLOCK_TOLERANCE_MILLIS;
+    }
+
+    private BoardRecord record(String address) {
+        BoardRecord board = boards.get(address);
+        if (board == null) {
+            board = new BoardRecord();
+            boards.put(address, board);
+        }
+        return board;
+    }
+
+    /**
+     * Set how often boards are asked for their state
+     *
+     * @param idleMillis    While the clocks are stopped
+     * @param runningMillis While a clock runs
+     */
+    public synchronized void setIntervals(long idleMillis, long runningMillis) {
+        this.idleInterval = Math.max(1, idleMillis);
+        this.runningInterval = Math.max(1, runningMillis);
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getDumps() {
+        return dumps;
+    }
+
+    public synchronized long getCorrectedFields() {
+        return correctedFields;
+    }
+
+    public synchronized long getClockCorrections() {
+        return clockCorrections;
+    }
+}
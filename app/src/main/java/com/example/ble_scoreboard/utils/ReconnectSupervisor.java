@@ -0,0 +1,140 @@
+package com.example.ble_scoreboard.utils;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Reconnects boards that dropped without the operator asking for it.
+ * Attempts use exponential backoff with jitter: the first retry goes out
+ * almost immediately so a short RF dropout recovers well under a second,
+ * later retries back off so a board that is switched off doesn't keep the
+ * radio busy.
+ */
+public class ReconnectSupervisor {
+    private static final String TAG = "ReconnectSupervisor";
+
+    private static final long DEFAULT_BASE_DELAY = 50; // ms before the first retry
+    private static final long DEFAULT_MAX_DELAY = 5000; // ms cap between retries
+
+    // Starts a reconnect attempt, returns false if it could not be started
+    public interface Reconnector {
+        boolean reconnect(String address);
+    }
+
+    private final Reconnector reconnector;
+    private final GattCommandQueue.Scheduler scheduler;
+    private final Random random = new Random();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final Map<String, Runnable> scheduledAttempts = new HashMap<>();
+    private long baseDelay = DEFAULT_BASE_DELAY;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+
+    public ReconnectSupervisor(Reconnector reconnector, GattCommandQueue.Scheduler scheduler) {
+        this.reconnector = reconnector;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Schedule the next reconnect attempt for a device that dropped
+     *
+     * @param address The device address
+     */
+    public void onConnectionLost(String address) {
+        Runnable attempt;
+        long delay;
+        synchronized (this) {
+            if (scheduledAttempts.containsKey(address)) {
+                return;
+            }
+            int previousAttempts = attempts.containsKey(address) ? attempts.get(address) : 0;
+            attempts.put(address, previousAttempts + 1);
+            delay = nextDelay(previousAttempts);
+
+            attempt = () -> {
+                synchronized (this) {
+                    scheduledAttempts.remove(address);
+                }
+                Log.d(TAG, "Reconnecting to " + address);
+                if (!reconnector.reconnect(address)) {
+                    onConnectionLost(address);
+                }
+            };
+            scheduledAttempts.put(address, attempt);
+        }
+
+        Log.d(TAG, "Reconnect attempt for " + address + " in " + delay + " ms");
+        scheduler.schedule(attempt, delay);
+    }
+
+    // Exponential backoff with "equal jitter": half fixed, half random
+    private long nextDelay(int attempt) {
+        long ceiling = baseDelay << Math.min(attempt, 16);
+        ceiling = Math.min(ceiling, maxDelay);
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    /**
+     * Report that a device is back and ready, resetting its backoff
+     *
+     * @param address The device address
+     */
+    public synchronized void onReconnected(String address) {
+        attempts.remove(address);
+    }
+
+    /**
+     * Check if a device is being reconnected
+     *
+     * @param address The device address
+     * @return true if a reconnect is scheduled or in progress
+     */
+    public synchronized boolean isReconnecting(String address) {
+        return attempts.containsKey(address);
+    }
+
+    /**
+     * Stop reconnecting a device, used when the operator disconnects it
+     *
+     * @param address The device address
+     */
+    public void cancel(String address) {
+        Runnable attempt;
+        synchronized (this) {
+            attempts.remove(address);
+            attempt = scheduledAttempts.remove(address);
+        }
+        if (attempt != null) {
+            scheduler.cancel(attempt);
+        }
+    }
+
+    /**
+     * Stop reconnecting all devices
+     */
+    public void cancelAll() {
+        Map<String, Runnable> cancelled;
+        synchronized (this) {
+            cancelled = new HashMap<>(scheduledAttempts);
+            scheduledAttempts.clear();
+            attempts.clear();
+        }
+        for (Runnable attempt : cancelled.values()) {
+            scheduler.cancel(attempt);
+        }
+    }
+
+    /**
+     * Configure the backoff
+     *
+     * @param baseDelayMillis Delay ceiling for the first retry
+     * @param maxDelayMillis  Largest delay between retries
+     */
+    public synchronized void setBackoff(long baseDelayMillis, long maxDelayMillis) {
+        this.baseDelay = Math.max(1, baseDelayMillis);
+        this.maxDelay = Math.max(baseDelay, maxDelayMillis);
+    }
+}
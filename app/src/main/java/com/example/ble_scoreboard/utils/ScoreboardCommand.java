@@ -0,0 +1,143 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * The single-byte command table shared with the scoreboard firmware.
+ * Each command knows its byte, its description and how the write queue treats
+ * it. Lookups by byte go through a 256-entry table, so they are constant-time
+ * and never allocate. Two commands on the same byte fail class loading, so a
+ * clash like the old 'l'/'m' mix-up can't reach a board.
+ */
+public enum ScoreboardCommand {
+    NULL('-', "Null"),
+    HORN('_', "Gametime/Shotclock Horn", GattCommandQueue.LANE_HORN, true, false),
+    SHOT_CLOCK_RESET_14('q', "Shotclock Reset to 14"),
+    SHOT_CLOCK_RESET_24('r', "Shotclock Reset to 24"),
+    NEW_GAME('v', "New Game", GattCommandQueue.LANE_OPERATOR, true, true),
+
+    // Clock
+    START_CLOCK('s', "Start Clock"),
+    STOP_CLOCK('t', "Stop Clock"),
+    RESET_CLOCK('u', "Reset Clock", GattCommandQueue.LANE_OPERATOR, false, true),
+    START_SHOT_CLOCK('x', "Start Shot Clock"),
+    STOP_SHOT_CLOCK('y', "Stop Shot Clock"),
+    RESET_SHOT_CLOCK('z', "Reset Shot Clock"),
+
+    // Clock digits, sent after a position command
+    DIGIT_0('0', "Digit 0"),
+    DIGIT_1('1', "Digit 1"),
+    DIGIT_2('2', "Digit 2"),
+    DIGIT_3('3', "Digit 3"),
+    DIGIT_4('4', "Digit 4"),
+    DIGIT_5('5', "Digit 5"),
+    DIGIT_6('6', "Digit 6"),
+    DIGIT_7('7', "Digit 7"),
+    DIGIT_8('8', "Digit 8"),
+    DIGIT_9('9', "Digit 9"),
+
+    // Clock digit positions
+    CLOCK_MIN1_POS('M', "First Minute Position"),
+    CLOCK_MIN2_POS('N', "Second Minute Position"),
+    CLOCK_SEC1_POS('S', "First Second Position"),
+    CLOCK_SEC2_POS('T', "Second Second Position"),
+
+    // Team A
+    TEAM_A_SCORE_PLUS_1('j', "Team A Score +1"),
+    TEAM_A_SCORE_PLUS_2('k', "Team A Score +2"),
+    TEAM_A_SCORE_MINUS_1('m', "Team A Score -1"),
+    TEAM_A_FOUL_PLUS_1('l', "Team A Foul +1"),
+    TEAM_A_FOUL_MINUS_1('C', "Team A Foul -1"),
+    TEAM_A_TOL_MINUS_1('n', "Team A TOL -1"),
+    TEAM_A_TOL_PLUS_1('D', "Team A TOL +1"),
+
+    // Team B
+    TEAM_B_SCORE_PLUS_1('a', "Team B Score +1"),
+    TEAM_B_SCORE_PLUS_2('b', "Team B Score +2"),
+    TEAM_B_SCORE_MINUS_1('d', "Team B Score -1"),
+    TEAM_B_FOUL_PLUS_1('c', "Team B Foul +1"),
+    TEAM_B_FOUL_MINUS_1('A', "Team B Foul -1"),
+    TEAM_B_TOL_MINUS_1('e', "Team B TOL -1"),
+    TEAM_B_TOL_PLUS_1('B', "Team B TOL +1"),
+
+    // Possession arrow
+    RIGHT_ARROW('W', "Right Arrow"),
+    LEFT_ARROW('V', "Left Arrow");
+
+    private static final ScoreboardCommand[] BY_CODE = new ScoreboardCommand[256];
+    private static final String[] UNKNOWN_DESCRIPTIONS = new String[256];
+
+    static {
+        for (ScoreboardCommand command : values()) {
+            int index = command.code & 0xFF;
+            if (BY_CODE[index] != null) {
+                throw new IllegalStateException("Command byte '" + (char) index + "' is used by both "
+                        + BY_CODE[index] + " and " + command);
+            }
+            BY_CODE[index] = command;
+        }
+        for (int i = 0; i < UNKNOWN_DESCRIPTIONS.length; i++) {
+            UNKNOWN_DESCRIPTIONS[i] = "Unknown Command: " + (byte) i;
+        }
+    }
+
+    private final byte code;
+    private final String description;
+    private final int lane;
+    private final boolean critical;
+    private final boolean resetsClockDigits;
+
+    ScoreboardCommand(char code, String description) {
+        this(code, description, GattCommandQueue.LANE_OPERATOR, false, false);
+    }
+
+    ScoreboardCommand(char code, String description, int lane, boolean critical, boolean resetsClockDigits) {
+        this.code = (byte) code;
+        this.description = description;
+        this.lane = lane;
+        this.critical = critical;
+        this.resetsClockDigits = resetsClockDigits;
+    }
+
+    /**
+     * Look up the command for a byte
+     *
+     * @param code The command byte
+     * @return The command, or null if the byte isn't in the table
+     */
+    public static ScoreboardCommand fromCode(byte code) {
+        return BY_CODE[code & 0xFF];
+    }
+
+    /**
+     * Describe a command byte without allocating
+     *
+     * @param code The command byte
+     * @return The description, or a precomputed "Unknown Command" text
+     */
+    public static String describe(byte code) {
+        ScoreboardCommand command = BY_CODE[code & 0xFF];
+        return command != null ? command.description : UNKNOWN_DESCRIPTIONS[code & 0xFF];
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    // Write queue lane, GattCommandQueue.LANE_HORN or LANE_OPERATOR
+    public int getLane() {
+        return lane;
+    }
+
+    // Always sent as an acknowledged write
+    public boolean isCritical() {
+        return critical;
+    }
+
+    // The board shows clock digits we didn't send after this command
+    public boolean resetsClockDigits() {
+        return resetsClockDigits;
+    }
+}
@@ -0,0 +1,556 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Versioned binary scoreboard frame.
+ * Carries the full clock state in 9 bytes, with packed BCD digits, a flags
+ * byte, a sequence number and a CRC-8, so a corrupted frame is rejected by the
+ * firmware instead of being shown. The start byte 0xA5 is outside the ASCII
+ * command range, which lets the firmware accept frames and legacy single-byte
+ * commands on the same UART stream. See docs/scoreboard-frame.md for the
+ * firmware-side decoder.
+ *
+ * <pre>
+ * 0  SOF        0xA5
+ * 1  VER|TYPE   version (high nibble), frame type (low nibble)
+ * 2  SEQ        sequence number, wraps at 255
+ * 3  MIN        BCD minutes (tens, units)
+ * 4  SEC        BCD seconds (tens, units)
+ * 5  TENTHS     game clock tenths (high nibble), shot clock tenths (low
+ *               nibble), 0xF = not shown
+ * 6  SHOT       BCD shot clock (tens, units)
+ * 7  FLAGS      see FLAG_* constants
+ * 8  CRC        CRC-8 (poly 0x07, init 0x00) over bytes 0-7
+ * </pre>
+ *
+ * Team state is sent as 7-byte set-field frames carrying an absolute value,
+ * so a repeated or retransmitted frame can't change a score twice:
+ *
+ * <pre>
+ * 0  SOF        0xA5
+ * 1  VER|TYPE   version, TYPE_SET_FIELD
+ * 2  SEQ        sequence number, shared with clock frames
+ * 3  FIELD      see FIELD_* constants
+ * 4  VALUE      value, high byte
+ * 5  VALUE      value, low byte
+ * 6  CRC        CRC-8 over bytes 0-5
+ * </pre>
+ *
+ * The board acknowledges applied frames with a 4-byte notification:
+ * SOF, VER|TYPE_ACK, the sequence number of the applied frame, CRC-8.
+ *
+ * Link latency is measured with a 4-byte ping (SOF, VER|TYPE_PING, ping id,
+ * CRC-8) that the board answers with a 12-byte pong notification:
+ *
+ * <pre>
+ * 0  SOF        0xA5
+ * 1  VER|TYPE   version, TYPE_PONG
+ * 2  ID         id of the ping
+ * 3  RX         board time in ms when the ping arrived, 4 bytes big-endian
+ * 7  TX         board time in ms when the pong was sent, 4 bytes big-endian
+ * 11 CRC        CRC-8 over bytes 0-10
+ * </pre>
+ *
+ * The board can report everything it shows in a 23-byte state dump, sent
+ * when it receives a 3-byte state request (SOF, VER|TYPE_STATE_REQUEST,
+ * CRC-8):
+ *
+ * <pre>
+ * 0  SOF        0xA5
+ * 1  VER|TYPE   version, TYPE_STATE
+ * 2  SEQ        sequence number of the last frame the board applied
+ * 3  MIN..FLAGS as bytes 3-7 of a clock frame
+ * 8  FIELDS     the FIELD_* values in order, 2 bytes big-endian each
+ * 22 CRC        CRC-8 over bytes 0-21
+ * </pre>
+ *
+ * and a frame it couldn't apply with a 5-byte error: SOF, VER|TYPE_ERROR, the
+ * sequence number as read, one of the ERROR_* codes, CRC-8.
+ */
+public final class ScoreboardFrame {
+
+    public static final byte SOF = (byte) 0xA5;
+    public static final int VERSION = 1;
+    public static final int TYPE_CLOCK = 1;
+    public static final int TYPE_ACK = 2;
+    public static final int TYPE_SET_FIELD = 3;
+    public static final int TYPE_PING = 4;
+    public static final int TYPE_PONG = 5;
+    public static final int TYPE_STATE = 6;
+    public static final int TYPE_ERROR = 7;
+    public static final int TYPE_STATE_REQUEST = 8;
+    public static final int LENGTH = 9;
+    public static final int ACK_LENGTH = 4;
+    public static final int SET_FIELD_LENGTH = 7;
+    public static final int PING_LENGTH = 4;
+    public static final int PONG_LENGTH = 12;
+    public static final int STATE_LENGTH = 23;
+    public static final int ERROR_LENGTH = 5;
+    public static final int STATE_REQUEST_LENGTH = 3;
+    // Longest frame a board sends
+    public static final int MAX_INBOUND_LENGTH = STATE_LENGTH;
+
+    // Error codes reported by the board
+    public static final int ERROR_CRC = 1; // checksum mismatch, the sequence may be wrong too
+    public static final int ERROR_UNKNOWN_TYPE = 2; // version or frame type not supported
+    public static final int ERROR_BAD_VALUE = 3; // digit, field or value out of range
+
+    // Team state fields of a set-field frame
+    public static final int FIELD_SCORE_A = 0;
+    public static final int FIELD_SCORE_B = 1;
+    public static final int FIELD_FOULS_A = 2;
+    public static final int FIELD_FOULS_B = 3;
+    public static final int FIELD_TOL_A = 4;
+    public static final int FIELD_TOL_B = 5;
+    public static final int FIELD_ARROW = 6; // 0 = none, 1 = left, 2 = right
+    public static final int FIELD_COUNT = 7;
+
+    // Nibble value for a tenths digit that isn't shown
+    public static final int TENTHS_NONE = 0xF;
+
+    // FLAGS byte
+    public static final int FLAG_HORN = 0x01;
+    public static final int FLAG_ARROW_LEFT = 0x02;
+    public static final int FLAG_ARROW_RIGHT = 0x04;
+    public static final int FLAG_CLOCK_RUNNING = 0x08;
+    public static final int FLAG_SHOT_CLOCK_RUNNING = 0x10;
+    // The board counts the clocks down itself from this frame while they run
+    public static final int FLAG_DEVICE_CLOCK = 0x20;
+
+    private static final int POLYNOMIAL = 0x07;
+    private static final byte[] CRC_TABLE = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+            }
+            CRC_TABLE[i] = (byte) crc;
+        }
+    }
+
+    private final int version;
+    private final int type;
+    private final int sequence;
+    private final int minutes;
+    private final int seconds;
+    private final int tenths;
+    private final int shotClock;
+    private final int shotTenths;
+    private final int flags;
+
+    private ScoreboardFrame(int version, int type, int sequence, int minutes, int seconds, int tenths,
+            int shotClock, int shotTenths, int flags) {
+        this.version = version;
+        this.type = type;
+        this.sequence = sequence;
+        this.minutes = minutes;
+        this.seconds = seconds;
+        this.tenths = tenths;
+        this.shotClock = shotClock;
+        this.shotTenths = shotTenths;
+        this.flags = flags;
+    }
+
+    /**
+     * Encode a clock frame into a buffer
+     *
+     * @param out        Buffer with at least {@link #LENGTH} bytes from offset
+     * @param offset     Where to start writing
+     * @param sequence   Sequence number, only the low 8 bits are sent
+     * @param minutes    Game clock minutes (0-99)
+     * @param seconds    Game clock seconds (0-59)
+     * @param tenths     Game clock tenths (0-9), or {@link #TENTHS_NONE}
+     * @param shotClock  Shot clock seconds (0-99)
+     * @param shotTenths Shot clock tenths (0-9), or {@link #TENTHS_NONE}
+     * @param flags      Combination of the FLAG_* constants
+     * @return Number of bytes written, always {@link #LENGTH}
+     */
+    public static int encodeClock(byte[] out, int offset, int sequence, int minutes, int seconds, int tenths,
+            int shotClock, int shotTenths, int flags) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_CLOCK);
+        out[offset + 2] = (byte) sequence;
+        out[offset + 3] = toBcd(minutes);
+        out[offset + 4] = toBcd(Math.min(seconds, 59));
+        out[offset + 5] = (byte) ((tenthsNibble(tenths) << 4) | tenthsNibble(shotTenths));
+        out[offset + 6] = toBcd(shotClock);
+        out[offset + 7] = (byte) flags;
+        out[offset + 8] = crc8(out, offset, LENGTH - 1);
+        return LENGTH;
+    }
+
+    /**
+     * Decode and validate a frame
+     *
+     * @param data   Buffer holding the frame
+     * @param offset Start of the frame
+     * @param length Bytes available from offset
+     * @return The frame, or null if it is truncated, corrupted or not a clock
+     *         frame of a known version
+     */
+    public static ScoreboardFrame decode(byte[] data, int offset, int length) {
+        if (length < LENGTH || data[offset] != SOF) {
+            return null;
+        }
+        if (crc8(data, offset, LENGTH - 1) != data[offset + 8]) {
+            return null;
+        }
+        int version = (data[offset + 1] >> 4) & 0x0F;
+        int type = data[offset + 1] & 0x0F;
+        if (version != VERSION || type != TYPE_CLOCK) {
+            return null;
+        }
+
+        int minutes = fromBcd(data[offset + 3]);
+        int seconds = fromBcd(data[offset + 4]);
+        int shotClock = fromBcd(data[offset + 6]);
+        int tenths = (data[offset + 5] >> 4) & 0x0F;
+        int shotTenths = data[offset + 5] & 0x0F;
+        if (minutes < 0 || seconds < 0 || seconds > 59 || shotClock < 0
+                || !isValidTenths(tenths) || !isValidTenths(shotTenths)) {
+            return null;
+        }
+        return new ScoreboardFrame(version, type, data[offset + 2] & 0xFF, minutes, seconds, tenths,
+                shotClock, shotTenths, data[offset + 7] & 0xFF);
+    }
+
+    /**
+     * Check if the bytes hold a binary frame rather than ASCII commands
+     *
+     * @param data   The bytes to check
+     * @param length Number of bytes
+     * @return true if the bytes are one frame
+     */
+    public static boolean isFrame(byte[] data, int length) {
+        return length == LENGTH && data[0] == SOF;
+    }
+
+    /**
+     * Renumber an encoded frame, updating its checksum
+     *
+     * @param frame    The frame, changed in place
+     * @param offset   Start of the frame
+     * @param sequence New sequence number
+     */
+    public static void setSequence(byte[] frame, int offset, int sequence) {
+        frame[offset + 2] = (byte) sequence;
+        frame[offset + 8] = crc8(frame, offset, LENGTH - 1);
+    }
+
+    /**
+     * Encode a set-field frame
+     *
+     * @param out      Buffer with at least {@link #SET_FIELD_LENGTH} bytes from
+     *                 offset
+     * @param offset   Where to start writing
+     * @param sequence Sequence number, only the low 8 bits are sent
+     * @param field    One of the FIELD_* constants
+     * @param value    The absolute value (0-65535)
+     * @return Number of bytes written, always {@link #SET_FIELD_LENGTH}
+     */
+    public static int encodeSetField(byte[] out, int offset, int sequence, int field, int value) {
+        value = Math.min(Math.max(value, 0), 0xFFFF);
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_SET_FIELD);
+        out[offset + 2] = (byte) sequence;
+        out[offset + 3] = (byte) field;
+        out[offset + 4] = (byte) (value >> 8);
+        out[offset + 5] = (byte) value;
+        out[offset + 6] = crc8(out, offset, SET_FIELD_LENGTH - 1);
+        return SET_FIELD_LENGTH;
+    }
+
+    /**
+     * Decode and validate a set-field frame without allocating
+     *
+     * @param data   Buffer holding the frame
+     * @param offset Start of the frame
+     * @param length Bytes available from offset
+     * @return The field in bits 16-23 and the value in bits 0-15 (see
+     *         {@link #fieldOf(int)} and {@link #valueOf(int)}), or -1 if the
+     *         bytes are not a valid set-field frame
+     */
+    public static int decodeSetField(byte[] data, int offset, int length) {
+        if (length < SET_FIELD_LENGTH || data[offset] != SOF
+                || data[offset + 1] != (byte) ((VERSION << 4) | TYPE_SET_FIELD)) {
+            return -1;
+        }
+        if (crc8(data, offset, SET_FIELD_LENGTH - 1) != data[offset + 6]) {
+            return -1;
+        }
+        int field = data[offset + 3] & 0xFF;
+        if (field >= FIELD_COUNT) {
+            return -1;
+        }
+        return (field << 16) | ((data[offset + 4] & 0xFF) << 8) | (data[offset + 5] & 0xFF);
+    }
+
+    public static int fieldOf(int decodedSetField) {
+        return decodedSetField >> 16;
+    }
+
+    public static int valueOf(int decodedSetField) {
+        return decodedSetField & 0xFFFF;
+    }
+
+    /**
+     * Encode an ack as the firmware sends it
+     *
+     * @param out      Buffer with at least {@link #ACK_LENGTH} bytes from offset
+     * @param offset   Where to start writing
+     * @param sequence Sequence number of the last applied frame
+     * @return Number of bytes written, always {@link #ACK_LENGTH}
+     */
+    public static int encodeAck(byte[] out, int offset, int sequence) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_ACK);
+        out[offset + 2] = (byte) sequence;
+        out[offset + 3] = crc8(out, offset, ACK_LENGTH - 1);
+        return ACK_LENGTH;
+    }
+
+    /**
+     * Decode an ack notification
+     *
+     * @param data   Buffer holding the notification
+     * @param offset Start of the ack
+     * @param length Bytes available from offset
+     * @return The acknowledged sequence number (0-255), or -1 if the bytes are
+     *         not a valid ack
+     */
+    public static int decodeAck(byte[] data, int offset, int length) {
+        if (length < ACK_LENGTH || data[offset] != SOF
+                || data[offset + 1] != (byte) ((VERSION << 4) | TYPE_ACK)) {
+            return -1;
+        }
+        if (crc8(data, offset, ACK_LENGTH - 1) != data[offset + 3]) {
+            return -1;
+        }
+        return data[offset + 2] & 0xFF;
+    }
+
+    /**
+     * Encode a time sync ping
+     *
+     * @param out    Buffer with at least {@link #PING_LENGTH} bytes from offset
+     * @param offset Where to start writing
+     * @param id     Ping id, only the low 8 bits are sent
+     * @return Number of bytes written, always {@link #PING_LENGTH}
+     */
+    public static int encodePing(byte[] out, int offset, int id) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_PING);
+        out[offset + 2] = (byte) id;
+        out[offset + 3] = crc8(out, offset, PING_LENGTH - 1);
+        return PING_LENGTH;
+    }
+
+    /**
+     * Encode a pong as the firmware sends it
+     *
+     * @param out              Buffer with at least {@link #PONG_LENGTH} bytes
+     *                         from offset
+     * @param offset           Where to start writing
+     * @param id               Id of the ping being answered
+     * @param receivedAtMillis Board time when the ping arrived
+     * @param sentAtMillis     Board time when the pong was sent
+     * @return Number of bytes written, always {@link #PONG_LENGTH}
+     */
+    public static int encodePong(byte[] out, int offset, int id, long receivedAtMillis, long sentAtMillis) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_PONG);
+        out[offset + 2] = (byte) id;
+        putInt(out, offset + 3, receivedAtMillis);
+        putInt(out, offset + 7, sentAtMillis);
+        out[offset + 11] = crc8(out, offset, PONG_LENGTH - 1);
+        return PONG_LENGTH;
+    }
+
+    /**
+     * Decode a pong notification without allocating
+     *
+     * @param data   Buffer holding the notification
+     * @param offset Start of the pong
+     * @param length Bytes available from offset
+     * @return The ping id (0-255), or -1 if the bytes are not a valid pong. The
+     *         board times are then read with {@link #pongReceivedAt} and
+     *         {@link #pongSentAt}.
+     */
+    public static int decodePong(byte[] data, int offset, int length) {
+        if (length < PONG_LENGTH || data[offset] != SOF
+                || data[offset + 1] != (byte) ((VERSION << 4) | TYPE_PONG)) {
+            return -1;
+        }
+        if (crc8(data, offset, PONG_LENGTH - 1) != data[offset + 11]) {
+            return -1;
+        }
+        return data[offset + 2] & 0xFF;
+    }
+
+    // Board time in ms when the ping arrived, from a pong that decoded
+    public static long pongReceivedAt(byte[] data, int offset) {
+        return getInt(data, offset + 3);
+    }
+
+    // Board time in ms when the pong was sent, from a pong that decoded
+    public static long pongSentAt(byte[] data, int offset) {
+        return getInt(data, offset + 7);
+    }
+
+    /**
+     * Encode a request for a state dump
+     *
+     * @param out    Buffer with at least {@link #STATE_REQUEST_LENGTH} bytes
+     *               from offset
+     * @param offset Where to start writing
+     * @return Number of bytes written, always {@link #STATE_REQUEST_LENGTH}
+     */
+    public static int encodeStateRequest(byte[] out, int offset) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_STATE_REQUEST);
+        out[offset + 2] = crc8(out, offset, STATE_REQUEST_LENGTH - 1);
+        return STATE_REQUEST_LENGTH;
+    }
+
+    /**
+     * Encode a state dump as the firmware sends it
+     *
+     * @param out          Buffer with at least {@link #STATE_LENGTH} bytes from
+     *                     offset
+     * @param offset       Where to start writing
+     * @param lastSequence Sequence number of the last applied frame
+     * @param minutes      Game clock minutes (0-99)
+     * @param seconds      Game clock seconds (0-59)
+     * @param tenths       Game clock tenths (0-9), or {@link #TENTHS_NONE}
+     * @param shotClock    Shot clock seconds (0-99)
+     * @param shotTenths   Shot clock tenths (0-9), or {@link #TENTHS_NONE}
+     * @param flags        Combination of the FLAG_* constants
+     * @param fields       The {@link #FIELD_COUNT} team state values, indexed by
+     *                     FIELD_* constant
+     * @return Number of bytes written, always {@link #STATE_LENGTH}
+     */
+    public static int encodeState(byte[] out, int offset, int lastSequence, int minutes, int seconds, int tenths,
+            int shotClock, int shotTenths, int flags, int[] fields) {
+        encodeClock(out, offset, lastSequence, minutes, seconds, tenths, shotClock, shotTenths, flags);
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_STATE);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            int value = Math.min(Math.max(fields[field], 0), 0xFFFF);
+            out[offset + 8 + 2 * field] = (byte) (value >> 8);
+            out[offset + 9 + 2 * field] = (byte) value;
+        }
+        out[offset + 22] = crc8(out, offset, STATE_LENGTH - 1);
+        return STATE_LENGTH;
+    }
+
+    /**
+     * Encode an error as the firmware sends it
+     *
+     * @param out      Buffer with at least {@link #ERROR_LENGTH} bytes from
+     *                 offset
+     * @param offset   Where to start writing
+     * @param sequence Sequence number of the rejected frame
+     * @param code     One of the ERROR_* constants
+     * @return Number of bytes written, always {@link #ERROR_LENGTH}
+     */
+    public static int encodeError(byte[] out, int offset, int sequence, int code) {
+        out[offset] = SOF;
+        out[offset + 1] = (byte) ((VERSION << 4) | TYPE_ERROR);
+        out[offset + 2] = (byte) sequence;
+        out[offset + 3] = (byte) code;
+        out[offset + 4] = crc8(out, offset, ERROR_LENGTH - 1);
+        return ERROR_LENGTH;
+    }
+
+    /**
+     * CRC-8 with polynomial 0x07 and initial value 0x00 (CRC-8/SMBUS)
+     *
+     * @param data   The bytes to check
+     * @param offset Start of the range
+     * @param length Number of bytes
+     * @return The checksum
+     */
+    public static byte crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = CRC_TABLE[(crc ^ data[i]) & 0xFF] & 0xFF;
+        }
+        return (byte) crc;
+    }
+
+    private static void putInt(byte[] out, int offset, long value) {
+        out[offset] = (byte) (value >> 24);
+        out[offset + 1] = (byte) (value >> 16);
+        out[offset + 2] = (byte) (value >> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    // Unsigned 32-bit value
+    private static long getInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFFL) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static byte toBcd(int value) {
+        value = Math.min(Math.max(value, 0), 99);
+        return (byte) (((value / 10) << 4) | (value % 10));
+    }
+
+    // Decoded value, or -1 if either nibble isn't a decimal digit
+    static int fromBcd(byte value) {
+        int tens = (value >> 4) & 0x0F;
+        int units = value & 0x0F;
+        if (tens > 9 || units > 9) {
+            return -1;
+        }
+        return tens * 10 + units;
+    }
+
+    private static int tenthsNibble(int tenths) {
+        return tenths >= 0 && tenths <= 9 ? tenths : TENTHS_NONE;
+    }
+
+    static boolean isValidTenths(int nibble) {
+        return nibble <= 9 || nibble == TENTHS_NONE;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getMinutes() {
+        return minutes;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+
+    public int getTenths() {
+        return tenths;
+    }
+
+    public int getShotClock() {
+        return shotClock;
+    }
+
+    public int getShotTenths() {
+        return shotTenths;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * The team state the operator has set: scores, fouls, timeouts left and the
+ * possession arrow. The app is the source of truth, so boards with frame
+ * support are sent absolute values from here instead of relative commands, and
+ * a lost or repeated write can't leave a board off by one.
+ */
+public class ScoreboardState {
+
+    public static final int ARROW_NONE = 0;
+    public static final int ARROW_LEFT = 1;
+    public static final int ARROW_RIGHT = 2;
+
+    // Timeouts left for each team at the start of a game
+    public static final int DEFAULT_TIMEOUTS = 2;
+
+    private static final int MAX_SCORE = 999;
+    private static final int MAX_FOULS = 99;
+    private static final int MAX_TIMEOUTS = 9;
+
+    private final int[] values = new int[ScoreboardFrame.FIELD_COUNT];
+
+    // Singleton instance
+    private static ScoreboardState instance;
+
+    public static synchronized ScoreboardState getInstance() {
+        if (instance == null) {
+            instance = new ScoreboardState();
+        }
+        return instance;
+    }
+
+    private ScoreboardState() {
+        reset();
+    }
+
+    /**
+     * Back to the values of a new game
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 0;
+        }
+        values[ScoreboardFrame.FIELD_TOL_A] = DEFAULT_TIMEOUTS;
+        values[ScoreboardFrame.FIELD_TOL_B] = DEFAULT_TIMEOUTS;
+    }
+
+    /**
+     * Apply a legacy relative command to the state
+     *
+     * @param commandByte The command byte
+     * @return The field that changed, or -1 if the command doesn't touch the
+     *         team state
+     */
+    public synchronized int apply(byte commandByte) {
+        ScoreboardCommand command = ScoreboardCommand.fromCode(commandByte);
+        if (command == null) {
+            return -1;
+        }
+        switch (command) {
+            case TEAM_A_SCORE_PLUS_1:
+                return add(ScoreboardFrame.FIELD_SCORE_A, 1);
+            case TEAM_A_SCORE_PLUS_2:
+                return add(ScoreboardFrame.FIELD_SCORE_A, 2);
+            case TEAM_A_SCORE_MINUS_1:
+                return add(ScoreboardFrame.FIELD_SCORE_A, -1);
+            case TEAM_A_FOUL_PLUS_1:
+                return add(ScoreboardFrame.FIELD_FOULS_A, 1);
+            case TEAM_A_FOUL_MINUS_1:
+                return add(ScoreboardFrame.FIELD_FOULS_A, -1);
+            case TEAM_A_TOL_PLUS_1:
+                return add(ScoreboardFrame.FIELD_TOL_A, 1);
+            case TEAM_A_TOL_MINUS_1:
+                return add(ScoreboardFrame.FIELD_TOL_A, -1);
+            case TEAM_B_SCORE_PLUS_1:
+                return add(ScoreboardFrame.FIELD_SCORE_B, 1);
+            case TEAM_B_SCORE_PLUS_2:
+                return add(ScoreboardFrame.FIELD_SCORE_B, 2);
+            case TEAM_B_SCORE_MINUS_1:
+                return add(ScoreboardFrame.FIELD_SCORE_B, -1);
+            case TEAM_B_FOUL_PLUS_1:
+                return add(ScoreboardFrame.FIELD_FOULS_B, 1);
+            case TEAM_B_FOUL_MINUS_1:
+                return add(ScoreboardFrame.FIELD_FOULS_B, -1);
+            case TEAM_B_TOL_PLUS_1:
+                return add(ScoreboardFrame.FIELD_TOL_B, 1);
+            case TEAM_B_TOL_MINUS_1:
+                return add(ScoreboardFrame.FIELD_TOL_B, -1);
+            case LEFT_ARROW:
+                return set(ScoreboardFrame.FIELD_ARROW, ARROW_LEFT);
+            case RIGHT_ARROW:
+                return set(ScoreboardFrame.FIELD_ARROW, ARROW_RIGHT);
+            default:
+                return -1;
+        }
+    }
+
+    private int add(int field, int delta) {
+        return set(field, values[field] + delta);
+    }
+
+    /**
+     * Set a field to an absolute value, clamped to what the board can show
+     *
+     * @param field One of the ScoreboardFrame.FIELD_* constants
+     * @param value The new value
+     * @return The field
+     */
+    public synchronized int set(int field, int value) {
+        values[field] = Math.min(Math.max(value, 0), maxValue(field));
+        return field;
+    }
+
+    /**
+     * Get the current value of a field
+     *
+     * @param field One of the ScoreboardFrame.FIELD_* constants
+     * @return The value
+     */
+    public synchronized int get(int field) {
+        return values[field];
+    }
+
+    private static int maxValue(int field) {
+        switch (field) {
+            case ScoreboardFrame.FIELD_SCORE_A:
+            case ScoreboardFrame.FIELD_SCORE_B:
+                return MAX_SCORE;
+            case ScoreboardFrame.FIELD_FOULS_A:
+            case ScoreboardFrame.FIELD_FOULS_B:
+                return MAX_FOULS;
+            case ScoreboardFrame.FIELD_TOL_A:
+            case ScoreboardFrame.FIELD_TOL_B:
+                return MAX_TIMEOUTS;
+            default:
+                return ARROW_RIGHT;
+        }
+    }
+
+    /**
+     * The possession arrow as clock frame flags
+     *
+     * @return FLAG_ARROW_LEFT, FLAG_ARROW_RIGHT or 0
+     */
+    public synchronized int getArrowFlags() {
+        switch (values[ScoreboardFrame.FIELD_ARROW]) {
+            case ARROW_LEFT:
+                return ScoreboardFrame.FLAG_ARROW_LEFT;
+            case ARROW_RIGHT:
+                return ScoreboardFrame.FLAG_ARROW_RIGHT;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates ping/pong exchanges with a board whose clock runs from an
+ * arbitrary start, over a link with jittery latency and the odd ping stuck
+ * behind other writes, and checks the smoothed round trip and offset.
+ */
+public class BoardTimeSyncTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    // Board counter started 12.345 s before the phone's nanoTime origin
+    private static final long BOARD_OFFSET = 12_345 * MILLI;
+
+    private long now = 3_000 * MILLI;
+
+    @Test
+    public void estimatesConvergeDespiteQueuedPings() {
+        BoardTimeSync sync = new BoardTimeSync();
+        Random random = new Random(23);
+        for (int i = 0; i < 200; i++) {
+            long up = (14 + random.nextInt(5)) * MILLI;
+            long down = (14 + random.nextInt(5)) * MILLI;
+            if (i % 17 == 5) {
+                up += 120 * MILLI; // waited behind a burst of other writes
+            }
+            exchange(sync, up, 2 * MILLI, down);
+            now += 2_000 * MILLI;
+        }
+
+        assertTrue(sync.hasEstimate());
+        assertEquals(32 * MILLI, sync.getRoundTripNanos(), 6 * MILLI);
+        assertEquals(16 * MILLI, sync.getOneWayNanos(), 3 * MILLI);
+        assertEquals(BOARD_OFFSET, sync.getOffsetNanos(), 3 * MILLI);
+        assertEquals(200, sync.getSamples());
+        assertTrue(sync.getOutliers() >= 10);
+    }
+
+    @Test
+    public void boardRestartStartsOver() {
+        BoardTimeSync sync = new BoardTimeSync();
+        for (int i = 0; i < 20; i++) {
+            exchange(sync, 10 * MILLI, 0, 10 * MILLI);
+            now += 2_000 * MILLI;
+        }
+        assertEquals(BOARD_OFFSET, sync.getOffsetNanos(), MILLI);
+
+        // Board counter back at zero
+        int id = sync.nextPing(now);
+        now += 10 * MILLI;
+        long boardMillis = 50;
+        now += 10 * MILLI;
+        assertTrue(sync.onPong(id, boardMillis, boardMillis, now));
+        assertEquals(50 * MILLI - (now - 10 * MILLI), sync.getOffsetNanos(), MILLI);
+    }
+
+    @Test
+    public void staleAndUnexpectedPongsAreIgnored() {
+        BoardTimeSync sync = new BoardTimeSync();
+        assertFalse(sync.onPong(0, 0, 0, now));
+
+        int id = sync.nextPing(now);
+        now += BoardTimeSync.PING_TIMEOUT_NANOS + MILLI;
+        assertFalse(sync.onPong(id, 0, 0, now));
+
+        id = sync.nextPing(now);
+        assertFalse(sync.onPong(id + 1, 0, 0, now + MILLI));
+        assertEquals(-1, sync.getOneWayNanos());
+    }
+
+    // One exchange, board time is phone time plus the offset, in whole ms
+    private void exchange(BoardTimeSync sync, long up, long held, long down) {
+        int id = sync.nextPing(now);
+        now += up;
+        long received = (now + BOARD_OFFSET) / MILLI;
+        now += held;
+        long sent = (now + BOARD_OFFSET) / MILLI;
+        now += down;
+        sync.onPong(id, received, sent, now);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks when a board counting down itself gets a new anchor: only once the
+ * apply delay and the assumed oscillator drift pass the threshold, when an
+ * anchor is lost on a board that acks, or when one expired in the queue.
+ */
+public class DeviceClockSyncTest {
+
+    private static final long MILLI = 1_000_000L;
+    private static final long SECOND = 1_000 * MILLI;
+
+    @Test
+    public void runningBoardIsCorrectedRarely() {
+        DeviceClockSync sync = new DeviceClockSync();
+        sync.onAnchorSent(0, true);
+        // Applied 10 ms after it was sent, acked 10 ms later
+        sync.onClockAck(20 * MILLI, 20 * MILLI);
+        assertEquals(10 * MILLI, sync.estimatedErrorNanos(10 * MILLI));
+
+        // 1000 ppm adds 90 ms after 90 s
+        assertFalse(sync.needsCorrection(89 * SECOND, true));
+        assertTrue(sync.needsCorrection(91 * SECOND, true));
+
+        // A ten minute period needs a handful of anchors, not thousands
+        int anchors = 1;
+        long anchorAt = 0;
+        for (long now = 0; now < 600 * SECOND; now += SECOND / 2) {
+            if (sync.needsCorrection(now, false)) {
+                sync.onAnchorSent(now, true);
+                anchorAt = now;
+                anchors++;
+            }
+        }
+        assertTrue(anchorAt > 0);
+        assertTrue("anchors " + anchors, anchors <= 8);
+    }
+
+    @Test
+    public void lostAnchorIsResentOnlyToBoardsThatAck() {
+        DeviceClockSync sync = new DeviceClockSync();
+        sync.onAnchorSent(0, true);
+        assertFalse(sync.needsCorrection(1_500 * MILLI, false));
+        assertTrue(sync.needsCorrection(1_500 * MILLI, true));
+    }
+
+    @Test
+    public void leadCancelsTheApplyDelay() {
+        DeviceClockSync sync = new DeviceClockSync();
+        sync.onAnchorSent(0, true, 15 * MILLI);
+        // Applied 16 ms after it was sent
+        sync.onClockAck(32 * MILLI, 32 * MILLI);
+        assertEquals(MILLI, sync.estimatedErrorNanos(16 * MILLI));
+    }
+
+    @Test
+    public void expiredClockFrameIsReportedOnce() {
+        DeviceClockSync sync = new DeviceClockSync();
+        assertFalse(sync.onExpiredClockFrames(0));
+        assertTrue(sync.onExpiredClockFrames(1));
+        assertFalse(sync.onExpiredClockFrames(1));
+        // A reconnected board has a new queue counting from zero
+        assertFalse(sync.onExpiredClockFrames(0));
+        assertTrue(sync.onExpiredClockFrames(1));
+    }
+
+    @Test
+    public void stoppedBoardNeverDrifts() {
+        DeviceClockSync sync = new DeviceClockSync();
+        sync.onAnchorSent(0, false);
+        assertEquals(0, sync.estimatedErrorNanos(3_600 * SECOND));
+        assertFalse(sync.needsCorrection(3_600 * SECOND, true));
+    }
+}
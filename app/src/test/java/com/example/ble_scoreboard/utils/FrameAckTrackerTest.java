@@ -0,0 +1,128 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which unacked frames are resent: a stopped clock frame is resent
+ * unchanged, a running one is given up and reported, since its value is out
+ * of date by the time its ack is overdue, and a horn frame is resent ahead
+ * of everything else. The ack is timed from when the queue sends the frame,
+ * not from when it was queued.
+ */
+public class FrameAckTrackerTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private long now = 9_000 * MILLI; // arbitrary boot time
+    private ManualScheduler scheduler;
+    private RecordingTransport transport;
+    private GattCommandQueue queue;
+    private FrameAckTracker tracker;
+    private int staleReports;
+    private final byte[] frame = new byte[ScoreboardFrame.LENGTH];
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        transport = new RecordingTransport();
+        queue = new GattCommandQueue("00:11:22:33:44:55", transport, scheduler, () -> now);
+        queue.setCoalesceWindow(0);
+        tracker = new FrameAckTracker(queue, scheduler, () -> now);
+        tracker.setStaleClockListener(() -> staleReports++);
+        tracker.onAck(200); // the board acks, so frames are tracked
+    }
+
+    // Queue and track a clock frame, and let the write complete
+    private void sendClock(int sequence, int flags) {
+        ScoreboardFrame.encodeClock(frame, 0, sequence, 9, 58, 3, 21, ScoreboardFrame.TENTHS_NONE, flags);
+        queue.offerClockFrame(frame, frame.length, (flags & ScoreboardFrame.FLAG_CLOCK_RUNNING) != 0,
+                FrameAckTracker.tag(FrameAckTracker.SLOT_CLOCK, sequence));
+        tracker.onFrameSent(FrameAckTracker.SLOT_CLOCK, frame, frame.length, sequence);
+        scheduler.runImmediate();
+        queue.onWriteComplete(true);
+    }
+
+    @Test
+    public void stoppedClockFrameIsResentUnchanged() {
+        sendClock(1, 0);
+        assertEquals(1, transport.writes);
+
+        now += 200 * MILLI;
+        scheduler.runDelayed();
+        scheduler.runImmediate();
+
+        assertEquals(2, transport.writes);
+        assertArrayEquals(frame, Arrays.copyOf(transport.lastValue, transport.lastLength));
+        assertTrue(tracker.isAwaitingAck(FrameAckTracker.SLOT_CLOCK));
+        tracker.onAck(1);
+        assertFalse(tracker.isAwaitingAck(FrameAckTracker.SLOT_CLOCK));
+        assertEquals(1, tracker.getRetransmittedFrames());
+        assertEquals(0, staleReports);
+    }
+
+    @Test
+    public void runningClockFrameIsNeverResent() {
+        sendClock(2, ScoreboardFrame.FLAG_CLOCK_RUNNING | ScoreboardFrame.FLAG_DEVICE_CLOCK);
+
+        now += 200 * MILLI;
+        scheduler.runDelayed();
+        scheduler.runImmediate();
+
+        assertEquals("An old clock value must not go out again", 1, transport.writes);
+        assertFalse(tracker.isAwaitingAck(FrameAckTracker.SLOT_CLOCK));
+        assertEquals(1, tracker.getStaleClockFrames());
+        assertEquals(0, tracker.getRetransmittedFrames());
+        assertEquals(1, staleReports);
+    }
+
+    @Test
+    public void ackIsTimedFromTheSend() {
+        // A long write is in flight, the frame waits behind it
+        queue.offer(new byte[] { 'x' }, 1, true, GattCommandQueue.LANE_OPERATOR);
+        scheduler.runImmediate();
+        ScoreboardFrame.encodeClock(frame, 0, 3, 9, 58, 3, 21, ScoreboardFrame.TENTHS_NONE, 0);
+        queue.offerClockFrame(frame, frame.length, false, FrameAckTracker.tag(FrameAckTracker.SLOT_CLOCK, 3));
+        tracker.onFrameSent(FrameAckTracker.SLOT_CLOCK, frame, frame.length, 3);
+
+        now += 120 * MILLI;
+        queue.onWriteComplete(true);
+        assertEquals(2, transport.writes);
+        queue.onWriteComplete(true);
+
+        // Sent 100 ms ago, queued 220 ms ago: not overdue yet
+        now += 100 * MILLI;
+        scheduler.runDelayed();
+        scheduler.runImmediate();
+        assertEquals(0, tracker.getRetransmittedFrames());
+
+        now += 10 * MILLI;
+        tracker.onAck(3);
+        assertEquals(110 * MILLI, tracker.getClockRoundTripNanos());
+    }
+
+    @Test
+    public void hornFrameIsResentInTheHornLane() {
+        sendClock(4, ScoreboardFrame.FLAG_HORN);
+
+        // Operator traffic is waiting when the ack is overdue
+        queue.offer(new byte[] { 'x' }, 1, true, GattCommandQueue.LANE_OPERATOR);
+        scheduler.runImmediate();
+        queue.offer(new byte[] { 'y' }, 1, true, GattCommandQueue.LANE_OPERATOR);
+        now += 200 * MILLI;
+        scheduler.runDelayed();
+        scheduler.runImmediate();
+        queue.onWriteComplete(true);
+
+        assertArrayEquals(frame, Arrays.copyOf(transport.lastValue, transport.lastLength));
+        assertTrue("Horn must be an acknowledged write", transport.lastWithResponse);
+        assertEquals(1, tracker.getRetransmittedFrames());
+    }
+}
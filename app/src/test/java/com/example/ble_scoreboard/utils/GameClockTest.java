@@ -0,0 +1,134 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a ten minute game on a fake time source with late ticks and main
+ * thread stalls, and checks the clock never loses time: the remaining time
+ * always matches the time actually elapsed, and the game ends exactly on
+ * time. Also checks the expiry instants and the independent shot clock.
+ */
+public class GameClockTest {
+
+    private static final long GAME_MILLIS = 10 * 60 * 1000;
+    private static final long MILLI = 1_000_000L;
+
+    private long now;
+    private GameClock clock;
+
+    @Before
+    public void setUp() {
+        now = 5_000 * MILLI; // arbitrary boot time
+        clock = new GameClock(() -> now);
+        clock.setGameMillis(GAME_MILLIS);
+        clock.setShotMillis(24_000);
+    }
+
+    @Test
+    public void busyTenMinuteGameDoesNotDrift() {
+        Random random = new Random(19);
+        long startedAt = now;
+        long delay = clock.start();
+        long pausedFor = 0;
+
+        while (delay >= 0) {
+            // Ticks fire up to 40 ms late, with an occasional 700 ms stall
+            long lateness = random.nextInt(40) * MILLI;
+            if (random.nextInt(200) == 0) {
+                lateness += 700 * MILLI;
+            }
+            now += delay + lateness;
+
+            // Pause for a while every couple of minutes
+            if (random.nextInt(1500) == 0) {
+                clock.stop();
+                now += 3_000 * MILLI;
+                pausedFor += 3_000 * MILLI;
+                delay = clock.start();
+                continue;
+            }
+
+            long expected = Math.max(0, GAME_MILLIS - (now - startedAt - pausedFor) / MILLI);
+            delay = clock.onTick();
+            assertEquals(expected, clock.getGameMillis());
+        }
+
+        assertTrue(clock.expireGameIfDue());
+        assertTrue(clock.isExpired());
+        assertFalse(clock.isRunning());
+        assertEquals(0, clock.getGameMillis());
+        // Ended within one late tick of the true end of the game
+        long overrun = now - startedAt - pausedFor - GAME_MILLIS * MILLI;
+        assertTrue("overrun " + overrun, overrun >= 0 && overrun < 800 * MILLI);
+
+        // A tick-counting clock would have drifted by whole seconds
+        assertTrue(clock.getTickDriftNanos() > 60_000 * MILLI);
+        assertTrue(clock.getMissedTicks() > 0);
+        assertTrue(clock.getMaxJitterNanos() >= 700 * MILLI);
+        assertTrue(clock.getMeanJitterNanos() > 0);
+    }
+
+    @Test
+    public void ticksLandOnTenthBoundaries() {
+        clock.setGameMillis(1_234);
+        assertEquals(34 * MILLI, clock.start());
+        now += 34 * MILLI;
+        assertEquals(GameClock.TICK_NANOS, clock.onTick());
+        assertEquals(1_200, clock.getGameMillis());
+        assertEquals(0, clock.getMaxJitterNanos());
+    }
+
+    @Test
+    public void expiryInstantsAreExact() {
+        clock.setGameMillis(30_000);
+        clock.setShotMillis(7_250);
+        clock.start();
+        now += 1_000 * MILLI;
+        assertEquals(29_000 * MILLI, clock.nanosUntilGameExpiry());
+        assertEquals(6_250 * MILLI, clock.nanosUntilShotExpiry());
+
+        now += 6_250 * MILLI - 1;
+        assertFalse(clock.expireShotIfDue());
+        now += 1;
+        assertTrue(clock.expireShotIfDue());
+        assertFalse(clock.expireShotIfDue());
+        assertEquals(-1, clock.nanosUntilShotExpiry());
+        assertFalse(clock.expireGameIfDue());
+        assertTrue(clock.isRunning());
+    }
+
+    @Test
+    public void shotClockRunsWhileGameClockIsStopped() {
+        clock.setShotMillis(5_300);
+        assertEquals(300 * MILLI, clock.startShot());
+        assertFalse(clock.isRunning());
+
+        // Whole seconds above five, tenths below
+        now += 300 * MILLI;
+        assertEquals(GameClock.TICK_NANOS, clock.onTick());
+        now += 5_000 * MILLI;
+        assertEquals(0, clock.getShotMillis());
+        assertEquals(GAME_MILLIS, clock.getGameMillis());
+        assertTrue(clock.expireShotIfDue());
+        assertFalse(clock.isShotRunning());
+        assertEquals(-1, clock.onTick());
+    }
+
+    @Test
+    public void stoppedClockHoldsItsTime() {
+        clock.start();
+        now += 2_550 * MILLI;
+        clock.stop();
+        now += 60_000 * MILLI;
+        assertEquals(GAME_MILLIS - 2_550, clock.getGameMillis());
+        assertEquals(24_000 - 2_550, clock.getShotMillis());
+        assertEquals(-1, clock.onTick());
+    }
+}
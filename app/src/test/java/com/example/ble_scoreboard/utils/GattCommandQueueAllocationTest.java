@@ -0,0 +1,216 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the steady-state command path (queue a clock frame plus a
+ * command, issue it, complete the write) doesn't allocate, also when the
+ * tick is broadcast to several boards with staggered releases, and when it
+ * goes all the way from BLEManager through BLECommandUtil.
+ */
+public class GattCommandQueueAllocationTest {
+
+    private static final int WARMUP_TICKS = 20000;
+    private static final int MEASURED_TICKS = 10000;
+    // Anything allocated per tick would add up to far more than this
+    private static final long ALLOCATION_TOLERANCE = 1024;
+
+    private ManualScheduler scheduler;
+    private RecordingTransport transport;
+    private GattCommandQueue queue;
+    private final byte[] frame = new byte[] { '0', '9', '5', '9', '0', '2', '4', '0' };
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        transport = new RecordingTransport();
+        queue = new GattCommandQueue("00:11:22:33:44:55", transport, scheduler);
+        queue.setCoalesceWindow(0);
+        queue.setMtu(247);
+    }
+
+    // One clock tick: new tenths digit, a command packed with it, write acknowledged
+    private void tick(int i) {
+        frame[4] = (byte) ('0' + i % 10);
+        queue.offer(frame, frame.length, false, GattCommandQueue.LANE_CLOCK);
+        queue.offer(BLECommandUtil.commandBytes(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1), false);
+        scheduler.runImmediate();
+        queue.onWriteComplete(true);
+    }
+
+    @Test
+    public void steadyStateTickDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            tick(i);
+        }
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            tick(i);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(WARMUP_TICKS + MEASURED_TICKS, transport.writes);
+        assertEquals(0, queue.getQueueDepth());
+        assertTrue("Steady-state ticks allocated " + allocated + " bytes", allocated < ALLOCATION_TOLERANCE);
+    }
+
+    @Test
+    public void staggeredBroadcastTickDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        RecordingTransport slowTransport = new RecordingTransport();
+        GattCommandQueue slow = new GattCommandQueue("00:11:22:33:44:66", slowTransport, scheduler);
+        slow.setCoalesceWindow(0);
+        List<GattCommandQueue> held = new ArrayList<>();
+        BroadcastEngine engine = new BroadcastEngine();
+        // Runs the delayed releases right away, the delay itself doesn't matter here
+        engine.setLatencySource(new GattCommandQueue.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+                task.run();
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+            }
+        }, address -> address.equals(slow.getAddress()) ? 30_000_000L : 5_000_000L);
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            broadcastTick(engine, held, slow, i);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            broadcastTick(engine, held, slow, i);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(WARMUP_TICKS + MEASURED_TICKS, slowTransport.writes);
+        assertTrue("Broadcast ticks allocated " + allocated + " bytes", allocated < ALLOCATION_TOLERANCE);
+    }
+
+    // The same clock frame on two boards, held and released together
+    private void broadcastTick(BroadcastEngine engine, List<GattCommandQueue> held, GattCommandQueue slow, int i) {
+        frame[4] = (byte) ('0' + i % 10);
+        held.clear();
+        held.add(queue);
+        held.add(slow);
+        for (int q = 0; q < held.size(); q++) {
+            held.get(q).hold();
+            held.get(q).offer(frame, frame.length, false, GattCommandQueue.LANE_CLOCK);
+        }
+        engine.release(held);
+        scheduler.runImmediate();
+        queue.onWriteComplete(true);
+        slow.onWriteComplete(true);
+    }
+
+    @Test
+    public void managerClockTickDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        BLEManager manager = BLEManager.getInstance();
+        List<String> addresses = new ArrayList<>();
+        addresses.add("00:11:22:33:44:77");
+        addresses.add("00:11:22:33:44:88");
+        RecordingTransport[] transports = new RecordingTransport[addresses.size()];
+        GattCommandQueue[] queues = new GattCommandQueue[addresses.size()];
+        FrameAckTracker[] trackers = new FrameAckTracker[addresses.size()];
+        for (int b = 0; b < addresses.size(); b++) {
+            transports[b] = new RecordingTransport();
+            queues[b] = new GattCommandQueue(addresses.get(b), transports[b], scheduler);
+            queues[b].setCoalesceWindow(0);
+            BLECommandUtil commandUtil = new BLECommandUtil(null, null, null);
+            commandUtil.setCommandQueue(queues[b]);
+            trackers[b] = new FrameAckTracker(queues[b], scheduler);
+            commandUtil.setAckTracker(trackers[b]);
+            manager.attachBoard(addresses.get(b), commandUtil, queues[b]);
+        }
+        try {
+            // The path is deeper, give the JIT longer to settle
+            for (int i = 0; i < 3 * WARMUP_TICKS; i++) {
+                managerTick(manager, addresses, queues, trackers, i);
+            }
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < MEASURED_TICKS; i++) {
+                managerTick(manager, addresses, queues, trackers, i);
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            for (RecordingTransport boardTransport : transports) {
+                assertEquals(2 * (3 * WARMUP_TICKS + MEASURED_TICKS), boardTransport.writes);
+            }
+            assertTrue("Manager ticks allocated " + allocated + " bytes", allocated < ALLOCATION_TOLERANCE);
+        } finally {
+            for (String address : addresses) {
+                manager.detachBoard(address);
+            }
+        }
+    }
+
+    // Digits broadcast to all boards, then a binary frame to each, written and acknowledged
+    private void managerTick(BLEManager manager, List<String> addresses, GattCommandQueue[] queues,
+            FrameAckTracker[] trackers, int i) {
+        assertTrue(manager.sendTimeUpdateToDevices(addresses, 9, i % 60));
+        scheduler.runImmediate();
+        for (GattCommandQueue boardQueue : queues) {
+            boardQueue.onWriteComplete(true);
+        }
+
+        for (int b = 0; b < addresses.size(); b++) {
+            assertTrue(manager.sendScoreboardFrame(addresses.get(b), 9, i % 60, i % 10, 24,
+                    ScoreboardFrame.TENTHS_NONE, 0));
+        }
+        scheduler.runImmediate();
+        for (int b = 0; b < queues.length; b++) {
+            queues[b].onWriteComplete(true);
+            trackers[b].onAck(i);
+        }
+    }
+
+    @Test
+    public void offerCopiesValueAndPacksInOrder() {
+        queue.offer(frame, false);
+        frame[0] = '7'; // caller reuses its buffer right away
+        queue.offer(BLECommandUtil.commandBytes(BLECommandUtil.COMMAND_START_CLOCK), false);
+        scheduler.runImmediate();
+
+        byte[] written = new byte[transport.lastLength];
+        System.arraycopy(transport.lastValue, 0, written, 0, written.length);
+        assertArrayEquals(new byte[] { '0', '9', '5', '9', '0', '2', '4', '0', 's' }, written);
+        queue.onWriteComplete(true);
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void commandBytesAreShared() {
+        byte[] first = BLECommandUtil.commandBytes(BLECommandUtil.CMD_NEW_GAME);
+        byte[] second = BLECommandUtil.commandBytes(BLECommandUtil.CMD_NEW_GAME);
+        assertTrue(first == second);
+        assertArrayEquals(new byte[] { BLECommandUtil.CMD_NEW_GAME }, first);
+    }
+}
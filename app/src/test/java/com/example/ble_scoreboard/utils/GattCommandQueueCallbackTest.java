@@ -0,0 +1,102 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how the write queue pairs stack callbacks with its writes: a late
+ * callback for a write that timed out doesn't complete the next one, the
+ * queue waits a grace period for a callback that never comes, and a write
+ * the stack rejects is retried before it fails.
+ */
+public class GattCommandQueueCallbackTest {
+
+    private ManualScheduler scheduler;
+    private RecordingTransport transport;
+    private GattCommandQueue queue;
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        transport = new RecordingTransport();
+        queue = new GattCommandQueue("00:11:22:33:44:55", transport, scheduler, () -> 0L);
+        queue.setCoalesceWindow(0);
+    }
+
+    private CompletableFuture<Boolean> offer(byte command) {
+        CompletableFuture<Boolean> future = queue.enqueue(new byte[] { command }, true, GattCommandQueue.LANE_OPERATOR);
+        scheduler.runImmediate();
+        return future;
+    }
+
+    @Test
+    public void lateCallbackDoesNotCompleteTheNextWrite() {
+        CompletableFuture<Boolean> first = offer(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1);
+        CompletableFuture<Boolean> second = offer(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_1);
+        assertEquals(1, transport.writes);
+
+        // No callback in time: the first write fails, the stack may still be busy with it
+        scheduler.runDelayed();
+        assertFalse(first.join());
+        assertEquals("Nothing may start before the stack answers", 1, transport.writes);
+
+        // The late answer belongs to the first write
+        queue.onWriteComplete(true);
+        assertFalse(second.isDone());
+        assertEquals(2, transport.writes);
+
+        queue.onWriteComplete(true);
+        assertTrue(second.join());
+    }
+
+    @Test
+    public void missingCallbackIsGivenUpAfterGracePeriod() {
+        CompletableFuture<Boolean> first = offer(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1);
+        CompletableFuture<Boolean> second = offer(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_1);
+
+        scheduler.runDelayed(); // write timeout
+        assertFalse(first.join());
+        scheduler.runDelayed(); // grace period
+        assertEquals(2, transport.writes);
+
+        queue.onWriteComplete(true);
+        assertTrue(second.join());
+    }
+
+    @Test
+    public void rejectedWriteIsRetried() {
+        transport.rejections = 2;
+        CompletableFuture<Boolean> future = offer(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1);
+        assertEquals(0, transport.writes);
+
+        scheduler.runDelayed();
+        scheduler.runDelayed();
+        assertEquals(1, transport.writes);
+        assertFalse(future.isDone());
+
+        queue.onWriteComplete(true);
+        assertTrue(future.join());
+    }
+
+    @Test
+    public void writeRejectedTooOftenFailsAndTheNextOneGoes() {
+        transport.rejections = 5;
+        CompletableFuture<Boolean> first = offer(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1);
+        CompletableFuture<Boolean> second = offer(BLECommandUtil.CMD_TEAM_B_SCORE_PLUS_1);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.runDelayed();
+        }
+        assertFalse(first.join());
+        assertEquals(1, transport.writes);
+
+        queue.onWriteComplete(true);
+        assertTrue(second.join());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the priority lanes of the write queue: the horn is the next write
+ * no matter how much clock and operator traffic is queued, operator commands
+ * go before clock frames, a newer clock frame replaces an unsent one and a
+ * running clock frame past its deadline is never sent, also when only the
+ * shot clock runs.
+ */
+public class GattCommandQueuePriorityTest {
+
+    private static final int SATURATED_TICKS = 2000;
+    private static final int HORN_EVERY = 37;
+    private static final long MILLI = 1_000_000L;
+
+    private ManualScheduler scheduler;
+    private RecordingTransport transport;
+    private GattCommandQueue queue;
+    private long now = 3_000 * MILLI; // arbitrary boot time
+    private final byte[] clockFrame = new byte[] { '0', '9', '5', '9', '0', '2', '4', '0' };
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        transport = new RecordingTransport();
+        queue = new GattCommandQueue("00:11:22:33:44:55", transport, scheduler, () -> now);
+        queue.setCoalesceWindow(0);
+        queue.setMtu(23); // HM-10 default, 20 bytes per write
+    }
+
+    private void offerClock(int tenths) {
+        clockFrame[4] = (byte) ('0' + tenths % 10);
+        queue.offer(clockFrame, clockFrame.length, false, GattCommandQueue.LANE_CLOCK);
+    }
+
+    private void offerCommand(byte command) {
+        queue.offer(BLECommandUtil.commandBytes(command), 1, BLECommandUtil.isCriticalCommand(command),
+                BLECommandUtil.laneFor(command));
+    }
+
+    private byte[] lastWrite() {
+        byte[] written = new byte[transport.lastLength];
+        System.arraycopy(transport.lastValue, 0, written, 0, written.length);
+        return written;
+    }
+
+    @Test
+    public void hornIsNextWriteUnderSaturatedLoad() {
+        int horns = 0;
+        for (int tick = 0; tick < SATURATED_TICKS; tick++) {
+            // More operator bytes per tick than one write can carry, plus a clock frame
+            for (int i = 0; i < 25; i++) {
+                offerCommand(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1);
+            }
+            offerClock(tick);
+            scheduler.runImmediate();
+
+            if (tick % HORN_EVERY == 0) {
+                // Horn pressed while a write is in flight
+                int writesBefore = transport.writes;
+                offerCommand(BLECommandUtil.CMD_GAMETIME_SHOTCLOCK_HORN);
+                offerClock(tick + 1);
+                scheduler.runImmediate();
+                assertEquals("Nothing may start while a write is in flight", writesBefore, transport.writes);
+
+                queue.onWriteComplete(true);
+                assertEquals(writesBefore + 1, transport.writes);
+                assertArrayEquals(new byte[] { BLECommandUtil.CMD_GAMETIME_SHOTCLOCK_HORN }, lastWrite());
+                assertTrue("Horn must be an acknowledged write", transport.lastWithResponse);
+                horns++;
+            }
+
+            // Operator commands go before the clock frame, which never piles up
+            boolean operatorWaiting = queue.hasPending(GattCommandQueue.LANE_OPERATOR);
+            queue.onWriteComplete(true);
+            if (operatorWaiting) {
+                assertEquals(BLECommandUtil.CMD_TEAM_A_SCORE_PLUS_1, lastWrite()[0]);
+            }
+            assertTrue("One clock frame waits at most", queue.getPendingCount(GattCommandQueue.LANE_CLOCK) <= 1);
+        }
+
+        assertEquals((SATURATED_TICKS + HORN_EVERY - 1) / HORN_EVERY, horns);
+        assertTrue(queue.getSupersededClockFrames() > 0);
+    }
+
+    @Test
+    public void operatorCommandsGoBeforeClockFrames() {
+        offerClock(1);
+        offerCommand(BLECommandUtil.COMMAND_START_CLOCK);
+        scheduler.runImmediate();
+
+        assertArrayEquals(new byte[] { 's', '0', '9', '5', '9', '1', '2', '4', '0' }, lastWrite());
+    }
+
+    @Test
+    public void newerClockFrameReplacesUnsentOne() {
+        offerCommand(BLECommandUtil.COMMAND_STOP_CLOCK);
+        scheduler.runImmediate(); // in flight, everything below waits
+        for (int i = 0; i < 100; i++) {
+            offerClock(i);
+        }
+        assertEquals(2, queue.getQueueDepth());
+        assertEquals(99, queue.getSupersededClockFrames());
+
+        queue.onWriteComplete(true);
+        assertArrayEquals(new byte[] { '0', '9', '5', '9', '9', '2', '4', '0' }, lastWrite());
+        queue.onWriteComplete(true);
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    public void staleRunningClockFrameIsDropped() {
+        int[] failures = new int[1];
+        queue.setFailureListener(() -> failures[0]++);
+        queue.setClockFrameDeadline(5);
+        offerCommand(BLECommandUtil.COMMAND_STOP_CLOCK);
+        scheduler.runImmediate(); // slow write in flight
+        queue.offerClockFrame(clockFrame, clockFrame.length, true);
+        now += 20 * MILLI;
+
+        queue.onWriteComplete(true);
+        assertEquals("Stale frame must not be written", 1, transport.writes);
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(1, queue.getExpiredClockFrames());
+        assertEquals(1, queue.getDroppedClockFrames());
+        assertEquals("Delta encoders are told to resend", 1, failures[0]);
+    }
+
+    @Test
+    public void shotClockOnlyFrameExpires() {
+        BLECommandUtil commandUtil = new BLECommandUtil(null, null, null);
+        commandUtil.setCommandQueue(queue);
+        queue.setClockFrameDeadline(5);
+        offerCommand(BLECommandUtil.COMMAND_STOP_CLOCK);
+        scheduler.runImmediate();
+        // Game clock stopped, shot clock running
+        commandUtil.sendScoreboardFrame(9, 58, 3, 21, 4, ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING);
+        now += 20 * MILLI;
+
+        queue.onWriteComplete(true);
+        assertEquals("Stale frame must not be written", 1, transport.writes);
+        assertEquals(1, queue.getExpiredClockFrames());
+    }
+
+    @Test
+    public void stoppedClockFrameNeverExpires() {
+        queue.setClockFrameDeadline(5);
+        offerCommand(BLECommandUtil.COMMAND_STOP_CLOCK);
+        scheduler.runImmediate();
+        queue.offerClockFrame(clockFrame, clockFrame.length, false);
+        now += 20 * MILLI;
+
+        queue.onWriteComplete(true);
+        assertArrayEquals(clockFrame, lastWrite());
+        assertEquals(0, queue.getDroppedClockFrames());
+    }
+}
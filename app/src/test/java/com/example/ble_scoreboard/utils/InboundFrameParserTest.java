@@ -0,0 +1,172 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds the parser the way the HM-10 delivers notifications: frames split
+ * over 20-byte chunks, several frames per chunk, ASCII noise and corrupted
+ * bytes in between. Also checks the parse path doesn't allocate.
+ */
+public class InboundFrameParserTest {
+
+    private static final int CHUNK = 20;
+
+    private final List<String> events = new ArrayList<>();
+    private final InboundFrameParser.StateDump lastDump = new InboundFrameParser.StateDump();
+    private InboundFrameParser parser;
+
+    private final InboundFrameParser.Listener recorder = new InboundFrameParser.Listener() {
+        @Override
+        public void onAck(int sequence) {
+            events.add("ack " + sequence);
+        }
+
+        @Override
+        public void onPong(int id, long boardReceivedMillis, long boardSentMillis, long receivedAtNanos) {
+            events.add("pong " + id + " " + boardReceivedMillis + " " + boardSentMillis + " @" + receivedAtNanos);
+        }
+
+        @Override
+        public void onStateDump(InboundFrameParser.StateDump dump) {
+            lastDump.set(dump);
+            events.add("state " + dump.getLastSequence());
+        }
+
+        @Override
+        public void onError(int sequence, int code) {
+            events.add("error " + sequence + " " + code);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        parser = new InboundFrameParser(recorder);
+    }
+
+    @Test
+    public void framesSplitAndPackedAcrossNotifications() {
+        byte[] stream = new byte[64];
+        int length = ScoreboardFrame.encodeAck(stream, 0, 7);
+        length += ScoreboardFrame.encodeState(stream, length, 8, 9, 58, 3, 21, ScoreboardFrame.TENTHS_NONE,
+                ScoreboardFrame.FLAG_CLOCK_RUNNING, new int[] { 42, 40, 3, 5, 2, 1, 1 });
+        length += ScoreboardFrame.encodePong(stream, length, 200, 4_000_000_000L, 4_000_000_002L);
+        length += ScoreboardFrame.encodeError(stream, length, 9, ScoreboardFrame.ERROR_BAD_VALUE);
+
+        for (int offset = 0; offset < length; offset += CHUNK) {
+            parser.feed(stream, offset, Math.min(CHUNK, length - offset), offset);
+        }
+
+        assertEquals(List.of("ack 7", "state 8", "pong 200 4000000000 4000000002 @20", "error 9 3"), events);
+        assertEquals(9, lastDump.getMinutes());
+        assertEquals(58, lastDump.getSeconds());
+        assertEquals(3, lastDump.getTenths());
+        assertEquals(21, lastDump.getShotClock());
+        assertEquals(ScoreboardFrame.TENTHS_NONE, lastDump.getShotTenths());
+        assertEquals(ScoreboardFrame.FLAG_CLOCK_RUNNING, lastDump.getFlags());
+        assertEquals(42, lastDump.getField(ScoreboardFrame.FIELD_SCORE_A));
+        assertEquals(1, lastDump.getField(ScoreboardFrame.FIELD_ARROW));
+        // Completed by the second chunk
+        assertEquals(20, lastDump.getReceivedAtNanos());
+        assertEquals(4, parser.getFrames());
+        assertEquals(0, parser.getCorruptFrames());
+    }
+
+    @Test
+    public void corruptedFrameDoesNotCostTheNextOne() {
+        byte[] stream = new byte[32];
+        stream[0] = 'j'; // echoed ASCII command
+        int length = 1;
+        int corrupted = length;
+        length += ScoreboardFrame.encodeAck(stream, length, 1);
+        stream[corrupted + 2] ^= 0x40;
+        // Fails its checksum, the ack right after it must still be found
+        length += ScoreboardFrame.encodeAck(stream, length, 2);
+        // A dump cut off after its header swallows the ack that follows
+        stream[length++] = ScoreboardFrame.SOF;
+        stream[length++] = (byte) ((ScoreboardFrame.VERSION << 4) | ScoreboardFrame.TYPE_STATE);
+        stream[length++] = 5;
+        length += ScoreboardFrame.encodeAck(stream, length, 3);
+
+        parser.feed(stream, 0, length, 0);
+        // The dump only ends once enough bytes arrive, then fails its checksum
+        // and the ack inside it is replayed
+        parser.feed(new byte[ScoreboardFrame.STATE_LENGTH], 0, ScoreboardFrame.STATE_LENGTH, 0);
+
+        assertEquals(List.of("ack 2", "ack 3"), events);
+        assertEquals(2, parser.getCorruptFrames());
+        assertTrue(parser.getStrayBytes() > 0);
+    }
+
+    @Test
+    public void unknownTypeIsSkipped() {
+        byte[] stream = new byte[16];
+        // A clock frame is never sent by a board
+        int length = ScoreboardFrame.encodeClock(stream, 0, 1, 1, 2, 3, 4, 5, 0);
+        length += ScoreboardFrame.encodeAck(stream, length, 4);
+        parser.feed(stream, 0, length, 0);
+        assertEquals(List.of("ack 4"), events);
+    }
+
+    @Test
+    public void parsingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        long[] count = new long[1];
+        InboundFrameParser counting = new InboundFrameParser(new InboundFrameParser.Listener() {
+            @Override
+            public void onAck(int sequence) {
+                count[0]++;
+            }
+
+            @Override
+            public void onPong(int id, long boardReceivedMillis, long boardSentMillis, long receivedAtNanos) {
+                count[0]++;
+            }
+
+            @Override
+            public void onStateDump(InboundFrameParser.StateDump dump) {
+                count[0]++;
+            }
+
+            @Override
+            public void onError(int sequence, int code) {
+                count[0]++;
+            }
+        });
+        byte[] stream = new byte[64];
+        int length = ScoreboardFrame.encodeAck(stream, 0, 7);
+        length += ScoreboardFrame.encodeState(stream, length, 8, 9, 58, 3, 21, 4, 0, new int[7]);
+        length += ScoreboardFrame.encodePong(stream, length, 1, 2, 3);
+
+        for (int i = 0; i < 20000; i++) {
+            feedInChunks(counting, stream, length);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            feedInChunks(counting, stream, length);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(30000 * 3, count[0]);
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void feedInChunks(InboundFrameParser target, byte[] stream, int length) {
+        for (int offset = 0; offset < length; offset += CHUNK) {
+            target.feed(stream, offset, Math.min(CHUNK, length - offset), offset);
+        }
+    }
+}
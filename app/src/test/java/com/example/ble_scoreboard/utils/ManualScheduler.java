@@ -0,0 +1,61 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Scheduler for queue tests: runs immediate tasks on demand and keeps delayed
+ * ones (timeouts) pending until the test fires them.
+ */
+final class ManualScheduler implements GattCommandQueue.Scheduler {
+    private final Runnable[] tasks = new Runnable[16];
+    private final long[] delays = new long[16];
+    private int count;
+
+    @Override
+    public void schedule(Runnable task, long delayMillis) {
+        tasks[count] = task;
+        delays[count] = delayMillis;
+        count++;
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (tasks[i] != task) {
+                tasks[kept] = tasks[i];
+                delays[kept] = delays[i];
+                kept++;
+            }
+        }
+        for (int i = kept; i < count; i++) {
+            tasks[i] = null;
+        }
+        count = kept;
+    }
+
+    void runImmediate() {
+        for (int i = 0; i < count; i++) {
+            if (delays[i] == 0) {
+                Runnable task = tasks[i];
+                cancel(task);
+                task.run();
+                i = -1;
+            }
+        }
+    }
+
+    // Fire the delayed tasks pending now, as if their time had come. Tasks
+    // they schedule stay pending.
+    void runDelayed() {
+        Runnable[] due = new Runnable[count];
+        int dueCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (delays[i] > 0) {
+                due[dueCount++] = tasks[i];
+            }
+        }
+        for (int i = 0; i < dueCount; i++) {
+            cancel(due[i]);
+            due[i].run();
+        }
+    }
+}
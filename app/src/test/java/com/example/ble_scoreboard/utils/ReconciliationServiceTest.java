@@ -0,0 +1,200 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the reconciliation service against a fake link and fake time: only the
+ * fields a board shows wrong are corrected, fields still waiting for an ack
+ * are left to the tracker, boards are asked less often while a clock runs,
+ * a board that doesn't keep a field is left alone, and a board clock that is
+ * off is re-anchored.
+ */
+public class ReconciliationServiceTest {
+
+    private static final String BOARD = "AA:BB:CC:DD:EE:01";
+    private static final long MILLI = 1_000_000L;
+
+    private final List<String> sent = new ArrayList<>();
+    private final Set<Integer> pendingSlots = new HashSet<>();
+    private boolean deviceClock;
+    private long now;
+    private GameClock clock;
+    private ScoreboardState state;
+    private ReconciliationService service;
+
+    private final ReconciliationService.Link link = new ReconciliationService.Link() {
+        @Override
+        public boolean requestState(String address) {
+            sent.add("request");
+            return true;
+        }
+
+        @Override
+        public boolean isPending(String address, int slot) {
+            return pendingSlots.contains(slot);
+        }
+
+        @Override
+        public boolean correctField(String address, int field, int boardValue, int value) {
+            sent.add("field " + field + "=" + value);
+            return true;
+        }
+
+        @Override
+        public boolean isDeviceClock(String address) {
+            return deviceClock;
+        }
+
+        @Override
+        public boolean reanchorClock(String address) {
+            sent.add("anchor");
+            return true;
+        }
+
+        @Override
+        public long oneWayNanos(String address) {
+            return -1;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        now = 7_000 * MILLI;
+        clock = new GameClock(() -> now);
+        clock.setGameMillis(10 * 60 * 1000);
+        clock.setShotMillis(24_000);
+        state = ScoreboardState.getInstance();
+        state.reset();
+        service = new ReconciliationService(link, clock, state, () -> now);
+    }
+
+    @Test
+    public void onlyMismatchedFieldsAreCorrected() {
+        state.set(ScoreboardFrame.FIELD_SCORE_A, 42);
+        state.set(ScoreboardFrame.FIELD_FOULS_B, 3);
+        int[] fields = values();
+        fields[ScoreboardFrame.FIELD_SCORE_A] = 40; // missed a basket
+
+        service.onBoardStateDump(BOARD, dump(fields, 10, 0, 24, 0));
+
+        assertEquals(List.of("field " + ScoreboardFrame.FIELD_SCORE_A + "=42"), sent);
+        assertEquals(1, service.getCorrectedFields());
+    }
+
+    @Test
+    public void fieldAwaitingAckIsSkipped() {
+        state.set(ScoreboardFrame.FIELD_SCORE_B, 7);
+        int[] fields = values();
+        fields[ScoreboardFrame.FIELD_SCORE_B] = 5;
+        pendingSlots.add(FrameAckTracker.fieldSlot(ScoreboardFrame.FIELD_SCORE_B));
+
+        service.onBoardStateDump(BOARD, dump(fields, 10, 0, 24, 0));
+        assertTrue(sent.isEmpty());
+
+        // Once the tracker gave up the field is corrected
+        pendingSlots.clear();
+        service.onBoardStateDump(BOARD, dump(fields, 10, 0, 24, 0));
+        assertEquals(List.of("field " + ScoreboardFrame.FIELD_SCORE_B + "=7"), sent);
+    }
+
+    @Test
+    public void boardsAreAskedLessOftenWhileRunning() {
+        assertTrue(service.poll(BOARD));
+        now += (ReconciliationService.DEFAULT_IDLE_INTERVAL - 1) * MILLI;
+        assertFalse(service.poll(BOARD));
+        now += MILLI;
+        assertTrue(service.poll(BOARD));
+
+        clock.start();
+        now += ReconciliationService.DEFAULT_IDLE_INTERVAL * MILLI;
+        assertFalse(service.poll(BOARD));
+        now += (ReconciliationService.DEFAULT_RUNNING_INTERVAL - ReconciliationService.DEFAULT_IDLE_INTERVAL) * MILLI;
+        assertTrue(service.poll(BOARD));
+
+        // An error makes the board due right away
+        service.onBoardError(BOARD, 9, ScoreboardFrame.ERROR_BAD_VALUE);
+        assertTrue(service.poll(BOARD));
+        assertEquals(4, service.getRequests());
+    }
+
+    @Test
+    public void fieldTheBoardDoesNotKeepIsGivenUp() {
+        state.set(ScoreboardFrame.FIELD_SCORE_A, 12);
+        int[] fields = values();
+        fields[ScoreboardFrame.FIELD_SCORE_A] = 0; // shot clock board without scores
+
+        for (int i = 0; i < 5; i++) {
+            service.onBoardStateDump(BOARD, dump(fields, 10, 0, 24, 0));
+        }
+        assertEquals(3, sent.size());
+
+        // A new value is worth trying again
+        state.set(ScoreboardFrame.FIELD_SCORE_A, 14);
+        service.onBoardStateDump(BOARD, dump(fields, 10, 0, 24, 0));
+        assertEquals(4, sent.size());
+    }
+
+    @Test
+    public void boardClockIsReanchoredWhenOff() {
+        deviceClock = true;
+        clock.start(); // starts the shot clock too
+        now += 1_500 * MILLI; // 9:58.5 and 22.5 left
+        int running = ScoreboardFrame.FLAG_CLOCK_RUNNING | ScoreboardFrame.FLAG_SHOT_CLOCK_RUNNING;
+
+        service.onBoardStateDump(BOARD, dump(values(), 9, 58, 22, running));
+        assertTrue(sent.isEmpty());
+
+        // Two seconds behind
+        service.onBoardStateDump(BOARD, dump(values(), 10, 0, 22, running));
+        assertEquals(List.of("anchor"), sent);
+
+        // Stopped on the board while the app runs
+        service.onBoardStateDump(BOARD, dump(values(), 9, 58, 22, 0));
+        assertEquals(2, service.getClockCorrections());
+    }
+
+    private int[] values() {
+        int[] fields = new int[ScoreboardFrame.FIELD_COUNT];
+        for (int field = 0; field < fields.length; field++) {
+            fields[field] = state.get(field);
+        }
+        return fields;
+    }
+
+    // A dump as the board sends it, received now, tenths not shown
+    private InboundFrameParser.StateDump dump(int[] fields, int minutes, int seconds, int shotClock, int flags) {
+        byte[] frame = new byte[ScoreboardFrame.STATE_LENGTH];
+        int length = ScoreboardFrame.encodeState(frame, 0, 1, minutes, seconds, ScoreboardFrame.TENTHS_NONE,
+                shotClock, ScoreboardFrame.TENTHS_NONE, flags, fields);
+        InboundFrameParser.StateDump copy = new InboundFrameParser.StateDump();
+        new InboundFrameParser(new InboundFrameParser.Listener() {
+            @Override
+            public void onAck(int sequence) {
+            }
+
+            @Override
+            public void onPong(int id, long boardReceivedMillis, long boardSentMillis, long receivedAtNanos) {
+            }
+
+            @Override
+            public void onStateDump(InboundFrameParser.StateDump dump) {
+                copy.set(dump);
+            }
+
+            @Override
+            public void onError(int sequence, int code) {
+            }
+        }).feed(frame, 0, length, now);
+        return copy;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.ble_scoreboard.utils;
+
+/**
+ * Transport for queue tests. Keeps a copy of the last write, like the stack
+ * does with the characteristic value, and can turn writes down.
+ */
+final class RecordingTransport implements GattCommandQueue.Transport {
+    final byte[] lastValue = new byte[256];
+    int lastLength;
+    boolean lastWithResponse;
+    int writes;
+    int rejections; // the next writes the stack turns down, like a busy stack does
+
+    @Override
+    public boolean write(byte[] value, boolean withResponse) {
+        if (rejections > 0) {
+            rejections--;
+            return false;
+        }
+        System.arraycopy(value, 0, lastValue, 0, value.length);
+        lastLength = value.length;
+        lastWithResponse = withResponse;
+        writes++;
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.ble_scoreboard.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the command table: every command is found by its own byte, the
+ * README's Team A bytes are the ones the app sends, and descriptions are
+ * looked up rather than built.
+ */
+public class ScoreboardCommandTest {
+
+    @Test
+    public void everyCommandRoundTrips() {
+        for (ScoreboardCommand command : ScoreboardCommand.values()) {
+            assertSame(command, ScoreboardCommand.fromCode(command.getCode()));
+        }
+    }
+
+    @Test
+    public void teamAScoreAndFoulBytesMatchTheFirmware() {
+        assertEquals((byte) 'm', BLECommandUtil.CMD_TEAM_A_SCORE_MINUS_1);
+        assertEquals((byte) 'l', BLECommandUtil.CMD_TEAM_A_FOUL_PLUS_1);
+        assertEquals("Team A Score -1", BLECommandUtil.getCommandDescription((byte) 'm'));
+        assertEquals("Team A Foul +1", BLECommandUtil.getCommandDescription((byte) 'l'));
+    }
+
+    @Test
+    public void unknownBytesHaveSharedDescriptions() {
+        assertNull(ScoreboardCommand.fromCode((byte) 'Z'));
+        assertEquals("Unknown Command: 90", ScoreboardCommand.describe((byte) 'Z'));
+        assertSame(ScoreboardCommand.describe((byte) 0xF0), ScoreboardCommand.describe((byte) 0xF0));
+    }
+}